@@ -0,0 +1,121 @@
+package com.trading.io;
+
+import com.trading.account.AccountManager;
+import com.trading.model.Account;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Month;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to get 1M positions back into memory: restoring a binary snapshot versus
+ * re-parsing the equivalent position CSV into a portfolio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class AccountSnapshotBenchmark {
+    private static final int ACCOUNTS = 1_000;
+    private static final int POSITIONS_PER_ACCOUNT = 1_000;
+    private static final String[] TICKERS = {"AAPL", "GOOGL", "MSFT", "TSLA", "AMZN"};
+    private static final String[] MONTHS = {"JAN", "MAR", "JUN", "SEP", "DEC"};
+
+    private Path directory;
+    private Path csv;
+    private AccountSnapshotStore store;
+    private ExecutorService executor;
+    private MappedCSVPositionReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshots");
+        csv = directory.resolve("positions.csv");
+        SecurityRegistry registry = new SecurityRegistry();
+
+        AccountManager accountManager = new AccountManager();
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.US_ASCII)) {
+            writer.write("Symbol,Quantity\n");
+            for (int a = 0; a < ACCOUNTS; a++) {
+                Account account = accountManager.createAccount("ACC" + a, "Account " + a);
+                account.addCash(new BigDecimal("100000.00"));
+                for (int p = 0; p < POSITIONS_PER_ACCOUNT; p++) {
+                    int i = a * POSITIONS_PER_ACCOUNT + p;
+                    String ticker = TICKERS[i % TICKERS.length];
+                    int strike = 100 + (i % 40) * 5;
+                    boolean call = i % 2 == 0;
+                    Security security = i % 4 == 0
+                            ? new Security(ticker)
+                            : new Security(ticker, call ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION,
+                                new BigDecimal(strike), new BigDecimal("0.5"), new BigDecimal("0.05"),
+                                new BigDecimal("0.30"), Month.MARCH, 2030);
+                    BigDecimal quantity = new BigDecimal(1 + i % 500);
+                    account.getPortfolio().addPosition(new Position(registry.intern(security), quantity,
+                            new BigDecimal("12.34")));
+
+                    writer.write(ticker);
+                    if (i % 4 != 0) {
+                        writer.write("-" + MONTHS[i % MONTHS.length] + "-2030-" + strike + (call ? "-C" : "-P"));
+                    }
+                    writer.write("," + quantity + "\n");
+                }
+            }
+        }
+
+        store = new AccountSnapshotStore(directory, registry, 1);
+        store.write(accountManager);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        reader = new MappedCSVPositionReader(executor, Runtime.getRuntime().availableProcessors(),
+                8L * 1024 * 1024, Clock.systemDefaultZone(), registry, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public AccountManager restoreSnapshot() throws IOException {
+        AccountManager accountManager = new AccountManager();
+        store.restoreLatest(accountManager);
+        return accountManager;
+    }
+
+    @Benchmark
+    public Account readCsv() throws IOException {
+        Account account = new Account("ACC001", "CSV Account");
+        reader.readPositions(csv, account.getPortfolio()::addPosition);
+        return account;
+    }
+}
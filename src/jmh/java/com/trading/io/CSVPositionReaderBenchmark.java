@@ -0,0 +1,52 @@
+package com.trading.io;
+
+import com.trading.model.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a synthetic file of mixed stock and option rows; the score is rows per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CSVPositionReaderBenchmark {
+    private static final int ROWS = 10_000;
+    private static final String[] TICKERS = {"AAPL", "GOOGL", "MSFT", "TSLA", "AMZN"};
+    private static final String[] MONTHS = {"JAN", "MAR", "JUN", "SEP", "DEC"};
+
+    private CSVPositionReader reader;
+    private String[][] rows;
+
+    @Setup
+    public void setUp() {
+        reader = new CSVPositionReader();
+        rows = new String[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            String ticker = TICKERS[i % TICKERS.length];
+            String symbol = i % 4 == 0
+                    ? ticker
+                    : String.format("%s-%s-2030-%d-%s", ticker, MONTHS[i % MONTHS.length],
+                        100 + (i % 40) * 5, i % 2 == 0 ? "C" : "P");
+            rows[i] = new String[] {symbol, String.valueOf(1 + i % 500)};
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parsePosition(Blackhole blackhole) {
+        for (String[] row : rows) {
+            Position position = reader.parsePosition(row);
+            blackhole.consume(position);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.trading.io;
+
+import com.trading.model.SecurityRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a synthetic 10M-row position file from disk; the score is rows per second.
+ * Compare {@code parallelism=1} with the machine's core count to see the chunking gain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class MappedCSVPositionReaderBenchmark {
+    private static final int ROWS = 10_000_000;
+    private static final String[] TICKERS = {"AAPL", "GOOGL", "MSFT", "TSLA", "AMZN"};
+    private static final String[] MONTHS = {"JAN", "MAR", "JUN", "SEP", "DEC"};
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private Path file;
+    private ExecutorService executor;
+    private MappedCSVPositionReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("positions", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("Symbol,Quantity\n");
+            for (int i = 0; i < ROWS; i++) {
+                String ticker = TICKERS[i % TICKERS.length];
+                writer.write(ticker);
+                if (i % 4 != 0) {
+                    writer.write("-" + MONTHS[i % MONTHS.length] + "-2030-" + (100 + (i % 40) * 5)
+                            + (i % 2 == 0 ? "-C" : "-P"));
+                }
+                writer.write("," + (1 + i % 500) + "\n");
+            }
+        }
+        executor = Executors.newFixedThreadPool(parallelism);
+        reader = new MappedCSVPositionReader(executor, parallelism, 8L * 1024 * 1024, Clock.systemDefaultZone(),
+                new SecurityRegistry(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readPositions(Blackhole blackhole) throws IOException {
+        reader.readPositions(file, blackhole::consume);
+    }
+}
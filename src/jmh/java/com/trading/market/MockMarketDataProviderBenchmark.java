@@ -0,0 +1,38 @@
+package com.trading.market;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MockMarketDataProviderBenchmark {
+    private MockMarketDataProvider provider;
+    private BigDecimal price;
+
+    @Setup
+    public void setUp() {
+        provider = new MockMarketDataProvider();
+        price = new BigDecimal("180.00");
+    }
+
+    @TearDown
+    public void tearDown() {
+        provider.stop();
+    }
+
+    @Benchmark
+    public BigDecimal calculateNextPrice() {
+        price = provider.calculateNextPrice(price);
+        return price;
+    }
+}
@@ -0,0 +1,66 @@
+package com.trading.market;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Appends ticks to a journal from one thread; the score is ticks per second and the GC
+ * profiler should report no allocation per tick beyond segment rolls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TickJournalBenchmark {
+    private static final String[] TICKERS = {"AAPL", "GOOGL", "MSFT", "TSLA", "AMZN"};
+
+    private Path directory;
+    private TickJournal journal;
+    private int[] tickerIds;
+    private BigDecimal[] prices;
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        journal = new TickJournal(directory);
+        tickerIds = new int[TICKERS.length];
+        for (int i = 0; i < TICKERS.length; i++) {
+            tickerIds[i] = journal.tickerId(TICKERS[i]);
+        }
+        prices = new BigDecimal[1024];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(10_000 + i * 7, 2);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void append() {
+        int i = cursor++;
+        journal.append(tickerIds[i % tickerIds.length], prices[i & (prices.length - 1)]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.trading.metrics;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.portfolio.RevaluationSettings;
+import com.trading.portfolio.UnderlyingGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of instrumenting the tick path: a stock-only group update with metrics on and
+ * off, and a bare histogram record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TradingMetricsBenchmark {
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private UnderlyingGroup stockGroup;
+    private UnderlyingGroup optionGroup;
+    private LatencyHistogram histogram;
+    private BigDecimal[] prices;
+    private int tick;
+
+    @Setup
+    public void setUp() {
+        TradingMetrics metrics = new TradingMetrics(enabled);
+        List<Position> stocks = new ArrayList<>();
+        stocks.add(new Position(new Security("AAPL"), new BigDecimal("100")));
+        stockGroup = new UnderlyingGroup("AAPL", stocks, RevaluationSettings.full(), null, metrics);
+
+        List<Position> options = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            options.add(new Position(new Security("AAPL", i % 2 == 0 ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION,
+                    new BigDecimal(150 + i * 5), new BigDecimal("0.5"), new BigDecimal("0.05"),
+                    new BigDecimal("0.30"), Month.MARCH, 2030), new BigDecimal("10")));
+        }
+        optionGroup = new UnderlyingGroup("AAPL", options, RevaluationSettings.full(), null, metrics);
+
+        histogram = metrics.getReprice();
+        prices = new BigDecimal[64];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(18000 + i, 2);
+        }
+    }
+
+    @Benchmark
+    public void stockTick() {
+        stockGroup.onPriceUpdate("AAPL", prices[tick++ & 63]);
+    }
+
+    @Benchmark
+    public void optionTick() {
+        optionGroup.onPriceUpdate("AAPL", prices[tick++ & 63]);
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        histogram.record(tick++ & 0xFFFF);
+    }
+}
@@ -0,0 +1,65 @@
+package com.trading.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A book with a fixed set of AAPL positions plus {@code positions} unrelated stocks.
+ * The AAPL tick cost should stay flat as the unrelated part of the book grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PortfolioBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int positions;
+
+    private Portfolio portfolio;
+    private BigDecimal[] ticks;
+    private int tick;
+
+    @Setup
+    public void setUp() {
+        portfolio = new Portfolio();
+        portfolio.addPosition(new Position(new Security("AAPL"), new BigDecimal("100")));
+        portfolio.addPosition(new Position(new Security("AAPL", SecurityType.CALL_OPTION,
+                new BigDecimal("180"), new BigDecimal("0.25")), new BigDecimal("10")));
+        portfolio.addPosition(new Position(new Security("AAPL", SecurityType.PUT_OPTION,
+                new BigDecimal("170"), new BigDecimal("0.25")), new BigDecimal("5")));
+
+        for (int i = 0; i < positions; i++) {
+            Position position = new Position(new Security("T" + i), new BigDecimal(10 + i % 90));
+            position.updatePrice(new BigDecimal("50.00"));
+            portfolio.addPosition(position);
+        }
+
+        ticks = new BigDecimal[1024];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = BigDecimal.valueOf(18000 + i % 200, 2);
+        }
+    }
+
+    @Benchmark
+    public void updatePrice() {
+        portfolio.updatePrice("AAPL", ticks[tick++ & (ticks.length - 1)]);
+    }
+
+    @Benchmark
+    public BigDecimal getTotalValue() {
+        return portfolio.getTotalValue();
+    }
+
+    @Benchmark
+    public BigDecimal recomputeTotalValue() {
+        return portfolio.recomputeTotalValue();
+    }
+}
@@ -0,0 +1,135 @@
+package com.trading.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticks, structural changes and snapshots on one portfolio at the same time. Each tick
+ * writer owns its own tickers and sets every position on a ticker to the same price,
+ * while one thread adds, merges and removes positions on untraded tickers. The reader
+ * fails the run if a snapshot shows a ticker at two prices, a value that does not match
+ * its quantity and price, or a total that is not the sum of its rows.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PortfolioConcurrencyBenchmark {
+    private static final int WRITERS = 2;
+    private static final BigDecimal CONTRACT_SIZE = new BigDecimal("100");
+
+    @Param({"1000", "100000"})
+    private int positions;
+
+    private Portfolio portfolio;
+    private String[] tickers;
+    private final AtomicInteger writerIds = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        portfolio = new Portfolio();
+        int tickerCount = Math.max(WRITERS, positions / 3);
+        tickers = new String[tickerCount];
+        for (int i = 0; i < tickerCount; i++) {
+            tickers[i] = "T" + i;
+            portfolio.addPosition(new Position(new Security(tickers[i]), new BigDecimal(10 + i % 90)));
+            portfolio.addPosition(new Position(new Security(tickers[i], SecurityType.CALL_OPTION,
+                    new BigDecimal("100"), new BigDecimal("0.25")), new BigDecimal("5")));
+            portfolio.addPosition(new Position(new Security(tickers[i], SecurityType.PUT_OPTION,
+                    new BigDecimal("90"), new BigDecimal("0.25")), new BigDecimal("-3")));
+            portfolio.updatePrice(tickers[i], new BigDecimal("100.00"));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private int id = -1;
+        private int next;
+        private long tick;
+    }
+
+    @State(Scope.Thread)
+    public static class Structure {
+        private long counter;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(WRITERS)
+    public void tick(Writer writer) {
+        if (writer.id < 0) {
+            writer.id = writerIds.getAndIncrement() % WRITERS;
+            writer.next = writer.id;
+        }
+        // Writers own disjoint tickers, so every ticker has a single writer
+        String ticker = tickers[writer.next];
+        writer.next += WRITERS;
+        if (writer.next >= tickers.length) {
+            writer.next = writer.id;
+        }
+        portfolio.updatePrice(ticker, BigDecimal.valueOf(9000 + (writer.tick++ % 2000), 2));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public void restructure(Structure structure) {
+        long n = structure.counter++;
+        Security security = new Security("N" + (n % 64));
+        switch ((int) (n % 3)) {
+            case 0:
+                portfolio.addPosition(new Position(security, BigDecimal.ONE, new BigDecimal("20.00")));
+                break;
+            case 1:
+                // Merges into the existing position while ticks keep pricing the book
+                portfolio.addPosition(new Position(new Security(tickers[(int) (n % tickers.length)]), BigDecimal.ONE));
+                break;
+            default:
+                portfolio.removePosition(security);
+                break;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public BigDecimal snapshot() {
+        PortfolioSnapshot snapshot = portfolio.snapshot();
+        List<PositionState> rows = snapshot.getPositions();
+        Map<String, BigDecimal> tickerPrices = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (PositionState row : rows) {
+            Security security = row.getSecurity();
+            BigDecimal expected = row.getQuantity().multiply(row.getMarketPrice());
+            if (security.getType() != SecurityType.STOCK) {
+                expected = expected.multiply(CONTRACT_SIZE);
+            }
+            if (expected.compareTo(row.getMarketValue()) != 0) {
+                throw new IllegalStateException("Torn position " + security + ": " + row.getQuantity()
+                        + " x " + row.getMarketPrice() + " != " + row.getMarketValue());
+            }
+            BigDecimal seen = tickerPrices.putIfAbsent(security.getTicker(), row.getMarketPrice());
+            if (seen != null && seen.compareTo(row.getMarketPrice()) != 0) {
+                throw new IllegalStateException("Ticker " + security.getTicker() + " at two ticks: "
+                        + seen + " and " + row.getMarketPrice());
+            }
+            total = total.add(row.getMarketValue());
+        }
+        if (total.compareTo(snapshot.getTotalValue()) != 0) {
+            throw new IllegalStateException("Total " + snapshot.getTotalValue() + " != sum of rows " + total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,44 @@
+package com.trading.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PositionBenchmark {
+    private Position stock;
+    private Position option;
+
+    @Setup
+    public void setUp() {
+        stock = new Position(new Security("AAPL"), new BigDecimal("100"));
+        stock.updatePrice(new BigDecimal("182.35"));
+        option = new Position(new Security("AAPL", SecurityType.CALL_OPTION,
+                new BigDecimal("180"), new BigDecimal("0.25")), new BigDecimal("10"));
+        option.updatePrice(new BigDecimal("12.3456"));
+    }
+
+    @Benchmark
+    public BigDecimal stockMarketValue() {
+        return stock.getMarketValue();
+    }
+
+    @Benchmark
+    public BigDecimal optionMarketValue() {
+        return option.getMarketValue();
+    }
+
+    @Benchmark
+    public BigDecimal optionCalculateMarketValue() {
+        return option.calculateMarketValue();
+    }
+}
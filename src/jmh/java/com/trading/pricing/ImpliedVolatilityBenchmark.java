@@ -0,0 +1,93 @@
+package com.trading.pricing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implied volatility solves per second over a batch of random quotes (log-moneyness
+ * +-0.7, 0.01-3 years, vols 5-150%), against bisection to 60 halvings. Accuracy of the
+ * batch solver against the true vols and against bisection is printed after the trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImpliedVolatilityBenchmark {
+    private static final int BATCH = 10_000;
+    private static final int BISECTION_ITERATIONS = 60;
+
+    private final double[] prices = new double[BATCH];
+    private final double[] spots = new double[BATCH];
+    private final double[] strikes = new double[BATCH];
+    private final double[] maturities = new double[BATCH];
+    private final boolean[] calls = new boolean[BATCH];
+    private final double[] trueVols = new double[BATCH];
+    private final double[] vols = new double[BATCH];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < BATCH; i++) {
+            spots[i] = 100.0;
+            strikes[i] = 100.0 * Math.exp(random.nextDouble(-0.7, 0.7));
+            maturities[i] = random.nextDouble(0.01, 3.0);
+            trueVols[i] = random.nextDouble(0.05, 1.5);
+            calls[i] = random.nextBoolean();
+            prices[i] = OptionPriceCalculator.calculateOptionPrice(spots[i], strikes[i], maturities[i],
+                    trueVols[i], calls[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reportAccuracy() {
+        int solved = ImpliedVolatility.solve(prices, spots, strikes, maturities, calls, vols);
+        double maxPriceError = 0.0;
+        double maxBisectionGap = 0.0;
+        for (int i = 0; i < BATCH; i++) {
+            if (Double.isNaN(vols[i])) {
+                continue;
+            }
+            double repriced = OptionPriceCalculator.calculateOptionPrice(spots[i], strikes[i], maturities[i],
+                    vols[i], calls[i]);
+            maxPriceError = Math.max(maxPriceError, Math.abs(repriced - prices[i]));
+            // Only where the price actually pins the vol down
+            double bumped = OptionPriceCalculator.calculateOptionPrice(spots[i], strikes[i], maturities[i],
+                    trueVols[i] * 1.01, calls[i]);
+            if (bumped - prices[i] > 1e-6) {
+                double bisected = ImpliedVolatility.bisect(prices[i], spots[i], strikes[i], maturities[i], calls[i],
+                        BISECTION_ITERATIONS);
+                maxBisectionGap = Math.max(maxBisectionGap, Math.abs(bisected - vols[i]));
+            }
+        }
+        System.out.printf("%nSolved %d of %d; max repricing error %.2e; max gap to bisection %.2e%n",
+                solved, BATCH, maxPriceError, maxBisectionGap);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double[] batchSolve() {
+        ImpliedVolatility.solve(prices, spots, strikes, maturities, calls, vols);
+        return vols;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double bisection() {
+        double sum = 0.0;
+        for (int i = 0; i < BATCH; i++) {
+            sum += ImpliedVolatility.bisect(prices[i], spots[i], strikes[i], maturities[i], calls[i],
+                    BISECTION_ITERATIONS);
+        }
+        return sum;
+    }
+}
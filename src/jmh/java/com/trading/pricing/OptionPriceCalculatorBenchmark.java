@@ -0,0 +1,77 @@
+package com.trading.pricing;
+
+import com.trading.model.SecurityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OptionPriceCalculatorBenchmark {
+    private static final int CHAIN_SIZE = 64;
+
+    private BigDecimal spot;
+    private BigDecimal strike;
+    private BigDecimal timeToMaturity;
+    private BigDecimal volatility;
+
+    // Non-final copies of the same inputs, so the JIT cannot fold the primitive paths
+    private double spotValue;
+    private double strikeValue;
+    private double timeToMaturityValue;
+    private double volatilityValue;
+
+    private OptionChainPricer chainPricer;
+    private double[] chainPrices;
+
+    @Setup
+    public void setUp() {
+        spot = new BigDecimal("182.35");
+        strike = new BigDecimal("180.00");
+        timeToMaturity = new BigDecimal("0.2500");
+        volatility = new BigDecimal("0.30");
+        spotValue = spot.doubleValue();
+        strikeValue = strike.doubleValue();
+        timeToMaturityValue = timeToMaturity.doubleValue();
+        volatilityValue = volatility.doubleValue();
+
+        double[] strikes = new double[CHAIN_SIZE];
+        double[] maturities = new double[CHAIN_SIZE];
+        double[] vols = new double[CHAIN_SIZE];
+        boolean[] calls = new boolean[CHAIN_SIZE];
+        for (int i = 0; i < CHAIN_SIZE; i++) {
+            strikes[i] = 150 + (i / 2) * 2.5;
+            maturities[i] = 0.25 * (1 + i / 16);
+            vols[i] = 0.30;
+            calls[i] = i % 2 == 0;
+        }
+        chainPricer = new OptionChainPricer(strikes, maturities, vols, calls);
+        chainPrices = new double[CHAIN_SIZE];
+    }
+
+    @Benchmark
+    public BigDecimal calculateOptionPrice() {
+        return OptionPriceCalculator.calculateOptionPrice(spot, strike, timeToMaturity, volatility,
+                SecurityType.CALL_OPTION);
+    }
+
+    @Benchmark
+    public double calculateOptionPricePrimitive() {
+        return OptionPriceCalculator.calculateOptionPrice(spotValue, strikeValue, timeToMaturityValue,
+                volatilityValue, true);
+    }
+
+    @Benchmark
+    public double[] priceChain() {
+        chainPricer.price(spotValue, chainPrices);
+        return chainPrices;
+    }
+}
@@ -0,0 +1,77 @@
+package com.trading.risk;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-day VaR of a 10k-position book (50 underlyings, 199 options each) at 100k
+ * scenarios, on one thread and on every core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class MonteCarloVaRBenchmark {
+    private static final int UNDERLYINGS = 50;
+    private static final int POSITIONS_PER_UNDERLYING = 200;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private List<Position> positions;
+    private MarketModel model;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positions = new ArrayList<>();
+        Map<String, BigDecimal> spots = new HashMap<>();
+        for (int u = 0; u < UNDERLYINGS; u++) {
+            String ticker = "T" + u;
+            spots.put(ticker, new BigDecimal("100.00"));
+            positions.add(new Position(new Security(ticker), new BigDecimal(1000), new BigDecimal("100.00")));
+            for (int i = 1; i < POSITIONS_PER_UNDERLYING; i++) {
+                SecurityType type = i % 2 == 0 ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION;
+                Security option = new Security(ticker, type, new BigDecimal(60 + (i / 2) * 0.8),
+                        new BigDecimal(0.1 + (i % 7) * 0.15), new BigDecimal("0.05"), new BigDecimal("0.30"));
+                positions.add(new Position(option, new BigDecimal(i % 3 == 0 ? -10 : 5), new BigDecimal("5.00")));
+            }
+        }
+        model = MarketModel.fromPositions(positions, spots, 0.4);
+        pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public VaRResult oneDayVaR() {
+        return new MonteCarloVaR(pool).calculate(positions, model, VaRSettings.daily(42));
+    }
+}
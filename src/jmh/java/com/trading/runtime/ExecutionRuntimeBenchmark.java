@@ -0,0 +1,113 @@
+package com.trading.runtime;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs {@code subscribers} periodic valuation jobs for a few seconds, either with one
+ * single-thread scheduler each (the old per-subscriber model) or on a shared
+ * {@link ExecutionRuntime}, and reports live threads, heap and wakeup jitter.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class ExecutionRuntimeBenchmark {
+    private static final long PERIOD_MILLIS = 100;
+    private static final long RUN_MILLIS = 3000;
+
+    @State(Scope.Benchmark)
+    public static class Config {
+        @Param({"10000"})
+        public int subscribers;
+
+        @Param({"dedicated", "shared", "shared-virtual"})
+        public String model;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Metrics {
+        public long threads;
+        public long heapUsedMb;
+        public long maxJitterMicros;
+        public long meanJitterMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threads = 0;
+            heapUsedMb = 0;
+            maxJitterMicros = 0;
+            meanJitterMicros = 0;
+        }
+    }
+
+    @Benchmark
+    public void periodicSubscribers(Config config, Metrics metrics) throws InterruptedException {
+        AtomicLong maxJitter = new AtomicLong();
+        LongAdder totalJitter = new LongAdder();
+        LongAdder wakeups = new LongAdder();
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLIS);
+
+        List<ScheduledExecutorService> executors = new ArrayList<>();
+        List<ExecutionRuntime.ScheduledJob> jobs = new ArrayList<>();
+        ExecutionRuntime runtime = config.model.startsWith("shared")
+                ? new ExecutionRuntime("bench", Runtime.getRuntime().availableProcessors(),
+                    config.model.endsWith("virtual"))
+                : null;
+
+        for (int i = 0; i < config.subscribers; i++) {
+            long[] expected = {0};
+            Runnable job = () -> {
+                long now = System.nanoTime();
+                if (expected[0] != 0) {
+                    long jitter = Math.abs(now - expected[0]) / 1000;
+                    totalJitter.add(jitter);
+                    wakeups.increment();
+                    maxJitter.accumulateAndGet(jitter, Math::max);
+                }
+                expected[0] = now + periodNanos;
+            };
+            if (runtime != null) {
+                jobs.add(runtime.schedulePeriodic(job, PERIOD_MILLIS, TimeUnit.MILLISECONDS));
+            } else {
+                ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+                executor.scheduleAtFixedRate(job, 0, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                executors.add(executor);
+            }
+        }
+
+        Thread.sleep(RUN_MILLIS);
+
+        metrics.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        Runtime jvm = Runtime.getRuntime();
+        metrics.heapUsedMb = (jvm.totalMemory() - jvm.freeMemory()) / (1024 * 1024);
+        metrics.maxJitterMicros = maxJitter.get();
+        metrics.meanJitterMicros = wakeups.sum() == 0 ? 0 : totalJitter.sum() / wakeups.sum();
+
+        jobs.forEach(ExecutionRuntime.ScheduledJob::close);
+        executors.forEach(ScheduledExecutorService::shutdownNow);
+        if (runtime != null) {
+            runtime.shutdown();
+        }
+    }
+}
@@ -1,45 +1,280 @@
 package com.trading;
 
+import com.trading.account.AccountManager;
+import com.trading.io.AccountSnapshotStore;
 import com.trading.io.CSVPositionReader;
+import com.trading.io.MappedCSVPositionReader;
+import com.trading.master.SecurityMaster;
+import com.trading.market.ConflatingDispatcher;
+import com.trading.market.JournalingMarketDataProvider;
+import com.trading.market.MarketDataProvider;
 import com.trading.market.MockMarketDataProvider;
+import com.trading.market.ReplayMarketDataProvider;
+import com.trading.market.TickJournal;
+import com.trading.metrics.TradingMetrics;
 import com.trading.model.Account;
 import com.trading.model.Portfolio;
 import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import com.trading.portfolio.FirmValuationService;
+import com.trading.portfolio.MaturityScheduler;
 import com.trading.portfolio.PortfolioSubscriber;
+import com.trading.report.RollingFileSink;
+import com.trading.report.SocketSink;
+import com.trading.report.ValuationPublisher;
+import com.trading.report.ValuationSink;
+import com.trading.runtime.ExecutionRuntime;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Clock;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class App {
+    private static final String ACCOUNT_ID = "ACC001";
+
     public static void main(String[] args) {
-        try {
-            // Read positions from CSV in resources
-            CSVPositionReader reader = new CSVPositionReader();
-            List<Position> positions = reader.readPositions("/positions.csv");
+        // A recorded tick file to replay instead of the mock feed, for comparable runs
+        String replaySource = System.getProperty("trading.replay");
+        // One clock for the readers' times to maturity and the scheduler's expiry cut-offs
+        Clock clock = Clock.systemDefaultZone();
+
+        try (SecurityMaster securityMaster = new SecurityMaster()) {
+            // Load per-ticker reference data into the security master
+            securityMaster.loadCsv("/securities.csv");
+            ExecutionRuntime.ScheduledJob masterRefresh = ExecutionRuntime.shared()
+                    .schedulePeriodic(() -> refreshSecurityMaster(securityMaster), 60, TimeUnit.SECONDS);
+
+            // Warm restart from the latest snapshot, before the feed connects
+            AccountManager accountManager = new AccountManager();
+            AccountSnapshotStore snapshotStore = new AccountSnapshotStore(
+                    Paths.get(System.getProperty("trading.snapshotDir", "snapshots")));
+            // Replay runs always start from the position file so two builds see the same state
+            int restored = replaySource == null ? snapshotStore.restoreLatest(accountManager) : -1;
+            if (restored >= 0) {
+                System.out.println("Restored " + restored + " positions from snapshot");
+            }
 
             // Create account with portfolio
-            Account account = new Account("ACC001", "Demo Account");
+            Account account = accountManager.getAccount(ACCOUNT_ID);
+            if (account == null) {
+                account = accountManager.createAccount(ACCOUNT_ID, "Demo Account");
+            }
             Portfolio portfolio = account.getPortfolio();
 
-            // Add positions to portfolio
-            positions.forEach(portfolio::addPosition);
+            if (restored < 0 && args.length > 0) {
+                // Stream a position file from disk straight into the portfolio
+                new MappedCSVPositionReader(securityMaster, clock).readPositions(Paths.get(args[0]),
+                        portfolio::addPosition);
+            } else if (restored < 0) {
+                // Read positions from CSV in resources
+                CSVPositionReader reader = new CSVPositionReader(SecurityRegistry.shared(), securityMaster, clock);
+                List<Position> resourcePositions = reader.readPositions("/positions.csv");
+                resourcePositions.forEach(portfolio::addPosition);
+            }
+            List<Position> positions = portfolio.getPositions();
 
             // Create market data provider
-            MockMarketDataProvider marketDataProvider = new MockMarketDataProvider();
+            MarketDataProvider feed;
+            ReplayMarketDataProvider replay = null;
+            if (replaySource != null) {
+                double speed = Double.parseDouble(System.getProperty("trading.replaySpeed",
+                        String.valueOf(ReplayMarketDataProvider.MAX_SPEED)));
+                replay = new ReplayMarketDataProvider(Paths.get(replaySource), speed);
+                feed = replay;
+            } else {
+                MockMarketDataProvider marketDataProvider = new MockMarketDataProvider();
+                marketDataProvider.setSecurityMaster(securityMaster);
+                positions.stream()
+                        .filter(position -> position.getSecurity().getType() == SecurityType.STOCK)
+                        .forEach(position -> marketDataProvider.configureTicker(position.getSecurity()));
+                feed = marketDataProvider;
+            }
+
+            // Optionally record every received price for later replay
+            String journalDir = System.getProperty("trading.journalDir");
+            TickJournal journal = journalDir != null ? new TickJournal(Paths.get(journalDir)) : null;
+            if (journal != null) {
+                feed = new JournalingMarketDataProvider(feed, journal);
+            }
+
+            // Decouple feed ingestion from valuation with a conflating dispatch stage
+            ConflatingDispatcher dispatcher = new ConflatingDispatcher(feed);
+
+            // Bring times to maturity up to date (a snapshot may be days old) before pricing starts
+            // Firm mode values every account from one subscription per ticker instead of one subscriber
+            boolean firmValuation = Boolean.getBoolean("trading.firmValuation");
+            MaturityScheduler maturityScheduler = new MaturityScheduler(clock);
+            if (firmValuation) {
+                accountManager.getAllAccounts().forEach(each -> maturityScheduler.addPortfolio(each.getPortfolio()));
+            } else {
+                maturityScheduler.addPortfolio(portfolio);
+            }
+            maturityScheduler.recompute();
+
+            ValuationPublisher reportPublisher = createReportPublisher(System.getProperty("trading.report"));
+            PortfolioSubscriber subscriber = null;
+            FirmValuationService firm = null;
+            ExecutionRuntime.ScheduledJob firmReport = null;
+            if (firmValuation) {
+                firm = new FirmValuationService(accountManager, dispatcher);
+                firm.start();
+                maturityScheduler.addListener(firm::refreshContracts);
+                firmReport = scheduleFirmReport(firm);
+            } else {
+                // Create and start portfolio subscriber with account
+                subscriber = new PortfolioSubscriber(account, dispatcher);
+                if (reportPublisher != null) {
+                    subscriber.setValuationPublisher(reportPublisher);
+                }
+                subscriber.setChangedRowsOnly(Boolean.getBoolean("trading.reportChangedOnly"));
+                subscriber.start();
+                maturityScheduler.addListener(subscriber::refreshContracts);
+            }
 
-            // Create and start portfolio subscriber with account
-            PortfolioSubscriber subscriber = new PortfolioSubscriber(account, marketDataProvider);
-            subscriber.start();
+            // Refreshed definitions reach the interned securities; options whose sigma or contract
+            // size moved are revalued and repriced
+            Consumer<List<Security>> refreshContracts = firm != null ? firm::refreshContracts
+                    : subscriber::refreshContracts;
+            securityMaster.addListener(definitions -> {
+                List<Security> changed = SecurityMaster.applyDefinitions(SecurityRegistry.shared(), definitions);
+                if (!changed.isEmpty()) {
+                    refreshContracts.accept(changed);
+                }
+            });
 
-            // Keep the application running
-            System.out.println("Press Enter to exit...");
-            System.in.read();
+            // Re-time options at each day roll, or every N minutes for intraday decay
+            long recomputeMinutes = Long.getLong("trading.maturityRecomputeMinutes", 0);
+            ExecutionRuntime.ScheduledJob maturityJob = recomputeMinutes > 0
+                    ? maturityScheduler.schedule(ExecutionRuntime.shared(), recomputeMinutes, TimeUnit.MINUTES)
+                    : maturityScheduler.scheduleDayRoll(ExecutionRuntime.shared(), 1, TimeUnit.MINUTES,
+                            () -> System.out.println("Day roll: re-timed " + maturityScheduler.getLastChanged()
+                                    + " options, " + maturityScheduler.getExpiredOptions() + " expired"));
+
+            // Expose latency histograms, tick counts, listener counts and queue depths
+            TradingMetrics metrics = TradingMetrics.shared();
+            registerGauges(metrics, feed, dispatcher, subscriber,
+                    reportPublisher != null ? reportPublisher : ValuationPublisher.console());
+            metrics.registerMBeans();
+            ExecutionRuntime.ScheduledJob metricsDump = metrics.scheduleLogDump(ExecutionRuntime.shared(), 60, TimeUnit.SECONDS);
+
+            ExecutionRuntime.ScheduledJob snapshots = null;
+            if (replay != null) {
+                awaitReplay(replay, dispatcher, portfolio);
+            } else {
+                snapshots = snapshotStore.schedule(accountManager, ExecutionRuntime.shared(), 30, TimeUnit.SECONDS);
+
+                // Keep the application running
+                System.out.println("Press Enter to exit...");
+                System.in.read();
+            }
 
             // Clean up
-            subscriber.stop();
-        } catch (IOException e) {
+            metricsDump.close();
+            maturityJob.close();
+            if (subscriber != null) {
+                subscriber.stop();
+            }
+            if (firm != null) {
+                firmReport.close();
+                firm.stop();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+            if (reportPublisher != null) {
+                reportPublisher.close();
+            }
+            if (snapshots != null) {
+                snapshots.close();
+                snapshotStore.write(accountManager);
+            }
+            masterRefresh.close();
+        } catch (IOException | SQLException e) {
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits for the replay to finish and the dispatcher to drain, then reports final values
+    private static void awaitReplay(ReplayMarketDataProvider replay, ConflatingDispatcher dispatcher,
+                                    Portfolio portfolio) throws InterruptedException {
+        while (!replay.awaitCompletion(1, TimeUnit.SECONDS)) {
+            System.out.printf("Replaying... %.0f ticks/sec%n", replay.getTicksPerSecond());
+        }
+        // The last ticks may still be in their listeners after the ring has emptied
+        while (!dispatcher.awaitQuiescence(1, TimeUnit.SECONDS)) {
+            System.out.println("Waiting for " + dispatcher.getQueueDepth() + " queued updates...");
+        }
+
+        System.out.printf("Replayed %d ticks at %.0f ticks/sec%n", replay.getTickCount(), replay.getTicksPerSecond());
+        for (Position position : portfolio.getPositions()) {
+            BigDecimal price = position.getMarketPrice();
+            System.out.println(position.getSecurity() + " price=" + price + " value=" + position.getMarketValue());
+        }
+        System.out.println("Final portfolio value: $" + portfolio.recomputeTotalValue());
+    }
+
+    // Re-aggregates the accounts ticked since the last report and prints the firm total
+    private static ExecutionRuntime.ScheduledJob scheduleFirmReport(FirmValuationService firm) {
+        return ExecutionRuntime.shared().schedulePeriodic(() -> {
+            int refreshed = firm.refreshDirtyAccounts();
+            System.out.println("Firm value: $" + firm.getFirmTotalValue() + " (" + refreshed + " accounts refreshed)");
+        }, 3, TimeUnit.SECONDS);
+    }
+
+    private static void registerGauges(TradingMetrics metrics, MarketDataProvider feed,
+                                       ConflatingDispatcher dispatcher, PortfolioSubscriber subscriber,
+                                       ValuationPublisher publisher) {
+        metrics.registerGauge("feed.listeners", feed::getListenerCount);
+        metrics.registerGauge("dispatcher.listeners", dispatcher::getListenerCount);
+        metrics.registerGauge("dispatcher.queueDepth", dispatcher::getQueueDepth);
+        for (int i = 0; i < dispatcher.getConsumerCount(); i++) {
+            int consumer = i;
+            metrics.registerGauge("dispatcher.queueDepth." + i, () -> dispatcher.getQueueDepth(consumer));
+        }
+        metrics.registerGauge("dispatcher.conflated", dispatcher::getConflatedCount);
+        metrics.registerGauge("dispatcher.listenerFailures", dispatcher::getListenerFailureCount);
+        if (subscriber != null) {
+            metrics.registerGauge("portfolio.driftChecks", subscriber::getDriftCheckCount);
+            metrics.registerGauge("portfolio.lastDriftCents", subscriber::getLastDriftCents);
+        }
+        metrics.registerGauge("valuation.queueDepth", publisher::getQueueDepth);
+        metrics.registerGauge("valuation.dropped", publisher::getDroppedCount);
+    }
+
+    // Valuation report destination: "file:<path>" or "socket:<port>"; null keeps the console
+    private static ValuationPublisher createReportPublisher(String target) throws IOException {
+        ValuationSink sink;
+        if (target == null || target.equals("console")) {
+            return null;
+        } else if (target.startsWith("file:")) {
+            sink = new RollingFileSink(Paths.get(target.substring("file:".length())), 10L * 1024 * 1024, 5);
+        } else if (target.startsWith("socket:")) {
+            sink = new SocketSink(Integer.parseInt(target.substring("socket:".length())));
+        } else {
+            throw new IllegalArgumentException("Unknown report target: " + target);
+        }
+        return new ValuationPublisher(sink, 4, ValuationPublisher.OverflowPolicy.COALESCE);
+    }
+
+    // Picks up definitions changed in the security master since the last refresh
+    private static void refreshSecurityMaster(SecurityMaster securityMaster) {
+        try {
+            int changed = securityMaster.refresh();
+            if (changed > 0) {
+                System.out.println("Security master refreshed " + changed + " definitions");
+            }
+        } catch (SQLException e) {
+            System.err.println("Security master refresh failed: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -17,6 +17,11 @@ public class AccountManager {
         return account;
     }
 
+    // Registers an existing account, e.g. one restored from a snapshot
+    public void addAccount(Account account) {
+        accounts.put(account.getAccountId(), account);
+    }
+
     public Account getAccount(String accountId) {
         return accounts.get(accountId);
     }
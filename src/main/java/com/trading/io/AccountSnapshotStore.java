@@ -0,0 +1,413 @@
+package com.trading.io;
+
+import com.trading.account.AccountManager;
+import com.trading.model.Account;
+import com.trading.model.OptionExpiry;
+import com.trading.model.Position;
+import com.trading.model.PositionState;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import com.trading.runtime.ExecutionRuntime;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of an {@link AccountManager} for warm restarts.
+ * <p>
+ * A snapshot holds every account with its cash and positions, the last market price of
+ * each position and a table of the securities they refer to. It is written to a temporary
+ * file through a memory-mapped buffer and renamed into place, so a crash mid-write never
+ * replaces the previous snapshot. Positions are read without locking, so writing does not
+ * pause the tick path; a price that moves during the write is caught by the next snapshot.
+ * <p>
+ * Layout (big-endian): magic, format version, creation time, security table, accounts with
+ * their positions referencing securities by table index, then a CRC32 of all preceding bytes.
+ */
+public class AccountSnapshotStore {
+    public static final int FORMAT_VERSION = 2;
+    // Version 1 had no expiry date; it is derived from the expiry month and year on restore
+    private static final int MIN_FORMAT_VERSION = 1;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+    private static final int MAGIC = 0x504D5353; // "PMSS"
+    private static final String PREFIX = "accounts-";
+    private static final String SUFFIX = ".snapshot";
+    private static final int DEFAULT_RETAINED = 2;
+
+    private final Path directory;
+    private final SecurityRegistry registry;
+    private final int retained;
+    private long lastSequence = -1;
+
+    public AccountSnapshotStore(Path directory) {
+        this(directory, SecurityRegistry.shared(), DEFAULT_RETAINED);
+    }
+
+    /**
+     * @param registry interns restored securities, so restored positions share instances with later reads
+     * @param retained number of snapshots kept on disk; older ones are deleted after each write
+     */
+    public AccountSnapshotStore(Path directory, SecurityRegistry registry, int retained) {
+        if (retained < 1) {
+            throw new IllegalArgumentException("At least one snapshot must be retained");
+        }
+        this.directory = directory;
+        this.registry = registry;
+        this.retained = retained;
+    }
+
+    /**
+     * Writes a snapshot of every account and returns its path.
+     */
+    public synchronized Path write(AccountManager accountManager) throws IOException {
+        Files.createDirectories(directory);
+
+        // Capture the state first so the buffer is sized for exactly what gets written
+        List<Account> accounts = accountManager.getAllAccounts();
+        Map<Security, Integer> securityIndex = new HashMap<>();
+        List<byte[]> securities = new ArrayList<>();
+        List<AccountState> states = new ArrayList<>(accounts.size());
+        long size = 4 + 4 + 8 + 4 + 4 + 8;
+        for (Account account : accounts) {
+            AccountState state = new AccountState(account);
+            size += state.size();
+            PositionState[] positions = state.positions;
+            for (int i = 0; i < positions.length; i++) {
+                Security security = positions[i].getSecurity();
+                Integer index = securityIndex.get(security);
+                if (index == null) {
+                    index = securities.size();
+                    securityIndex.put(security, index);
+                    byte[] encoded = encodeSecurity(security);
+                    securities.add(encoded);
+                    size += encoded.length;
+                }
+                state.securityIndices[i] = index;
+            }
+            states.add(state);
+        }
+
+        long sequence = Math.max(System.currentTimeMillis(), lastSequence + 1);
+        Path target = directory.resolve(PREFIX + sequence + SUFFIX);
+        Path temp = directory.resolve(PREFIX + sequence + SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putLong(System.currentTimeMillis());
+
+            buffer.putInt(securities.size());
+            for (byte[] security : securities) {
+                buffer.put(security);
+            }
+
+            buffer.putInt(states.size());
+            for (AccountState state : states) {
+                state.write(buffer);
+            }
+
+            int checksumOffset = buffer.position();
+            buffer.putLong(checksum(buffer, checksumOffset));
+            buffer.force();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSequence = sequence;
+        deleteOlderSnapshots();
+        return target;
+    }
+
+    /**
+     * Restores the newest readable snapshot into {@code accountManager}, which is expected
+     * to be empty, and returns the number of positions restored, or -1 if there is no
+     * snapshot. A snapshot with a bad checksum or unknown version is skipped in favour of
+     * the next older one.
+     */
+    public int restoreLatest(AccountManager accountManager) throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path snapshot = snapshots.get(i);
+            try {
+                return restore(snapshot, accountManager);
+            } catch (IOException e) {
+                System.err.println("Skipping snapshot " + snapshot.getFileName() + ": " + e.getMessage());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Restores one snapshot file and returns the number of positions restored. Nothing is
+     * added to {@code accountManager} unless the whole file validates.
+     */
+    public int restore(Path snapshot, AccountManager accountManager) throws IOException {
+        List<Account> accounts = new ArrayList<>();
+        int positionCount = 0;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 + 4 + 8 + 8 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int checksumOffset = (int) size - 8;
+            if (buffer.getLong(checksumOffset) != checksum(buffer, checksumOffset)) {
+                throw new IOException("Checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file");
+            }
+            int version = buffer.getInt();
+            if (version < MIN_FORMAT_VERSION || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            buffer.getLong(); // Creation time
+
+            Security[] securities = new Security[buffer.getInt()];
+            for (int i = 0; i < securities.length; i++) {
+                securities[i] = registry.intern(getSecurity(buffer, version));
+            }
+
+            int accountCount = buffer.getInt();
+            for (int i = 0; i < accountCount; i++) {
+                Account account = new Account(getString(buffer), getString(buffer));
+                account.setCashBalance(getDecimal(buffer));
+                account.setCreatedAt(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC));
+                account.setStatus(Account.AccountStatus.values()[buffer.get()]);
+
+                int positions = buffer.getInt();
+                for (int j = 0; j < positions; j++) {
+                    Security security = securities[buffer.getInt()];
+                    BigDecimal quantity = getDecimal(buffer);
+                    BigDecimal marketPrice = getDecimal(buffer);
+                    account.getPortfolio().addPosition(new Position(security, quantity, marketPrice));
+                }
+                positionCount += positions;
+                accounts.add(account);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot " + snapshot.getFileName(), e);
+        }
+
+        accounts.forEach(accountManager::addAccount);
+        return positionCount;
+    }
+
+    /**
+     * Writes a snapshot every {@code period} on the runtime's scheduler.
+     */
+    public ExecutionRuntime.ScheduledJob schedule(AccountManager accountManager, ExecutionRuntime runtime,
+                                                  long period, TimeUnit unit) {
+        return runtime.schedulePeriodic(() -> {
+            try {
+                write(accountManager);
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot: " + e.getMessage());
+            }
+        }, period, unit);
+    }
+
+    /**
+     * One account's fields and positions, read once as a portfolio snapshot so sizing and
+     * writing agree even while ticks keep updating prices.
+     */
+    private static final class AccountState {
+        private final Account account;
+        private final BigDecimal cashBalance;
+        private final PositionState[] positions;
+        private final int[] securityIndices;
+
+        private AccountState(Account account) {
+            this.account = account;
+            this.cashBalance = account.getCashBalance();
+            this.positions = account.getPortfolio().snapshot().getPositions().toArray(new PositionState[0]);
+            this.securityIndices = new int[positions.length];
+        }
+
+        private long size() {
+            long size = sizeOf(account.getAccountId()) + sizeOf(account.getAccountName()) + sizeOf(cashBalance)
+                    + 8 + 4 + 1 + 4;
+            for (int i = 0; i < positions.length; i++) {
+                size += 4 + sizeOf(positions[i].getQuantity()) + sizeOf(positions[i].getMarketPrice());
+            }
+            return size;
+        }
+
+        private void write(ByteBuffer buffer) {
+            putString(buffer, account.getAccountId());
+            putString(buffer, account.getAccountName());
+            putDecimal(buffer, cashBalance);
+            LocalDateTime createdAt = account.getCreatedAt();
+            buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(createdAt.getNano());
+            buffer.put((byte) account.getStatus().ordinal());
+
+            buffer.putInt(positions.length);
+            for (int i = 0; i < positions.length; i++) {
+                buffer.putInt(securityIndices[i]);
+                putDecimal(buffer, positions[i].getQuantity());
+                putDecimal(buffer, positions[i].getMarketPrice());
+            }
+        }
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            entries.forEach(snapshots::add);
+        }
+        snapshots.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return snapshots;
+    }
+
+    private static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void deleteOlderSnapshots() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - retained; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    // Security: ticker, type, strike, maturity, mu, sigma, contract size, expiry month and year (0 if none),
+    // expiry date as an epoch day (NO_EXPIRY if none)
+    private static byte[] encodeSecurity(Security security) {
+        String ticker = security.getTicker();
+        BigDecimal[] decimals = {security.getStrike(), security.getTimeToMaturity(), security.getMu(),
+                security.getSigma(), security.getContractSize()};
+        Month month = security.getExpirationMonth();
+        Integer year = security.getExpirationYear();
+
+        LocalDate expiry = security.getExpirationDate();
+
+        long size = sizeOf(ticker) + 1 + 1 + 4 + 8;
+        for (BigDecimal decimal : decimals) {
+            size += sizeOf(decimal);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        putString(buffer, ticker);
+        buffer.put((byte) security.getType().ordinal());
+        for (BigDecimal decimal : decimals) {
+            putDecimal(buffer, decimal);
+        }
+        buffer.put((byte) (month != null ? month.getValue() : 0));
+        buffer.putInt(year != null ? year : 0);
+        buffer.putLong(expiry != null ? expiry.toEpochDay() : NO_EXPIRY);
+        return buffer.array();
+    }
+
+    private static Security getSecurity(ByteBuffer buffer, int version) {
+        Security security = new Security();
+        security.setTicker(getString(buffer));
+        security.setType(SecurityType.values()[buffer.get()]);
+        security.setStrike(getDecimal(buffer));
+        security.setTimeToMaturity(getDecimal(buffer));
+        security.setMu(getDecimal(buffer));
+        security.setSigma(getDecimal(buffer));
+        security.setContractSize(getDecimal(buffer));
+        int month = buffer.get();
+        int year = buffer.getInt();
+        security.setExpirationMonth(month != 0 ? Month.of(month) : null);
+        security.setExpirationYear(year != 0 ? year : null);
+        if (version >= 2) {
+            long epochDay = buffer.getLong();
+            security.setExpirationDate(epochDay != NO_EXPIRY ? LocalDate.ofEpochDay(epochDay) : null);
+        } else if (month != 0 && year != 0) {
+            security.setExpirationDate(OptionExpiry.monthlyExpiry(year, Month.of(month)));
+        }
+        return security;
+    }
+
+    private static long sizeOf(String value) {
+        return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Decimal: scale, unscaled length, unscaled two's complement bytes
+    private static long sizeOf(BigDecimal value) {
+        return 4 + 1 + value.unscaledValue().bitLength() / 8 + 1;
+    }
+
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        buffer.putInt(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            // Common case: write the long's significant bytes without allocating
+            long bits = unscaled.longValue();
+            int length = unscaled.bitLength() / 8 + 1;
+            buffer.put((byte) length);
+            for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+                buffer.put((byte) (bits >> shift));
+            }
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        int length = buffer.get() & 0xff;
+        if (length <= 8) {
+            long bits = buffer.get(); // Sign-extends the leading byte
+            for (int i = 1; i < length; i++) {
+                bits = bits << 8 | (buffer.get() & 0xff);
+            }
+            return BigDecimal.valueOf(bits, scale);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+}
@@ -2,18 +2,20 @@ package com.trading.io;
 
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
+import com.trading.master.SecurityMaster;
+import com.trading.model.OptionExpiry;
 import com.trading.model.Position;
 import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
 import com.trading.model.SecurityType;
 
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.Month;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,7 +23,6 @@ import java.util.Map;
 
 public class CSVPositionReader {
     private static final Map<String, Month> MONTH_MAP = new HashMap<>();
-    private static final int DECIMAL_PLACES = 4;
 
     static {
         MONTH_MAP.put("JAN", Month.JANUARY);
@@ -38,6 +39,37 @@ public class CSVPositionReader {
         MONTH_MAP.put("DEC", Month.DECEMBER);
     }
 
+    private final SecurityRegistry registry;
+    private final SecurityMaster securityMaster;
+    private final Clock clock;
+
+    public CSVPositionReader() {
+        this(SecurityRegistry.shared());
+    }
+
+    /**
+     * @param registry interns one Security per symbol, so rows naming the same instrument share it
+     */
+    public CSVPositionReader(SecurityRegistry registry) {
+        this(registry, null);
+    }
+
+    /**
+     * @param securityMaster source of per-ticker sigma, mu and contract size, or null for the defaults
+     */
+    public CSVPositionReader(SecurityRegistry registry, SecurityMaster securityMaster) {
+        this(registry, securityMaster, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock date that times to maturity are measured from
+     */
+    public CSVPositionReader(SecurityRegistry registry, SecurityMaster securityMaster, Clock clock) {
+        this.registry = registry;
+        this.securityMaster = securityMaster;
+        this.clock = clock;
+    }
+
     public List<Position> readPositions(String filePath) throws IOException {
         List<Position> positions = new ArrayList<>();
 
@@ -56,34 +88,50 @@ public class CSVPositionReader {
         return positions;
     }
 
-    private Position parsePosition(String[] line) {
+    public Position parsePosition(String[] line) {
         String symbol = line[0].trim();
         BigDecimal quantity = new BigDecimal(line[1].trim());
+        return new Position(registry.intern(symbol, this::parseSecurity), quantity);
+    }
 
+    private Security parseSecurity(String symbol) {
+        Security security = parseSymbol(symbol);
+        return securityMaster != null ? securityMaster.applyDefinition(security) : security;
+    }
+
+    private Security parseSymbol(String symbol) {
         if (symbol.contains("-")) {
             // Parse option
             String[] parts = symbol.split("-");
             String ticker = parts[0];
 
             // Parse expiration date
-            Month month = MONTH_MAP.get(parts[1].toUpperCase());
+            Month month = parseMonth(parts[1]);
             int year = Integer.parseInt(parts[2]);
-            LocalDate maturity = LocalDate.of(year, month, 1);
+            LocalDate maturity = OptionExpiry.monthlyExpiry(year, month);
 
             BigDecimal strike = new BigDecimal(parts[3]);
             SecurityType type = parts[4].equals("C") ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION;
 
-            BigDecimal timeToMaturity = new BigDecimal(ChronoUnit.DAYS.between(LocalDate.now(), maturity))
-                    .divide(new BigDecimal("365"), DECIMAL_PLACES, RoundingMode.HALF_UP);
-            BigDecimal volatility = new BigDecimal("0.30"); // Default volatility of 30%
-            BigDecimal mu = new BigDecimal("0.05"); // Default expected return of 5%
-
-            Security security = new Security(ticker, type, strike, timeToMaturity, mu, volatility, month, year);
-            return new Position(security, quantity);
+            return createOptionSecurity(ticker, type, strike, timeToMaturity(LocalDate.now(clock), maturity), month, year);
         } else {
             // Parse stock
-            Security security = new Security(symbol);
-            return new Position(security, quantity);
+            return new Security(symbol);
         }
     }
-}
\ No newline at end of file
+
+    static Month parseMonth(String code) {
+        return MONTH_MAP.get(code.toUpperCase());
+    }
+
+    static BigDecimal timeToMaturity(LocalDate today, LocalDate maturity) {
+        return OptionExpiry.yearsToExpiry(today, maturity);
+    }
+
+    static Security createOptionSecurity(String ticker, SecurityType type, BigDecimal strike,
+                                         BigDecimal timeToMaturity, Month month, int year) {
+        BigDecimal volatility = new BigDecimal("0.30"); // Default volatility of 30%
+        BigDecimal mu = new BigDecimal("0.05"); // Default expected return of 5%
+        return new Security(ticker, type, strike, timeToMaturity, mu, volatility, month, year);
+    }
+}
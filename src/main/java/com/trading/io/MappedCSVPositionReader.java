@@ -0,0 +1,398 @@
+package com.trading.io;
+
+import com.trading.master.SecurityMaster;
+import com.trading.model.OptionExpiry;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads position files of the {@link CSVPositionReader} format from the filesystem.
+ * <p>
+ * The file is split into fixed-size chunks that are memory-mapped and parsed in parallel
+ * straight from bytes. A chunk owns every line whose first byte falls inside it. Parsed
+ * positions are handed to the caller chunk by chunk in file order, so at most a window
+ * of chunks is held in memory regardless of file size.
+ */
+public class MappedCSVPositionReader {
+    private static final long DEFAULT_CHUNK_BYTES = 8L * 1024 * 1024;
+    // A line running this far past its chunk's end is rejected as malformed
+    private static final int MAX_LINE_BYTES = 4096;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long chunkBytes;
+    private final Clock clock;
+    private final SecurityRegistry registry;
+    private final SecurityMaster securityMaster;
+    // Keyed by date and expiry month, so a reader kept across a day roll follows the clock
+    private final Map<Long, BigDecimal> maturityCache = new ConcurrentHashMap<>();
+
+    public MappedCSVPositionReader() {
+        this(null);
+    }
+
+    /**
+     * @param securityMaster source of per-ticker sigma, mu and contract size, or null for the defaults
+     */
+    public MappedCSVPositionReader(SecurityMaster securityMaster) {
+        this(securityMaster, Clock.systemDefaultZone());
+    }
+
+    public MappedCSVPositionReader(SecurityMaster securityMaster, Clock clock) {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_CHUNK_BYTES, clock,
+                SecurityRegistry.shared(), securityMaster);
+    }
+
+    /**
+     * @param clock date that times to maturity are measured from, as for {@link CSVPositionReader}
+     */
+    public MappedCSVPositionReader(ExecutorService executor, int parallelism, long chunkBytes, Clock clock,
+                                   SecurityRegistry registry, SecurityMaster securityMaster) {
+        if (parallelism < 1 || chunkBytes < MAX_LINE_BYTES) {
+            throw new IllegalArgumentException("Parallelism must be positive and chunks at least " + MAX_LINE_BYTES + " bytes");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+        this.clock = clock;
+        this.registry = registry;
+        this.securityMaster = securityMaster;
+    }
+
+    /**
+     * Streams every position in the file to {@code consumer} on the calling thread, in
+     * file order, e.g. {@code reader.readPositions(path, portfolio::addPosition)}.
+     */
+    public void readPositions(Path path, Consumer<Position> consumer) throws IOException {
+        try (ChunkPipeline pipeline = new ChunkPipeline(path)) {
+            List<Position> batch;
+            while ((batch = pipeline.next()) != null) {
+                batch.forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Lazy iterator over the file's positions. Close it if iteration stops early.
+     */
+    public CloseableIterator iterator(Path path) throws IOException {
+        return new CloseableIterator(new ChunkPipeline(path));
+    }
+
+    public static final class CloseableIterator implements Iterator<Position>, AutoCloseable {
+        private final ChunkPipeline pipeline;
+        private Iterator<Position> current = Collections.emptyIterator();
+        private boolean exhausted;
+
+        private CloseableIterator(ChunkPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && !exhausted) {
+                try {
+                    List<Position> batch = pipeline.next();
+                    if (batch == null) {
+                        exhausted = true;
+                        pipeline.close();
+                    } else {
+                        current = batch.iterator();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Position next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Keeps up to twice the parallelism in chunks parsing ahead of the consumer.
+     */
+    private final class ChunkPipeline implements AutoCloseable {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final Deque<Future<List<Position>>> pending = new ArrayDeque<>();
+        private long nextChunkStart;
+
+        private ChunkPipeline(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+            fill();
+        }
+
+        private void fill() {
+            while (pending.size() < parallelism * 2 && nextChunkStart < fileSize) {
+                long start = nextChunkStart;
+                long end = Math.min(fileSize, start + chunkBytes);
+                nextChunkStart = end;
+                pending.add(executor.submit(() -> parseChunk(channel, fileSize, start, end)));
+            }
+        }
+
+        private List<Position> next() throws IOException {
+            Future<List<Position>> head = pending.poll();
+            if (head == null) {
+                return null;
+            }
+            try {
+                List<Position> batch = head.get();
+                fill();
+                return batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading positions", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw new IOException("Error reading CSV file", cause);
+            }
+        }
+
+        @Override
+        public void close() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private List<Position> parseChunk(FileChannel channel, long fileSize, long start, long end) {
+        // Map one byte early to see whether the chunk starts on a line boundary
+        long mapStart = start == 0 ? 0 : start - 1;
+        long mapEnd = Math.min(fileSize, end + MAX_LINE_BYTES);
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int limit = buffer.limit();
+        int ownedEnd = (int) (end - mapStart);
+        int pos = 0;
+        if (start == 0) {
+            // Skip header
+            pos = skipLine(buffer, 0, limit);
+        } else if (buffer.get(0) != '\n') {
+            // The line in progress belongs to the previous chunk
+            pos = skipLine(buffer, 1, limit);
+        } else {
+            pos = 1;
+        }
+
+        List<Position> positions = new ArrayList<>();
+        byte[] scratch = new byte[MAX_LINE_BYTES];
+        while (pos < ownedEnd && pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && mapEnd < fileSize) {
+                throw new UncheckedIOException(new IOException("Line longer than " + MAX_LINE_BYTES
+                        + " bytes at offset " + (mapStart + pos)));
+            }
+
+            int length = lineEnd - pos;
+            if (length > MAX_LINE_BYTES) {
+                throw new UncheckedIOException(new IOException("Line longer than " + MAX_LINE_BYTES
+                        + " bytes at offset " + (mapStart + pos)));
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = buffer.get(pos + i);
+            }
+            Position position = parseLine(scratch, length);
+            if (position != null) {
+                positions.add(position);
+            }
+            pos = lineEnd + 1;
+        }
+        return positions;
+    }
+
+    private static int skipLine(MappedByteBuffer buffer, int pos, int limit) {
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+
+    private Position parseLine(byte[] line, int length) {
+        int end = trimEnd(line, 0, length);
+        int start = trimStart(line, 0, end);
+        if (start == end) {
+            return null;
+        }
+
+        int comma = indexOf(line, (byte) ',', start, end);
+        if (comma < 0) {
+            throw new IllegalArgumentException("Malformed position line: " + new String(line, start, end - start,
+                    StandardCharsets.ISO_8859_1));
+        }
+        int symbolEnd = trimEnd(line, start, comma);
+        BigDecimal quantity = parseDecimal(line, trimStart(line, comma + 1, end), end);
+
+        // Only the first row naming an instrument parses its symbol
+        String symbol = new String(line, start, symbolEnd - start, StandardCharsets.ISO_8859_1);
+        Security security = registry.lookup(symbol);
+        if (security == null) {
+            security = registry.intern(symbol, key -> {
+                Security parsed = parseSecurity(line, start, symbolEnd);
+                return securityMaster != null ? securityMaster.applyDefinition(parsed) : parsed;
+            });
+        }
+        return new Position(security, quantity);
+    }
+
+    private Security parseSecurity(byte[] line, int start, int symbolEnd) {
+        int dash = indexOf(line, (byte) '-', start, symbolEnd);
+        if (dash < 0) {
+            // Parse stock
+            return new Security(new String(line, start, symbolEnd - start, StandardCharsets.ISO_8859_1));
+        }
+
+        // Parse option: TICKER-MONTH-YEAR-STRIKE-TYPE
+        String ticker = new String(line, start, dash - start, StandardCharsets.ISO_8859_1);
+        int monthEnd = indexOf(line, (byte) '-', dash + 1, symbolEnd);
+        int yearEnd = indexOf(line, (byte) '-', monthEnd + 1, symbolEnd);
+        int strikeEnd = indexOf(line, (byte) '-', yearEnd + 1, symbolEnd);
+        if (monthEnd < 0 || yearEnd < 0 || strikeEnd < 0) {
+            throw new IllegalArgumentException("Malformed option symbol: "
+                    + new String(line, start, symbolEnd - start, StandardCharsets.ISO_8859_1));
+        }
+
+        Month month = CSVPositionReader.parseMonth(new String(line, dash + 1, monthEnd - dash - 1,
+                StandardCharsets.ISO_8859_1));
+        int year = (int) parseLong(line, monthEnd + 1, yearEnd);
+        BigDecimal strike = parseDecimal(line, yearEnd + 1, strikeEnd);
+        SecurityType type = symbolEnd - strikeEnd == 2 && line[strikeEnd + 1] == 'C'
+                ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION;
+
+        // Every row of the same expiry shares one time to maturity
+        LocalDate today = LocalDate.now(clock);
+        long key = today.toEpochDay() * 100_000 + year * 12 + month.ordinal();
+        BigDecimal timeToMaturity = maturityCache.computeIfAbsent(key,
+                expiry -> CSVPositionReader.timeToMaturity(today, OptionExpiry.monthlyExpiry(year, month)));
+
+        return CSVPositionReader.createOptionSecurity(ticker, type, strike, timeToMaturity, month, year);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int indexOf(byte[] line, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimStart(byte[] line, int from, int to) {
+        while (from < to && isSpace(line[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] line, int from, int to) {
+        while (to > from && isSpace(line[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static long parseLong(byte[] line, int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Empty number");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(new String(line, from, to - from, StandardCharsets.ISO_8859_1));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Plain decimals are parsed without an intermediate String; anything else goes through BigDecimal
+    private static BigDecimal parseDecimal(byte[] line, int from, int to) {
+        boolean negative = from < to && line[from] == '-';
+        int i = negative || (from < to && line[from] == '+') ? from + 1 : from;
+        int digits = 0;
+        int scale = -1;
+        long unscaled = 0;
+        for (; i < to; i++) {
+            byte b = line[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > 18) {
+                return new BigDecimal(new String(line, from, to - from, StandardCharsets.ISO_8859_1));
+            }
+            unscaled = unscaled * 10 + digit;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Empty number");
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+}
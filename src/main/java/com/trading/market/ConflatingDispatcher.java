@@ -0,0 +1,393 @@
+package com.trading.market;
+
+import com.trading.metrics.LatencyHistogram;
+import com.trading.metrics.TradingMetrics;
+import com.trading.runtime.ExecutionRuntime;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dispatch stage between a {@link MarketDataProvider} and its listeners.
+ * <p>
+ * The upstream provider's thread only records the latest price for a ticker and, if the
+ * ticker is not already queued, appends it to a preallocated ring buffer. Consumer
+ * threads, partitioned by ticker hash, drain their ring and call the listeners with the
+ * most recent price. A consumer that falls behind therefore sees one update per ticker
+ * rather than a backlog, and a slow listener no longer delays ingestion of other tickers.
+ */
+public class ConflatingDispatcher implements MarketDataProvider {
+    private static final int SPIN_LIMIT = 200;
+    private static final long PARK_NANOS = 1_000_000;
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MarketDataProvider upstream;
+    private final ExecutionRuntime runtime;
+    private final TradingMetrics metrics;
+    private final LatencyHistogram tickToUpdate;
+    private final Partition[] partitions;
+    private final Map<String, TickerSlot> slots = new ConcurrentHashMap<>();
+    private volatile boolean running = false;
+
+    public ConflatingDispatcher(MarketDataProvider upstream) {
+        this(upstream, 1, 1024);
+    }
+
+    /**
+     * @param consumers          number of consumer threads, each owning the tickers that hash to it
+     * @param tickersPerConsumer ring capacity per consumer; a ticker occupies at most one entry
+     */
+    public ConflatingDispatcher(MarketDataProvider upstream, int consumers, int tickersPerConsumer) {
+        this(upstream, consumers, tickersPerConsumer, ExecutionRuntime.shared());
+    }
+
+    public ConflatingDispatcher(MarketDataProvider upstream, int consumers, int tickersPerConsumer,
+                                ExecutionRuntime runtime) {
+        this(upstream, consumers, tickersPerConsumer, runtime, TradingMetrics.shared());
+    }
+
+    /**
+     * @param metrics receives per-ticker tick counts and the time from a tick arriving
+     *                until its listeners have run
+     */
+    public ConflatingDispatcher(MarketDataProvider upstream, int consumers, int tickersPerConsumer,
+                                ExecutionRuntime runtime, TradingMetrics metrics) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("At least one consumer is required");
+        }
+        this.upstream = upstream;
+        this.runtime = runtime;
+        this.metrics = metrics;
+        this.tickToUpdate = metrics.getTickToUpdate();
+        this.partitions = new Partition[consumers];
+        for (int i = 0; i < consumers; i++) {
+            partitions[i] = new Partition(i, tickersPerConsumer);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            for (Partition partition : partitions) {
+                partition.start();
+            }
+            upstream.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        upstream.stop();
+        running = false;
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+    }
+
+    @Override
+    public synchronized Subscription subscribe(String ticker, MarketDataListener listener) {
+        TickerSlot slot = slots.get(ticker);
+        if (slot == null) {
+            Partition partition = partitions[(ticker.hashCode() & 0x7fffffff) % partitions.length];
+            partition.reserve(ticker);
+            slot = new TickerSlot(ticker, partition, metrics.tickCounter(ticker));
+            slot.listeners.add(listener);
+            slots.put(ticker, slot);
+            // The upstream notifies the slot with the current price, which reaches the listener via the ring
+            slot.upstreamSubscription = upstream.subscribe(ticker, slot);
+        } else {
+            slot.listeners.add(listener);
+            BigDecimal latest = slot.latest;
+            if (latest != null) {
+                listener.onPriceUpdate(ticker, latest);
+            }
+        }
+        return Subscription.of(this, ticker, listener);
+    }
+
+    @Override
+    public synchronized void unsubscribe(String ticker, MarketDataListener listener) {
+        TickerSlot slot = slots.get(ticker);
+        if (slot != null) {
+            slot.listeners.remove(listener);
+            if (slot.listeners.isEmpty()) {
+                slots.remove(ticker);
+                slot.upstreamSubscription.close();
+                slot.partition.release();
+            }
+        }
+    }
+
+    @Override
+    public int getListenerCount() {
+        int count = 0;
+        for (TickerSlot slot : slots.values()) {
+            count += slot.listeners.size();
+        }
+        return count;
+    }
+
+    public int getConsumerCount() {
+        return partitions.length;
+    }
+
+    public long getQueueDepth() {
+        long depth = 0;
+        for (Partition partition : partitions) {
+            depth += partition.getQueueDepth();
+        }
+        return depth;
+    }
+
+    public long getQueueDepth(int consumer) {
+        return partitions[consumer].getQueueDepth();
+    }
+
+    // Updates received from the upstream provider
+    public long getPublishedCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            count += partition.published.sum();
+        }
+        return count;
+    }
+
+    // Updates that replaced a price still waiting in the ring
+    public long getConflatedCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            count += partition.conflated.sum();
+        }
+        return count;
+    }
+
+    // Listener calls that threw; the first of each second is logged with its stack trace
+    public long getListenerFailureCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            count += partition.failed.sum();
+        }
+        return count;
+    }
+
+    // Ticker updates delivered to listeners
+    public long getDispatchedCount() {
+        long count = 0;
+        for (Partition partition : partitions) {
+            count += partition.dispatched.get();
+        }
+        return count;
+    }
+
+    /**
+     * Waits until every update received so far has been delivered and its listeners have
+     * returned. Queue depth alone is not enough: a consumer takes an update off the ring
+     * before calling its listeners. Returns false if the timeout elapses first. Only
+     * meaningful once the upstream has stopped publishing.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isQuiescent()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private boolean isQuiescent() {
+        for (Partition partition : partitions) {
+            if (!partition.isDrained()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class TickerSlot implements MarketDataListener {
+        private final String ticker;
+        private final Partition partition;
+        private final LongAdder ticks;
+        private final Set<MarketDataListener> listeners = new CopyOnWriteArraySet<>();
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile BigDecimal latest;
+        // When the update now waiting in the ring arrived, or 0 if metrics were off
+        private volatile long queuedNanos;
+        private Subscription upstreamSubscription;
+
+        private TickerSlot(String ticker, Partition partition, LongAdder ticks) {
+            this.ticker = ticker;
+            this.partition = partition;
+            this.ticks = ticks;
+        }
+
+        // Called on the upstream provider's thread
+        @Override
+        public void onPriceUpdate(String ticker, BigDecimal price) {
+            latest = price;
+            partition.published.increment();
+            boolean measure = metrics.isEnabled();
+            if (measure) {
+                ticks.increment();
+            }
+            if (queued.compareAndSet(false, true)) {
+                queuedNanos = measure ? System.nanoTime() : 0;
+                partition.offer(this);
+            } else {
+                partition.conflated.increment();
+            }
+        }
+
+        private void dispatch() {
+            // Read before clearing the flag, after which the next update may overwrite it
+            long since = queuedNanos;
+            queued.set(false);
+            BigDecimal price = latest;
+            for (MarketDataListener listener : listeners) {
+                // One failing listener must not keep the price from the others
+                try {
+                    listener.onPriceUpdate(ticker, price);
+                } catch (RuntimeException e) {
+                    partition.listenerFailed(ticker, e);
+                }
+            }
+            if (since != 0 && metrics.isEnabled()) {
+                tickToUpdate.recordSince(since);
+            }
+        }
+    }
+
+    private final class Partition implements Runnable {
+        private final int index;
+        private final AtomicReferenceArray<TickerSlot> ring;
+        private final int capacity;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong head = new AtomicLong();
+        private final LongAdder published = new LongAdder();
+        private final LongAdder conflated = new LongAdder();
+        private final AtomicLong dispatched = new AtomicLong();
+        private final LongAdder failed = new LongAdder();
+        // Consumer thread only
+        private long lastFailureLogNanos = System.nanoTime() - FAILURE_LOG_INTERVAL_NANOS;
+        private long unloggedFailures;
+        private int reservedTickers;
+        private volatile boolean parked;
+        private volatile Thread thread;
+
+        private Partition(int index, int tickers) {
+            int size = Integer.highestOneBit(Math.max(tickers, 1) - 1 | 1) << 1;
+            this.index = index;
+            this.capacity = tickers;
+            this.ring = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        // A ticker is queued at most once, so the ring cannot overflow while tickers fit
+        private void reserve(String ticker) {
+            if (reservedTickers == capacity) {
+                throw new IllegalStateException("Dispatch partition " + index + " is full, cannot add " + ticker);
+            }
+            reservedTickers++;
+        }
+
+        private void release() {
+            reservedTickers--;
+        }
+
+        private void offer(TickerSlot slot) {
+            long sequence = tail.getAndIncrement();
+            ring.lazySet((int) sequence & mask, slot);
+            if (parked) {
+                Thread consumer = thread;
+                if (consumer != null) {
+                    LockSupport.unpark(consumer);
+                }
+            }
+        }
+
+        private long getQueueDepth() {
+            return tail.get() - head.get();
+        }
+
+        // Each update not conflated into a queued one is dispatched exactly once
+        private boolean isDrained() {
+            // Conflated before published: a conflation is only counted after its publish
+            long undispatched = -conflated.sum();
+            undispatched += published.sum();
+            return getQueueDepth() == 0 && dispatched.get() == undispatched;
+        }
+
+        private void start() {
+            thread = runtime.startDedicated(this, "market-data-dispatch-" + index);
+        }
+
+        // A listener that throws on every tick would otherwise flood the log from the hot loop
+        private void listenerFailed(String ticker, RuntimeException e) {
+            failed.increment();
+            long now = System.nanoTime();
+            if (now - lastFailureLogNanos < FAILURE_LOG_INTERVAL_NANOS) {
+                unloggedFailures++;
+                return;
+            }
+            lastFailureLogNanos = now;
+            String suppressed = unloggedFailures > 0 ? " (" + unloggedFailures + " more since the last report)" : "";
+            unloggedFailures = 0;
+            System.err.println("Listener failed for " + ticker + suppressed);
+            e.printStackTrace();
+        }
+
+        private void stop() {
+            Thread consumer = thread;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+                try {
+                    consumer.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                thread = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            long sequence = head.get();
+            int idle = 0;
+            while (running) {
+                int offset = (int) sequence & mask;
+                TickerSlot slot = ring.get(offset);
+                if (slot == null) {
+                    if (++idle < SPIN_LIMIT) {
+                        continue;
+                    }
+                    parked = true;
+                    if (ring.get(offset) == null && running) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    parked = false;
+                    idle = 0;
+                    continue;
+                }
+
+                idle = 0;
+                ring.lazySet(offset, null);
+                head.lazySet(++sequence);
+                slot.dispatch();
+                // Counted only once the listeners have returned, see isDrained
+                dispatched.lazySet(dispatched.get() + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.trading.market;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every price an upstream {@link MarketDataProvider} delivers into a
+ * {@link TickJournal} and otherwise passes subscriptions straight through.
+ * <p>
+ * The first subscription to a ticker also subscribes a journaling listener upstream, ahead
+ * of the caller's listener, so each tick is journaled once however many listeners it has
+ * and before any of them act on it.
+ */
+public class JournalingMarketDataProvider implements MarketDataProvider {
+    private final MarketDataProvider upstream;
+    private final TickJournal journal;
+    private final Map<String, Tap> taps = new ConcurrentHashMap<>();
+
+    public JournalingMarketDataProvider(MarketDataProvider upstream, TickJournal journal) {
+        this.upstream = upstream;
+        this.journal = journal;
+    }
+
+    @Override
+    public void start() {
+        upstream.start();
+    }
+
+    @Override
+    public void stop() {
+        upstream.stop();
+        journal.flush();
+    }
+
+    @Override
+    public synchronized Subscription subscribe(String ticker, MarketDataListener listener) {
+        Tap tap = taps.get(ticker);
+        if (tap == null) {
+            tap = new Tap(upstream.subscribe(ticker, journal.listener(ticker)));
+            taps.put(ticker, tap);
+        }
+        tap.listeners++;
+        upstream.subscribe(ticker, listener);
+        return Subscription.of(this, ticker, listener);
+    }
+
+    @Override
+    public synchronized void unsubscribe(String ticker, MarketDataListener listener) {
+        upstream.unsubscribe(ticker, listener);
+        Tap tap = taps.get(ticker);
+        if (tap != null && --tap.listeners == 0) {
+            taps.remove(ticker);
+            tap.subscription.close();
+        }
+    }
+
+    // Callers' listeners, not counting the journal's own taps on the upstream
+    @Override
+    public synchronized int getListenerCount() {
+        int count = 0;
+        for (Tap tap : taps.values()) {
+            count += tap.listeners;
+        }
+        return count;
+    }
+
+    public TickJournal getJournal() {
+        return journal;
+    }
+
+    private static final class Tap {
+        private final Subscription subscription;
+        private int listeners;
+
+        private Tap(Subscription subscription) {
+            this.subscription = subscription;
+        }
+    }
+}
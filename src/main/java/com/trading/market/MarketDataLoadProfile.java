@@ -0,0 +1,44 @@
+package com.trading.market;
+
+import lombok.Getter;
+
+/**
+ * Tick rate and arrival pattern for {@link MockMarketDataProvider} in load-generation mode.
+ * The rate is the total across all subscribed tickers.
+ */
+@Getter
+public class MarketDataLoadProfile {
+    public enum ArrivalPattern {
+        UNIFORM,   // evenly spaced ticks
+        POISSON,   // exponentially distributed gaps with the configured mean rate
+        BURSTY     // back-to-back bursts, spaced so the average rate is preserved
+    }
+
+    private final double ticksPerSecond;
+    private final ArrivalPattern arrivalPattern;
+    private final int burstSize;
+
+    private MarketDataLoadProfile(double ticksPerSecond, ArrivalPattern arrivalPattern, int burstSize) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + ticksPerSecond);
+        }
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("Burst size must be at least 1: " + burstSize);
+        }
+        this.ticksPerSecond = ticksPerSecond;
+        this.arrivalPattern = arrivalPattern;
+        this.burstSize = burstSize;
+    }
+
+    public static MarketDataLoadProfile uniform(double ticksPerSecond) {
+        return new MarketDataLoadProfile(ticksPerSecond, ArrivalPattern.UNIFORM, 1);
+    }
+
+    public static MarketDataLoadProfile poisson(double ticksPerSecond) {
+        return new MarketDataLoadProfile(ticksPerSecond, ArrivalPattern.POISSON, 1);
+    }
+
+    public static MarketDataLoadProfile bursty(double ticksPerSecond, int burstSize) {
+        return new MarketDataLoadProfile(ticksPerSecond, ArrivalPattern.BURSTY, burstSize);
+    }
+}
@@ -1,8 +1,29 @@
 package com.trading.market;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public interface MarketDataProvider {
     void start();
     void stop();
-    void subscribe(String ticker, MarketDataListener listener);
+    Subscription subscribe(String ticker, MarketDataListener listener);
     void unsubscribe(String ticker, MarketDataListener listener);
-}
\ No newline at end of file
+
+    // Listeners currently subscribed, summed over all tickers
+    int getListenerCount();
+
+    default Subscription subscribeAll(Collection<String> tickers, MarketDataListener listener) {
+        List<Subscription> subscriptions = new ArrayList<>(tickers.size());
+        for (String ticker : tickers) {
+            subscriptions.add(subscribe(ticker, listener));
+        }
+        return Subscription.all(subscriptions);
+    }
+
+    default void unsubscribeAll(Collection<String> tickers, MarketDataListener listener) {
+        for (String ticker : tickers) {
+            unsubscribe(ticker, listener);
+        }
+    }
+}
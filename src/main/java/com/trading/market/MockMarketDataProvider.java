@@ -1,113 +1,285 @@
 package com.trading.market;
 
+import com.trading.master.SecurityDefinition;
+import com.trading.master.SecurityMaster;
+import com.trading.model.Security;
+import com.trading.runtime.ExecutionRuntime;
+
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.*;
-import org.apache.commons.math3.distribution.NormalDistribution;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class MockMarketDataProvider implements MarketDataProvider {
-    private final Map<String, Set<MarketDataListener>> listeners = new ConcurrentHashMap<>();
-    private final Map<String, BigDecimal> currentPrices = new ConcurrentHashMap<>();
-    private final NormalDistribution normalDist = new NormalDistribution(0, 1);
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, TickerState> tickers = new ConcurrentHashMap<>();
+    private final Map<String, double[]> tickerParameters = new ConcurrentHashMap<>();
+    private final ExecutionRuntime runtime;
+    private final MarketDataLoadProfile loadProfile;
+    private final SplittableRandom random;
+    private volatile TickerState[] activeTickers = new TickerState[0];
     private volatile boolean running = false;
+    private volatile SecurityMaster securityMaster;
+    private ExecutionRuntime.ScheduledJob updateJob;
+    private Thread generatorThread;
 
     private static final Map<String, BigDecimal> INITIAL_PRICES = new ConcurrentHashMap<>();
     private static final int DECIMAL_PLACES = 2;
 
+    // Parameters for geometric Brownian motion
+    private static final double DEFAULT_MU = 0.05;     // Expected return (5%)
+    private static final double DEFAULT_SIGMA = 0.30;  // Volatility (30%)
+    private static final double DT = 1.0 / 252 / 6.5 / 60; // Time step in years (1 minute)
+    private static final double SQRT_DT = Math.sqrt(DT);
+    private static final double MIN_PRICE = 0.01;
+
+    // Waits longer than this park the thread, shorter ones spin
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+    // A generator further behind than this drops the backlog instead of catching up
+    private static final long MAX_LAG_NANOS = 1_000_000_000L;
+
     static {
         INITIAL_PRICES.put("AAPL", new BigDecimal("180.00"));
         INITIAL_PRICES.put("GOOGL", new BigDecimal("140.00"));
         INITIAL_PRICES.put("MSFT", new BigDecimal("350.00"));
     }
 
+    public MockMarketDataProvider() {
+        this(null);
+    }
+
+    /**
+     * @param loadProfile tick rate and arrival pattern for load generation, or null for
+     *                    the default of one update per ticker per second
+     */
+    public MockMarketDataProvider(MarketDataLoadProfile loadProfile) {
+        this(loadProfile, System.nanoTime());
+    }
+
+    public MockMarketDataProvider(MarketDataLoadProfile loadProfile, long seed) {
+        this(loadProfile, seed, ExecutionRuntime.shared());
+    }
+
+    public MockMarketDataProvider(MarketDataLoadProfile loadProfile, long seed, ExecutionRuntime runtime) {
+        this.loadProfile = loadProfile;
+        this.random = new SplittableRandom(seed);
+        this.runtime = runtime;
+    }
+
     @Override
-    public void start() {
+    public synchronized void start() {
         if (!running) {
             running = true;
-            // Schedule price updates every second
-            executor.scheduleAtFixedRate(this::updatePrices, 0, 1000, TimeUnit.MILLISECONDS);
+            if (loadProfile == null) {
+                // Schedule price updates every second
+                updateJob = runtime.schedulePeriodic(this::updatePrices, 1000, TimeUnit.MILLISECONDS);
+            } else {
+                generatorThread = runtime.startDedicated(this::generateLoad, "market-data-generator");
+            }
         }
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
         running = false;
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+        if (updateJob != null) {
+            updateJob.close();
+            updateJob = null;
+        }
+        if (generatorThread != null) {
+            try {
+                generatorThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+            generatorThread = null;
+        }
+    }
+
+    /**
+     * Uses the security's expected return and volatility for its ticker's price process.
+     */
+    public void configureTicker(Security security) {
+        configureTicker(security.getTicker(), security.getMu().doubleValue(), security.getSigma().doubleValue());
+    }
+
+    public void configureTicker(String ticker, double mu, double sigma) {
+        tickerParameters.put(ticker, new double[] {mu, sigma});
+        TickerState state = tickers.get(ticker);
+        if (state != null) {
+            state.setParameters(mu, sigma);
+        }
+    }
+
+    /**
+     * Takes initial prices, and expected return and volatility for tickers without
+     * {@link #configureTicker} parameters, from the security master. Tickers it does not
+     * define fall back to the built-in defaults. Definitions changed by later refreshes
+     * override the parameters of their tickers.
+     */
+    public void setSecurityMaster(SecurityMaster securityMaster) {
+        this.securityMaster = securityMaster;
+        if (securityMaster == null) {
+            return;
         }
+        // A refreshed definition replaces the expected return and volatility of its ticker
+        securityMaster.addListener(definitions -> definitions.forEach(definition ->
+                configureTicker(definition.getTicker(), definition.getMu().doubleValue(),
+                        definition.getSigma().doubleValue())));
     }
 
     @Override
-    public void subscribe(String ticker, MarketDataListener listener) {
-        listeners.computeIfAbsent(ticker, k -> ConcurrentHashMap.newKeySet()).add(listener);
-        // Initialize price if not exists
-        if (!currentPrices.containsKey(ticker)) {
-            BigDecimal initialPrice = INITIAL_PRICES.getOrDefault(ticker, new BigDecimal("100.00"));
-            currentPrices.put(ticker, initialPrice);
-            // Notify listener immediately with initial price
-            listener.onPriceUpdate(ticker, initialPrice);
-        } else {
-            // Notify listener with current price
-            listener.onPriceUpdate(ticker, currentPrices.get(ticker));
+    public synchronized Subscription subscribe(String ticker, MarketDataListener listener) {
+        TickerState state = tickers.get(ticker);
+        if (state == null) {
+            // Initialize price if not exists
+            SecurityMaster master = securityMaster;
+            SecurityDefinition definition = master != null ? master.get(ticker) : null;
+            BigDecimal initialPrice = definition != null
+                    ? definition.getInitialPrice()
+                    : INITIAL_PRICES.getOrDefault(ticker, new BigDecimal("100.00"));
+            state = new TickerState(ticker, initialPrice);
+            double[] parameters = tickerParameters.get(ticker);
+            if (parameters != null) {
+                state.setParameters(parameters[0], parameters[1]);
+            } else if (definition != null) {
+                state.setParameters(definition.getMu().doubleValue(), definition.getSigma().doubleValue());
+            }
+            tickers.put(ticker, state);
+            activeTickers = tickers.values().toArray(new TickerState[0]);
         }
+        state.listeners.add(listener);
+
+        // Notify listener immediately with current price
+        listener.onPriceUpdate(ticker, state.lastPrice);
+        return Subscription.of(this, ticker, listener);
     }
 
     @Override
-    public void unsubscribe(String ticker, MarketDataListener listener) {
-        Set<MarketDataListener> tickerListeners = listeners.get(ticker);
-        if (tickerListeners != null) {
-            tickerListeners.remove(listener);
-            if (tickerListeners.isEmpty()) {
-                listeners.remove(ticker);
-                currentPrices.remove(ticker);
+    public synchronized void unsubscribe(String ticker, MarketDataListener listener) {
+        TickerState state = tickers.get(ticker);
+        if (state != null) {
+            state.listeners.remove(listener);
+            if (state.listeners.isEmpty()) {
+                tickers.remove(ticker);
+                activeTickers = tickers.values().toArray(new TickerState[0]);
             }
         }
     }
 
+    @Override
+    public synchronized int getListenerCount() {
+        int count = 0;
+        for (TickerState state : tickers.values()) {
+            count += state.listeners.size();
+        }
+        return count;
+    }
+
     private void updatePrices() {
-        currentPrices.forEach((ticker, price) -> {
-            BigDecimal newPrice = calculateNextPrice(price);
-            currentPrices.put(ticker, newPrice);
-
-            // Notify listeners
-            Set<MarketDataListener> tickerListeners = listeners.get(ticker);
-            if (tickerListeners != null) {
-                tickerListeners.forEach(listener -> listener.onPriceUpdate(ticker, newPrice));
+        for (TickerState state : activeTickers) {
+            publish(state);
+        }
+    }
+
+    private void generateLoad() {
+        double meanGapNanos = 1e9 / loadProfile.getTicksPerSecond();
+        int burstSize = loadProfile.getBurstSize();
+        double nextTick = System.nanoTime();
+        int cursor = 0;
+        int burstRemaining = burstSize;
+
+        while (running && !Thread.currentThread().isInterrupted()) {
+            TickerState[] states = activeTickers;
+            if (states.length == 0) {
+                LockSupport.parkNanos(1_000_000);
+                nextTick = System.nanoTime();
+                continue;
+            }
+
+            long now = awaitTick((long) nextTick);
+            if (now - (long) nextTick > MAX_LAG_NANOS) {
+                nextTick = now;
+            }
+
+            if (cursor >= states.length) {
+                cursor = 0;
             }
-        });
-    }
-
-    private BigDecimal calculateNextPrice(BigDecimal currentPrice) {
-        // Parameters for geometric Brownian motion
-        BigDecimal mu = new BigDecimal("0.05");  // Expected return (5%)
-        BigDecimal sigma = new BigDecimal("0.30"); // Volatility (30%)
-        BigDecimal dt = new BigDecimal("1.0")
-                .divide(new BigDecimal("252"), 10, RoundingMode.HALF_UP)
-                .divide(new BigDecimal("6.5"), 10, RoundingMode.HALF_UP)
-                .divide(new BigDecimal("60"), 10, RoundingMode.HALF_UP); // Time step in years (1 minute)
-
-        // Generate random normal variable
-        BigDecimal epsilon = new BigDecimal(normalDist.sample());
-
-        // Calculate price change using geometric Brownian motion formula
-        BigDecimal sqrtDt = new BigDecimal(Math.sqrt(dt.doubleValue()));
-        BigDecimal dS = currentPrice.multiply(
-                mu.multiply(dt).add(
-                        sigma.multiply(sqrtDt).multiply(epsilon)
-                )
-        );
-        BigDecimal newPrice = currentPrice.add(dS);
+            publish(states[cursor++]);
 
+            switch (loadProfile.getArrivalPattern()) {
+                case POISSON:
+                    nextTick += -Math.log(1.0 - random.nextDouble()) * meanGapNanos;
+                    break;
+                case BURSTY:
+                    if (--burstRemaining == 0) {
+                        nextTick += burstSize * meanGapNanos;
+                        burstRemaining = burstSize;
+                    }
+                    break;
+                default:
+                    nextTick += meanGapNanos;
+                    break;
+            }
+        }
+    }
+
+    private long awaitTick(long deadline) {
+        long now = System.nanoTime();
+        long remaining = deadline - now;
+        if (remaining > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            now = System.nanoTime();
+        }
+        while (now < deadline && running) {
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    private void publish(TickerState state) {
+        state.price = step(state.price, state.drift, state.diffusion);
+        BigDecimal newPrice = BigDecimal.valueOf(Math.round(state.price * 100), DECIMAL_PLACES);
+        state.lastPrice = newPrice;
+
+        // Notify listeners
+        for (MarketDataListener listener : state.listeners) {
+            listener.onPriceUpdate(state.ticker, newPrice);
+        }
+    }
+
+    BigDecimal calculateNextPrice(BigDecimal currentPrice) {
+        double newPrice = step(currentPrice.doubleValue(), DEFAULT_MU * DT, DEFAULT_SIGMA * SQRT_DT);
+        return BigDecimal.valueOf(Math.round(newPrice * 100), DECIMAL_PLACES);
+    }
+
+    // Euler step of geometric Brownian motion: dS = S * (mu * dt + sigma * sqrt(dt) * epsilon)
+    private double step(double price, double drift, double diffusion) {
+        double newPrice = price + price * (drift + diffusion * random.nextGaussian());
         // Ensure price doesn't go below 0.01
-        return newPrice.max(new BigDecimal("0.01")).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        return Math.max(newPrice, MIN_PRICE);
+    }
+
+    private static final class TickerState {
+        private final String ticker;
+        private final Set<MarketDataListener> listeners = new CopyOnWriteArraySet<>();
+        private double price;
+        private volatile double drift = DEFAULT_MU * DT;
+        private volatile double diffusion = DEFAULT_SIGMA * SQRT_DT;
+        private volatile BigDecimal lastPrice;
+
+        private TickerState(String ticker, BigDecimal initialPrice) {
+            this.ticker = ticker;
+            this.price = initialPrice.doubleValue();
+            this.lastPrice = initialPrice;
+        }
+
+        private void setParameters(double mu, double sigma) {
+            this.drift = mu * DT;
+            this.diffusion = sigma * SQRT_DT;
+        }
     }
-}
\ No newline at end of file
+}
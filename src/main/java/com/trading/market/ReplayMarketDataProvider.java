@@ -0,0 +1,179 @@
+package com.trading.market;
+
+import com.trading.runtime.ExecutionRuntime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits a recorded tick file through the normal subscription contract, so runs of two
+ * builds see exactly the same input.
+ * <p>
+ * The source is either a {@link TickJournal} directory or a CSV file with the header
+ * {@code Timestamp,Ticker,Price}, timestamps in epoch milliseconds. Ticks are emitted on
+ * one thread as fast as possible, in real time, or N times faster than recorded. Ticks for
+ * tickers nobody subscribed to are read but not delivered.
+ */
+public class ReplayMarketDataProvider implements MarketDataProvider {
+    public static final double MAX_SPEED = 0;
+    public static final double REAL_TIME = 1;
+
+    private final Path source;
+    private final double speed;
+    private final ExecutionRuntime runtime;
+    private final Map<String, Set<MarketDataListener>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, BigDecimal> lastPrices = new ConcurrentHashMap<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private Thread replayThread;
+    private volatile long tickCount;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public ReplayMarketDataProvider(Path source, double speed) {
+        this(source, speed, ExecutionRuntime.shared());
+    }
+
+    /**
+     * @param speed {@link #MAX_SPEED}, {@link #REAL_TIME} or a multiple of the recorded pace
+     */
+    public ReplayMarketDataProvider(Path source, double speed, ExecutionRuntime runtime) {
+        this.source = source;
+        this.speed = speed;
+        this.runtime = runtime;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (replayThread == null) {
+            replayThread = runtime.startDedicated(this::replay, "market-data-replay");
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        Thread thread = replayThread;
+        if (thread != null && thread.isAlive()) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String ticker, MarketDataListener listener) {
+        listeners.computeIfAbsent(ticker, k -> new CopyOnWriteArraySet<>()).add(listener);
+
+        // Late subscribers start from the last replayed price
+        BigDecimal last = lastPrices.get(ticker);
+        if (last != null) {
+            listener.onPriceUpdate(ticker, last);
+        }
+        return Subscription.of(this, ticker, listener);
+    }
+
+    @Override
+    public void unsubscribe(String ticker, MarketDataListener listener) {
+        Set<MarketDataListener> tickerListeners = listeners.get(ticker);
+        if (tickerListeners != null) {
+            tickerListeners.remove(listener);
+        }
+    }
+
+    @Override
+    public int getListenerCount() {
+        int count = 0;
+        for (Set<MarketDataListener> tickerListeners : listeners.values()) {
+            count += tickerListeners.size();
+        }
+        return count;
+    }
+
+    /**
+     * Waits for the replay to reach the end of the source, or to be stopped.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    // Ticks read per second of replay so far, or over the whole run once finished
+    public double getTicksPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0.0;
+        }
+        long end = isFinished() ? endNanos : System.nanoTime();
+        return end > start ? tickCount * 1e9 / (end - start) : 0.0;
+    }
+
+    private void replay() {
+        startNanos = System.nanoTime();
+        try {
+            if (Files.isDirectory(source)) {
+                new TickJournalReader(source).replay(this::publish, speed);
+            } else {
+                replayCsv();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Replay of " + source + " failed: " + e.getMessage());
+        } finally {
+            endNanos = System.nanoTime();
+            finished.countDown();
+            System.out.printf("Replay finished: %d ticks in %.3f s (%.0f ticks/sec)%n", tickCount,
+                    (endNanos - startNanos) / 1e9, getTicksPerSecond());
+        }
+    }
+
+    private void replayCsv() throws IOException {
+        ReplayPacer pacer = new ReplayPacer(speed);
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            // Skip header
+            reader.readLine();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                long timestampNanos = Long.parseLong(fields[0].trim()) * 1_000_000L;
+                if (!pacer.await(timestampNanos)) {
+                    break;
+                }
+                publish(fields[1].trim(), new BigDecimal(fields[2].trim()));
+            }
+        }
+    }
+
+    // Called only on the replay thread, so the count has a single writer
+    private void publish(String ticker, BigDecimal price) {
+        tickCount++;
+        lastPrices.put(ticker, price);
+        Set<MarketDataListener> tickerListeners = listeners.get(ticker);
+        if (tickerListeners != null) {
+            for (MarketDataListener listener : tickerListeners) {
+                listener.onPriceUpdate(ticker, price);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.trading.market;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spaces replayed ticks by their recorded timestamps divided by a speed factor.
+ */
+final class ReplayPacer {
+    // Waits longer than this park the thread, shorter ones spin
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+    private final double speed;
+    private long firstTimestamp = Long.MIN_VALUE;
+    private long startNanos;
+
+    /**
+     * @param speed 1 for real time, N for N times faster, 0 or less for no pacing
+     */
+    ReplayPacer(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Waits until the tick recorded at {@code timestampNanos} is due. Returns false if the
+     * thread was interrupted while waiting.
+     */
+    boolean await(long timestampNanos) {
+        if (speed <= 0) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        if (firstTimestamp == Long.MIN_VALUE) {
+            firstTimestamp = timestampNanos;
+            startNanos = System.nanoTime();
+        }
+        long deadline = startNanos + (long) ((timestampNanos - firstTimestamp) / speed);
+        long remaining = deadline - System.nanoTime();
+        if (remaining > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+        }
+        while (System.nanoTime() < deadline) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+}
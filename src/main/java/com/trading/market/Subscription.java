@@ -0,0 +1,55 @@
+package com.trading.market;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle for a listener registration. Closing it removes exactly the listener that was
+ * registered; closing it again does nothing.
+ */
+public interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+
+    boolean isClosed();
+
+    static Subscription of(MarketDataProvider provider, String ticker, MarketDataListener listener) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return new Subscription() {
+            @Override
+            public void close() {
+                if (closed.compareAndSet(false, true)) {
+                    provider.unsubscribe(ticker, listener);
+                }
+            }
+
+            @Override
+            public boolean isClosed() {
+                return closed.get();
+            }
+        };
+    }
+
+    /**
+     * One handle that closes all of the given subscriptions.
+     */
+    static Subscription all(Collection<Subscription> subscriptions) {
+        List<Subscription> members = new ArrayList<>(subscriptions);
+        AtomicBoolean closed = new AtomicBoolean();
+        return new Subscription() {
+            @Override
+            public void close() {
+                if (closed.compareAndSet(false, true)) {
+                    members.forEach(Subscription::close);
+                }
+            }
+
+            @Override
+            public boolean isClosed() {
+                return closed.get();
+            }
+        };
+    }
+}
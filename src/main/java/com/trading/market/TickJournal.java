@@ -0,0 +1,195 @@
+package com.trading.market;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only binary journal of the prices the system received.
+ * <p>
+ * Each tick is a fixed 24-byte record: epoch timestamp in nanoseconds, ticker ID, price
+ * scale and price as a double, from which {@link TickJournalReader} rebuilds the exact
+ * decimal. Records go into memory-mapped segment files of a fixed size; when one fills up
+ * the next is mapped. Ticker IDs are assigned when a ticker is first journaled and written
+ * to a dictionary file, so appending a tick touches only primitives and the mapped buffer.
+ * A segment's unused tail stays zero, which readers take as its end.
+ */
+public class TickJournal implements AutoCloseable {
+    public static final int FORMAT_VERSION = 1;
+    public static final int RECORD_BYTES = 24;
+    public static final int HEADER_BYTES = 16;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    static final int MAGIC = 0x544A524E; // "TJRN"
+    static final String DICTIONARY = "tickers.txt";
+    static final String SEGMENT_PREFIX = "ticks-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Map<String, Integer> tickerIds = new HashMap<>();
+    private final long epochNanosAtStart;
+    private final long nanoTimeAtStart;
+    private int nextSegment;
+    private MappedByteBuffer segment;
+    private long recordCount;
+    private boolean closed;
+
+    public TickJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a journal in {@code directory}, continuing after any segments and ticker IDs
+     * already there.
+     */
+    public TickJournal(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < HEADER_BYTES + RECORD_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must hold at least one record and fit in 2GB");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<String> tickers = readDictionary(directory);
+        for (int i = 0; i < tickers.size(); i++) {
+            tickerIds.put(tickers.get(i), i);
+        }
+        List<Path> segments = listSegments(directory);
+        this.nextSegment = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+
+        this.epochNanosAtStart = System.currentTimeMillis() * 1_000_000L;
+        this.nanoTimeAtStart = System.nanoTime();
+        roll();
+    }
+
+    /**
+     * ID of {@code ticker} in this journal, assigning and recording one if it is new.
+     */
+    public synchronized int tickerId(String ticker) {
+        Integer id = tickerIds.get(ticker);
+        if (id == null) {
+            id = tickerIds.size();
+            try {
+                Files.write(directory.resolve(DICTIONARY),
+                        Collections.singletonList(id + "," + ticker), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            tickerIds.put(ticker, id);
+        }
+        return id;
+    }
+
+    public void append(int tickerId, BigDecimal price) {
+        append(tickerId, price.scale(), price.doubleValue());
+    }
+
+    public synchronized void append(int tickerId, int scale, double price) {
+        if (closed) {
+            return;
+        }
+        if (segment.remaining() < RECORD_BYTES) {
+            try {
+                roll();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        segment.putLong(epochNanosAtStart + (System.nanoTime() - nanoTimeAtStart));
+        segment.putInt(tickerId);
+        segment.putInt(scale);
+        segment.putDouble(price);
+        recordCount++;
+    }
+
+    /**
+     * Listener that journals every price it receives for {@code ticker}.
+     */
+    public MarketDataListener listener(String ticker) {
+        int id = tickerId(ticker);
+        return (t, price) -> append(id, price);
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Flushes written records to disk
+    public synchronized void flush() {
+        segment.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.force();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(FORMAT_VERSION);
+        segment.putInt(RECORD_BYTES);
+        segment.putInt(0);
+    }
+
+    static List<String> readDictionary(Path directory) throws IOException {
+        List<String> tickers = new ArrayList<>();
+        Path dictionary = directory.resolve(DICTIONARY);
+        if (Files.exists(dictionary)) {
+            for (String line : Files.readAllLines(dictionary, StandardCharsets.UTF_8)) {
+                int comma = line.indexOf(',');
+                if (comma > 0) {
+                    int id = Integer.parseInt(line.substring(0, comma));
+                    while (tickers.size() <= id) {
+                        tickers.add(null);
+                    }
+                    tickers.set(id, line.substring(comma + 1));
+                }
+            }
+        }
+        return tickers;
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            entries.forEach(segments::add);
+        }
+        segments.sort((a, b) -> Integer.compare(segmentNumber(a), segmentNumber(b)));
+        return segments;
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
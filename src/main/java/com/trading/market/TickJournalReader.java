@@ -0,0 +1,90 @@
+package com.trading.market;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays a {@link TickJournal} directory through a {@link MarketDataListener}, segment by
+ * segment in the order they were written.
+ */
+public class TickJournalReader {
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final Path directory;
+    private final String[] tickers;
+
+    public TickJournalReader(Path directory) throws IOException {
+        this.directory = directory;
+        this.tickers = TickJournal.readDictionary(directory).toArray(new String[0]);
+    }
+
+    /**
+     * Feeds every tick to {@code listener} as fast as possible and returns the tick count.
+     */
+    public long replay(MarketDataListener listener) throws IOException {
+        return replay(listener, 0);
+    }
+
+    /**
+     * Feeds every tick to {@code listener}, spacing them by their original timestamps
+     * divided by {@code speed}: 1 replays in real time, 10 ten times faster, and 0 or less
+     * as fast as possible. Returns the tick count. Stops early if the thread is interrupted.
+     */
+    public long replay(MarketDataListener listener, double speed) throws IOException {
+        long count = 0;
+        ReplayPacer pacer = new ReplayPacer(speed);
+
+        for (Path path : TickJournal.listSegments(directory)) {
+            MappedByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (segment.remaining() < TickJournal.HEADER_BYTES
+                    || segment.getInt() != TickJournal.MAGIC) {
+                throw new IOException("Not a tick journal segment: " + path.getFileName());
+            }
+            int version = segment.getInt();
+            int recordBytes = segment.getInt();
+            segment.getInt();
+            if (version != TickJournal.FORMAT_VERSION || recordBytes != TickJournal.RECORD_BYTES) {
+                throw new IOException("Unsupported tick journal version " + version + " in " + path.getFileName());
+            }
+
+            while (segment.remaining() >= TickJournal.RECORD_BYTES) {
+                long timestamp = segment.getLong();
+                if (timestamp == 0) {
+                    // Unwritten tail of the segment
+                    break;
+                }
+                int tickerId = segment.getInt();
+                int scale = segment.getInt();
+                double price = segment.getDouble();
+
+                if (!pacer.await(timestamp)) {
+                    return count;
+                }
+
+                listener.onPriceUpdate(tickers[tickerId], toDecimal(price, scale));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Every ticker ever journaled, indexed by ticker ID
+    public String[] getTickers() {
+        return tickers.clone();
+    }
+
+    static BigDecimal toDecimal(double price, int scale) {
+        if (scale >= 0 && scale < POWERS_OF_TEN.length) {
+            return BigDecimal.valueOf(Math.round(price * POWERS_OF_TEN[scale]), scale);
+        }
+        return BigDecimal.valueOf(price);
+    }
+}
@@ -0,0 +1,26 @@
+package com.trading.master;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Reference data for one underlying ticker as stored in the security master.
+ */
+@Getter
+public class SecurityDefinition {
+    private final String ticker;
+    private final BigDecimal sigma;         // Annualized volatility
+    private final BigDecimal mu;            // Expected return
+    private final BigDecimal initialPrice;  // Opening price for simulated feeds
+    private final int contractSize;         // Shares per option contract
+
+    public SecurityDefinition(String ticker, BigDecimal sigma, BigDecimal mu, BigDecimal initialPrice,
+                              int contractSize) {
+        this.ticker = ticker;
+        this.sigma = sigma;
+        this.mu = mu;
+        this.initialPrice = initialPrice;
+        this.contractSize = contractSize;
+    }
+}
@@ -0,0 +1,272 @@
+package com.trading.master;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Security definitions stored in an embedded H2 database with a read-through cache.
+ * <p>
+ * Every row carries a version drawn from a sequence on each insert or update, so
+ * {@link #refresh()} only reads rows changed since the last refresh. All rows are cached on
+ * construction; afterwards a lookup reaches the database only for a ticker the cache has
+ * never seen, and the answer (including "not defined") is cached until the next refresh.
+ * <p>
+ * Definitions changed by a refresh are passed to the registered listeners, so they reach
+ * live objects too: {@link #applyDefinitions} re-applies them to interned securities, and
+ * a {@link com.trading.market.MockMarketDataProvider} re-reads its price process.
+ */
+public class SecurityMaster implements AutoCloseable {
+    public static final String DEFAULT_URL = "jdbc:h2:mem:securitymaster;DB_CLOSE_DELAY=-1";
+    private static final int BATCH_SIZE = 1000;
+    private static final int DECIMAL_PLACES = 4;
+
+    private static final String MERGE_SQL = "MERGE INTO security_definition "
+            + "(ticker, sigma, mu, initial_price, contract_size, version) KEY (ticker) "
+            + "VALUES (?, ?, ?, ?, ?, NEXT VALUE FOR security_definition_version)";
+    private static final String SELECT_COLUMNS = "SELECT ticker, sigma, mu, initial_price, contract_size, version "
+            + "FROM security_definition ";
+
+    private final Connection connection;
+    private final Map<String, Optional<SecurityDefinition>> cache = new ConcurrentHashMap<>();
+    private final List<Consumer<List<SecurityDefinition>>> listeners = new CopyOnWriteArrayList<>();
+    private long lastVersion;
+
+    public SecurityMaster() throws SQLException {
+        this(DEFAULT_URL);
+    }
+
+    public SecurityMaster(String url) throws SQLException {
+        this.connection = DriverManager.getConnection(url, "sa", "");
+        createSchema();
+        refresh();
+    }
+
+    /**
+     * Inserts or updates definitions in batches of prepared statements within one
+     * transaction, then refreshes the cache.
+     */
+    public synchronized int load(Collection<SecurityDefinition> definitions) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_SQL)) {
+            int pending = 0;
+            for (SecurityDefinition definition : definitions) {
+                statement.setString(1, definition.getTicker());
+                statement.setBigDecimal(2, definition.getSigma());
+                statement.setBigDecimal(3, definition.getMu());
+                statement.setBigDecimal(4, definition.getInitialPrice());
+                statement.setInt(5, definition.getContractSize());
+                statement.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        refresh();
+        return definitions.size();
+    }
+
+    /**
+     * Bulk-loads a classpath CSV with the header {@code Ticker,Sigma,Mu,InitialPrice,ContractSize}.
+     */
+    public int loadCsv(String resourcePath) throws IOException {
+        List<SecurityDefinition> definitions = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(getClass().getResourceAsStream(resourcePath)))) {
+            // Skip header
+            reader.readNext();
+
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                definitions.add(new SecurityDefinition(line[0].trim(),
+                        new BigDecimal(line[1].trim()),
+                        new BigDecimal(line[2].trim()),
+                        new BigDecimal(line[3].trim()),
+                        Integer.parseInt(line[4].trim())));
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("Error reading CSV file", e);
+        }
+
+        try {
+            return load(definitions);
+        } catch (SQLException e) {
+            throw new IOException("Error loading security definitions", e);
+        }
+    }
+
+    /**
+     * Called with the definitions inserted or updated since the previous refresh, on the
+     * refreshing thread and only when there are any.
+     */
+    public void addListener(Consumer<List<SecurityDefinition>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Pulls rows inserted or updated since the last refresh into the cache, passes them to
+     * the listeners and returns how many there were.
+     */
+    public synchronized int refresh() throws SQLException {
+        List<SecurityDefinition> changed = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                SELECT_COLUMNS + "WHERE version > ? ORDER BY version")) {
+            statement.setLong(1, lastVersion);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    SecurityDefinition definition = toDefinition(rows);
+                    cache.put(definition.getTicker(), Optional.of(definition));
+                    lastVersion = rows.getLong("version");
+                    changed.add(definition);
+                }
+            }
+        }
+        // Forget cached misses so tickers defined since are looked up again
+        cache.values().removeIf(entry -> !entry.isPresent());
+        if (!changed.isEmpty()) {
+            listeners.forEach(listener -> listener.accept(changed));
+        }
+        return changed.size();
+    }
+
+    // Definition for the ticker, or null if it is not in the master
+    public SecurityDefinition get(String ticker) {
+        Optional<SecurityDefinition> cached = cache.get(ticker);
+        if (cached == null) {
+            cached = select(ticker);
+            Optional<SecurityDefinition> raced = cache.putIfAbsent(ticker, cached);
+            if (raced != null) {
+                cached = raced;
+            }
+        }
+        return cached.orElse(null);
+    }
+
+    public BigDecimal getInitialPrice(String ticker) {
+        SecurityDefinition definition = get(ticker);
+        return definition != null ? definition.getInitialPrice() : null;
+    }
+
+    /**
+     * Replaces the default sigma, mu and contract size of {@code security} with those of
+     * its ticker's definition, if there is one, and returns the security.
+     */
+    public Security applyDefinition(Security security) {
+        SecurityDefinition definition = get(security.getTicker());
+        if (definition != null) {
+            apply(definition, security);
+        }
+        return security;
+    }
+
+    /**
+     * Applies {@code definitions} to every security interned in {@code registry} on their
+     * tickers and returns the option securities whose sigma or contract size changed. Their
+     * holders should then revalue and refresh their contracts and drop them from any price
+     * cache. An option whose sigma was solved from market prices keeps it.
+     */
+    public static List<Security> applyDefinitions(SecurityRegistry registry, Collection<SecurityDefinition> definitions) {
+        Map<String, SecurityDefinition> byTicker = new HashMap<>();
+        definitions.forEach(definition -> byTicker.put(definition.getTicker(), definition));
+        List<Security> repriced = new ArrayList<>();
+        registry.forEach(security -> {
+            SecurityDefinition definition = byTicker.get(security.getTicker());
+            if (definition != null && apply(definition, security) && security.getType() != SecurityType.STOCK) {
+                repriced.add(security);
+            }
+        });
+        return repriced;
+    }
+
+    // Returns whether sigma or contract size changed
+    private static boolean apply(SecurityDefinition definition, Security security) {
+        boolean changed = false;
+        if (!security.isImpliedSigma()) {
+            BigDecimal sigma = definition.getSigma().setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+            changed = security.getSigma() == null || sigma.compareTo(security.getSigma()) != 0;
+            security.setSigma(sigma);
+        }
+        security.setMu(definition.getMu().setScale(DECIMAL_PLACES, RoundingMode.HALF_UP));
+        BigDecimal contractSize = new BigDecimal(definition.getContractSize());
+        if (contractSize.compareTo(security.getContractSize()) != 0) {
+            security.setContractSize(contractSize);
+            changed = true;
+        }
+        return changed;
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        connection.close();
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS security_definition_version");
+            statement.execute("CREATE TABLE IF NOT EXISTS security_definition ("
+                    + "ticker VARCHAR(32) PRIMARY KEY, "
+                    + "sigma DECIMAL(10, 4) NOT NULL, "
+                    + "mu DECIMAL(10, 4) NOT NULL, "
+                    + "initial_price DECIMAL(19, 4) NOT NULL, "
+                    + "contract_size INT NOT NULL, "
+                    + "version BIGINT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS security_definition_version_idx "
+                    + "ON security_definition (version)");
+        }
+    }
+
+    private synchronized Optional<SecurityDefinition> select(String ticker) {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COLUMNS + "WHERE ticker = ?")) {
+            statement.setString(1, ticker);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? Optional.of(toDefinition(rows)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Security master lookup failed for " + ticker, e);
+        }
+    }
+
+    private static SecurityDefinition toDefinition(ResultSet rows) throws SQLException {
+        return new SecurityDefinition(rows.getString("ticker"),
+                rows.getBigDecimal("sigma"),
+                rows.getBigDecimal("mu"),
+                rows.getBigDecimal("initial_price"),
+                rows.getInt("contract_size"));
+    }
+}
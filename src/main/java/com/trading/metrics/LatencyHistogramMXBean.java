@@ -0,0 +1,22 @@
+package com.trading.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. Times are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
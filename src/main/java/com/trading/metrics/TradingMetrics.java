@@ -0,0 +1,157 @@
+package com.trading.metrics;
+
+import com.trading.runtime.ExecutionRuntime;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency and throughput instrumentation for the tick-to-valuation path.
+ * <p>
+ * Instrumented code holds on to the histograms and counters it records into and checks
+ * {@link #isEnabled()} before reading the clock, so with metrics switched off a tick
+ * costs one volatile read. Metrics start enabled unless the JVM is started with
+ * {@code -Dtrading.metrics=false}, and can be toggled at runtime over JMX. Gauges such as
+ * listener counts and queue depths are only read when metrics are dumped or queried.
+ */
+public class TradingMetrics implements TradingMetricsMXBean {
+    public static final String DOMAIN = "com.trading";
+
+    private static volatile TradingMetrics shared;
+
+    private final LatencyHistogram tickToUpdate = new LatencyHistogram("tick-to-update");
+    private final LatencyHistogram reprice = new LatencyHistogram("reprice");
+    private final Map<String, LongAdder> tickCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private boolean registered;
+
+    public TradingMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static TradingMetrics shared() {
+        TradingMetrics instance = shared;
+        if (instance == null) {
+            synchronized (TradingMetrics.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new TradingMetrics(!"false".equalsIgnoreCase(System.getProperty("trading.metrics")));
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // From a tick entering the dispatch stage until its listeners have updated the positions
+    public LatencyHistogram getTickToUpdate() {
+        return tickToUpdate;
+    }
+
+    // Time for an underlying group to revalue its positions on one tick
+    public LatencyHistogram getReprice() {
+        return reprice;
+    }
+
+    /**
+     * Counter of ticks received for {@code ticker}; look it up once and keep it.
+     */
+    public LongAdder tickCounter(String ticker) {
+        return tickCounts.computeIfAbsent(ticker, k -> new LongAdder());
+    }
+
+    /**
+     * Registers a value read on demand, replacing any gauge of the same name.
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    @Override
+    public Map<String, Long> getTickCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        tickCounts.forEach((ticker, counter) -> counts.put(ticker, counter.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Metrics:\n");
+        summary.append("  ").append(tickToUpdate.summary()).append('\n');
+        summary.append("  ").append(reprice.summary()).append('\n');
+        summary.append("  ticks: ").append(getTickCounts()).append('\n');
+        summary.append("  gauges: ").append(getGauges());
+        return summary.toString();
+    }
+
+    /**
+     * Registers this instance and its histograms with the platform MBean server under
+     * {@value #DOMAIN}. Later calls do nothing.
+     */
+    public synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, this, new ObjectName(DOMAIN + ":type=Metrics"));
+            register(server, tickToUpdate, new ObjectName(DOMAIN + ":type=Latency,name=" + tickToUpdate.getName()));
+            register(server, reprice, new ObjectName(DOMAIN + ":type=Latency,name=" + reprice.getName()));
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints {@link #getSummary()} every {@code period} while metrics are enabled.
+     */
+    public ExecutionRuntime.ScheduledJob scheduleLogDump(ExecutionRuntime runtime, long period, TimeUnit unit) {
+        return runtime.schedulePeriodic(() -> {
+            if (enabled) {
+                System.out.println(getSummary());
+            }
+        }, period, unit);
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Another instance in this JVM registered first; replace it
+            server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        }
+    }
+}
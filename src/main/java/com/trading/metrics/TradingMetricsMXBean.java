@@ -0,0 +1,20 @@
+package com.trading.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link TradingMetrics}; latency histograms are registered as their own beans.
+ */
+public interface TradingMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // Ticks received per ticker
+    Map<String, Long> getTickCounts();
+
+    // Listener counts, queue depths and other registered gauges
+    Map<String, Long> getGauges();
+
+    String getSummary();
+}
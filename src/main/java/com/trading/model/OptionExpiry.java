@@ -0,0 +1,49 @@
+package com.trading.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Expiry dates and year fractions for listed options. Monthly options expire on the
+ * third Friday of the month, at the close.
+ */
+public final class OptionExpiry {
+    public static final LocalTime EXPIRY_TIME = LocalTime.of(16, 0);
+    private static final BigDecimal DAYS_PER_YEAR = new BigDecimal("365");
+    private static final double SECONDS_PER_YEAR = 365.0 * 24 * 60 * 60;
+    private static final int DECIMAL_PLACES = 4;
+    private static final int INTRADAY_DECIMAL_PLACES = 6;
+
+    private OptionExpiry() {
+    }
+
+    public static LocalDate monthlyExpiry(int year, Month month) {
+        return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.FRIDAY));
+    }
+
+    /**
+     * Whole days from {@code today} to {@code expiry} in years (days / 365), to four places.
+     */
+    public static BigDecimal yearsToExpiry(LocalDate today, LocalDate expiry) {
+        return new BigDecimal(ChronoUnit.DAYS.between(today, expiry))
+                .divide(DAYS_PER_YEAR, DECIMAL_PLACES, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Time from {@code now} to the close on {@code expiry} in years, to six places (about
+     * 30 seconds), and never negative.
+     */
+    public static BigDecimal yearsToExpiry(ZonedDateTime now, LocalDate expiry) {
+        ZonedDateTime close = expiry.atTime(EXPIRY_TIME).atZone(now.getZone());
+        double seconds = ChronoUnit.MILLIS.between(now, close) / 1000.0;
+        return BigDecimal.valueOf(Math.max(seconds, 0.0) / SECONDS_PER_YEAR)
+                .setScale(INTRADAY_DECIMAL_PLACES, RoundingMode.HALF_UP);
+    }
+}
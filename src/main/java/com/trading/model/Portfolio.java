@@ -1,69 +1,411 @@
 package com.trading.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Positions of one book, readable from any thread without locks.
+ * <p>
+ * Adding and removing positions is serialized, and each change publishes a new version
+ * of the position lists. An append fills spare capacity and then publishes the larger
+ * size. A removal copies. A list once handed out never changes. Each position publishes
+ * its quantity, price and value together as one {@link PositionState}. Prices of a
+ * ticker must come from one thread at a time, which brackets each tick with the ticker's
+ * {@link TickerBook}. That lets {@link #snapshot()} read every position on a ticker as
+ * of the same tick.
+ */
 @Getter
 public class Portfolio {
-    private final List<Position> positions;
-    private final Map<Security, Position> positionsBySecurity;
     private static final int DECIMAL_PLACES = 2;
 
+    // Numbers the securities; positions are found by id rather than by hashing the security
+    @Getter(AccessLevel.NONE)
+    private final SecurityRegistry registry;
+
+    // Position per security id, sized to this portfolio rather than to the registry. Slots are
+    // written under the structure lock and the table is republished after each write
+    @Getter(AccessLevel.NONE)
+    private volatile PositionTable positionsById = new PositionTable(PositionTable.MIN_CAPACITY);
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, TickerBook> books = new ConcurrentHashMap<>();
+
+    // Serializes structural changes; never taken on the tick path or by readers
+    @Getter(AccessLevel.NONE)
+    private final Object structureLock = new Object();
+
+    @Getter(AccessLevel.NONE)
+    private volatile Members positions = Members.EMPTY;
+
+    // Odd while a removal renumbers positions
+    @Getter(AccessLevel.NONE)
+    private volatile long layoutSequence;
+
+    // Running sum of position market values in cents, maintained from per-position deltas
+    @Getter(AccessLevel.NONE)
+    private final LongAdder runningTotalCents = new LongAdder();
+
     public Portfolio() {
-        this.positions = new ArrayList<>();
-        this.positionsBySecurity = new ConcurrentHashMap<>();
+        this(SecurityRegistry.shared());
+    }
+
+    public Portfolio(SecurityRegistry registry) {
+        this.registry = registry;
     }
 
     public Portfolio(List<Position> positions) {
-        this.positions = new ArrayList<>();
-        this.positionsBySecurity = new ConcurrentHashMap<>();
+        this();
         positions.forEach(this::addPosition);
     }
 
     public void addPosition(Position position) {
         Security security = position.getSecurity();
-        Position existingPosition = positionsBySecurity.get(security);
+        synchronized (structureLock) {
+            int id = registry.idOf(security);
+            Position existingPosition = positionAt(id);
+            if (existingPosition != null) {
+                // Merge positions with the same security
+                BigDecimal newQuantity = existingPosition.getQuantity().add(position.getQuantity());
+                existingPosition.setQuantity(newQuantity);
+                return;
+            }
 
-        if (existingPosition != null) {
-            // Merge positions with the same security
-            BigDecimal newQuantity = existingPosition.getQuantity().add(position.getQuantity());
-            existingPosition.setQuantity(newQuantity);
-        } else {
-            positions.add(position);
-            positionsBySecurity.put(security, position);
+            Members current = positions;
+            TickerBook book = books.computeIfAbsent(security.getTicker(), TickerBook::new);
+            // The ticker's list is published first, so a reader that sees the position also finds it there
+            book.members = book.members.append(position, current.size);
+            setPositionAt(id, position);
+            position.attach(this);
+            adjustTotalValue(position.getState().getMarketValueCents());
+            positions = current.append(position, -1);
         }
     }
 
+    public Position removePosition(Security security) {
+        synchronized (structureLock) {
+            int id = registry.find(security);
+            Position removed = positionAt(id);
+            if (removed != null) {
+                setPositionAt(id, null);
+                removed.detach();
+                adjustTotalValue(-removed.getState().getMarketValueCents());
+                relayout(removed);
+            }
+            return removed;
+        }
+    }
+
+    // Later positions move down one slot, so every list is rebuilt and published inside the layout sequence
+    private void relayout(Position removed) {
+        Members current = positions;
+        Members remaining = Members.EMPTY;
+        Map<TickerBook, Members> byTicker = new HashMap<>();
+        for (int i = 0; i < current.size; i++) {
+            Position position = current.positions[i];
+            if (position != removed) {
+                TickerBook book = books.get(position.getSecurity().getTicker());
+                byTicker.put(book, byTicker.getOrDefault(book, Members.EMPTY).append(position, remaining.size));
+                remaining = remaining.append(position, -1);
+            }
+        }
+
+        layoutSequence++;
+        for (TickerBook book : books.values()) {
+            book.members = byTicker.getOrDefault(book, Members.EMPTY);
+        }
+        positions = remaining;
+        layoutSequence++;
+    }
+
     public void updatePrice(String ticker, BigDecimal price) {
-        positions.stream()
-                .filter(position -> position.getSecurity().getTicker().equals(ticker))
-                .forEach(position -> position.updatePrice(price));
+        // Only the stock and option positions on this ticker are touched
+        TickerBook book = books.get(ticker);
+        if (book != null) {
+            book.beginUpdate();
+            try {
+                Members tickerPositions = book.members;
+                for (int i = 0; i < tickerPositions.size; i++) {
+                    tickerPositions.positions[i].updatePrice(price);
+                }
+            } finally {
+                book.endUpdate();
+            }
+        }
     }
 
     public BigDecimal getTotalValue() {
-        return positions.stream()
-                .map(Position::getMarketValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(runningTotalCents.sum(), DECIMAL_PLACES);
+    }
+
+    /**
+     * Every position with its quantity, price and value, and their total, without blocking
+     * writers. Positions on one ticker all reflect the same tick.
+     */
+    public PortfolioSnapshot snapshot() {
+        while (true) {
+            long layout = layoutSequence;
+            if ((layout & 1) == 0) {
+                Members current = positions;
+                PositionState[] states = new PositionState[current.size];
+                for (TickerBook book : books.values()) {
+                    book.readInto(states);
+                }
+                if (layoutSequence == layout && isComplete(states)) {
+                    return new PortfolioSnapshot(states);
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    private static boolean isComplete(PositionState[] states) {
+        for (PositionState state : states) {
+            if (state == null) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    // Full re-summation of every position, bypassing the running total
+    public BigDecimal recomputeTotalValue() {
+        return snapshot().getTotalValue();
+    }
+
+    /**
+     * Running total minus a full recompute. Ticks landing between the two reads show up as
+     * drift that goes away on the next check, so the drift is reported and never applied;
+     * only drift that persists points at a lost delta.
+     */
+    public BigDecimal getTotalValueDrift() {
+        return getTotalValue().subtract(recomputeTotalValue());
+    }
+
+    void adjustTotalValue(long deltaCents) {
+        if (deltaCents != 0) {
+            runningTotalCents.add(deltaCents);
+        }
+    }
+
+    // Current version of the position list; it does not change once returned
     public List<Position> getPositions() {
-        return Collections.unmodifiableList(positions);
+        return positions.asList();
     }
 
     public Position getPosition(Security security) {
-        return positionsBySecurity.get(security);
+        return positionAt(registry.find(security));
+    }
+
+    private Position positionAt(int id) {
+        return id >= 0 ? positionsById.get(id) : null;
+    }
+
+    // Caller holds the structure lock
+    private void setPositionAt(int id, Position position) {
+        // Volatile write publishes the slot, or a grown table, to lock-free readers
+        positionsById = positionsById.put(id, position);
+    }
+
+    // Slots in the id table, for tests
+    int positionTableCapacity() {
+        return positionsById.ids.length;
+    }
+
+    // Revalues the positions held in these securities at their current prices; returns how many
+    public int revalue(Collection<Security> securities) {
+        int revalued = 0;
+        for (Security security : securities) {
+            Position position = getPosition(security);
+            if (position != null) {
+                position.revalue();
+                revalued++;
+            }
+        }
+        return revalued;
     }
 
     public List<Position> getPositionsByTicker(String ticker) {
-        return positions.stream()
-                .filter(position -> position.getSecurity().getTicker().equals(ticker))
-                .collect(java.util.stream.Collectors.toList());
+        TickerBook book = books.get(ticker);
+        return book != null ? new ArrayList<>(book.members.asList()) : new ArrayList<>();
+    }
+
+    // Handle for bracketing price updates of a ticker, or null if the portfolio never held it
+    public TickerBook getTickerBook(String ticker) {
+        return books.get(ticker);
+    }
+
+    /**
+     * Positions on one ticker and the sequence that brackets their price updates. The
+     * sequence is odd while an update is in progress.
+     */
+    public static final class TickerBook {
+        private static final AtomicLongFieldUpdater<TickerBook> SEQUENCE =
+                AtomicLongFieldUpdater.newUpdater(TickerBook.class, "sequence");
+
+        @Getter
+        private final String ticker;
+        private volatile Members members = Members.EMPTY;
+        private volatile long sequence;
+
+        private TickerBook(String ticker) {
+            this.ticker = ticker;
+        }
+
+        // Meant for the one thread delivering this ticker's prices. The increments are atomic, so an
+        // overlapping writer can at worst tear one read and never leaves the sequence odd
+        public void beginUpdate() {
+            SEQUENCE.incrementAndGet(this);
+        }
+
+        public void endUpdate() {
+            SEQUENCE.incrementAndGet(this);
+        }
+
+        // Copies the states of this ticker's positions, all from between two updates, into their slots
+        private void readInto(PositionState[] states) {
+            while (true) {
+                long before = sequence;
+                if ((before & 1) == 0) {
+                    Members current = members;
+                    for (int i = 0; i < current.size; i++) {
+                        int index = current.indices[i];
+                        // Positions added after the caller read the portfolio's list are left out
+                        if (index < states.length) {
+                            states[index] = current.positions[i].getState();
+                        }
+                    }
+                    if (sequence == before) {
+                        return;
+                    }
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Open-addressing map from registry id to position. A removed position leaves its id
+     * behind with a null position, so probes for other ids still pass over it; growing
+     * rehashes only the live entries into a new table, which is filled before it is
+     * published. A reader racing an insert may miss the new position, never see a wrong one.
+     */
+    private static final class PositionTable {
+        private static final int MIN_CAPACITY = 16;
+
+        // Id plus one, 0 for a slot never used
+        private final int[] ids;
+        private final Position[] positions;
+        private int used;
+        private int size;
+
+        private PositionTable(int capacity) {
+            ids = new int[capacity];
+            positions = new Position[capacity];
+        }
+
+        private Position get(int id) {
+            int mask = ids.length - 1;
+            for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+                int key = ids[i];
+                if (key == 0) {
+                    return null;
+                }
+                if (key == id + 1) {
+                    return positions[i];
+                }
+            }
+        }
+
+        // Returns the table now holding the entry, this one or a larger copy
+        private PositionTable put(int id, Position position) {
+            int mask = ids.length - 1;
+            int i = slot(id, mask);
+            while (ids[i] != 0 && ids[i] != id + 1) {
+                i = (i + 1) & mask;
+            }
+            if (ids[i] == 0) {
+                if (position == null) {
+                    return this;
+                }
+                if ((used + 1) * 4 > ids.length * 3) {
+                    return grow().put(id, position);
+                }
+                used++;
+            }
+            if (positions[i] == null && position != null) {
+                size++;
+            } else if (positions[i] != null && position == null) {
+                size--;
+            }
+            // Readers see both writes once the table is republished
+            positions[i] = position;
+            ids[i] = id + 1;
+            return this;
+        }
+
+        private PositionTable grow() {
+            int capacity = MIN_CAPACITY;
+            while (capacity < (size + 1) * 2) {
+                capacity *= 2;
+            }
+            PositionTable grown = new PositionTable(capacity);
+            for (int i = 0; i < ids.length; i++) {
+                if (positions[i] != null) {
+                    grown.put(ids[i] - 1, positions[i]);
+                }
+            }
+            return grown;
+        }
+
+        // Registry ids are dense, so they are spread before masking
+        private static int slot(int id, int mask) {
+            int hash = id * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    // The first size slots of a shared array; a slot is never written again once published
+    private static final class Members {
+        private static final Members EMPTY = new Members(new Position[0], new int[0], 0);
+
+        private final Position[] positions;
+        // Portfolio-wide index of each position, for ticker lists
+        private final int[] indices;
+        private final int size;
+
+        private Members(Position[] positions, int[] indices, int size) {
+            this.positions = positions;
+            this.indices = indices;
+            this.size = size;
+        }
+
+        // Only valid on the latest version, under the structure lock
+        private Members append(Position position, int index) {
+            Position[] items = positions;
+            int[] itemIndices = indices;
+            if (size == items.length) {
+                int capacity = Math.max(4, size * 2);
+                items = Arrays.copyOf(items, capacity);
+                itemIndices = Arrays.copyOf(itemIndices, capacity);
+            }
+            items[size] = position;
+            itemIndices[size] = index;
+            return new Members(items, itemIndices, size + 1);
+        }
+
+        private List<Position> asList() {
+            return Collections.unmodifiableList(Arrays.asList(positions).subList(0, size));
+        }
     }
-}
\ No newline at end of file
+}
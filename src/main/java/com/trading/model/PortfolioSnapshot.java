@@ -0,0 +1,29 @@
+package com.trading.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of a portfolio at one point: every position's state, in portfolio
+ * order, and the total of their market values.
+ */
+@Getter
+public final class PortfolioSnapshot {
+    private static final int DECIMAL_PLACES = 2;
+
+    private final List<PositionState> positions;
+    private final BigDecimal totalValue;
+
+    PortfolioSnapshot(PositionState[] states) {
+        long totalCents = 0;
+        for (PositionState state : states) {
+            totalCents += state.getMarketValueCents();
+        }
+        this.positions = Collections.unmodifiableList(Arrays.asList(states));
+        this.totalValue = BigDecimal.valueOf(totalCents, DECIMAL_PLACES);
+    }
+}
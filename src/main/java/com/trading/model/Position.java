@@ -1,46 +1,129 @@
 package com.trading.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Position {
-    private Security security;
-    private BigDecimal quantity;
-    private BigDecimal marketPrice;
+    private static final AtomicReferenceFieldUpdater<Position, PositionState> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(Position.class, PositionState.class, "state");
 
-    private static final BigDecimal OPTION_CONTRACT_SIZE = new BigDecimal("100");
-    private static final int DECIMAL_PLACES = 2;
+    // Security, quantity, price and market value, replaced as a whole on every change
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile PositionState state = PositionState.EMPTY;
+
+    // Option sensitivities from the last full reprice (zero for stocks)
+    private double delta;
+    private double gamma;
+    private double vega;
+    private double theta;
+
+    // Owning portfolio, notified of market value deltas
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Portfolio portfolio;
 
     public Position(Security security, BigDecimal quantity) {
-        this.security = security;
-        this.quantity = quantity;
-        this.marketPrice = BigDecimal.ZERO;
+        this.state = new PositionState(security, quantity, BigDecimal.ZERO);
+    }
+
+    public Position(Security security, BigDecimal quantity, BigDecimal marketPrice) {
+        this.state = new PositionState(security, quantity, marketPrice);
+    }
+
+    // Quantity, price and value as of one instant; the individual getters may each see a different update
+    public PositionState getState() {
+        return state;
+    }
+
+    public Security getSecurity() {
+        return state.getSecurity();
+    }
+
+    public BigDecimal getQuantity() {
+        return state.getQuantity();
+    }
+
+    public BigDecimal getMarketPrice() {
+        return state.getMarketPrice();
     }
 
     public BigDecimal getMarketValue() {
-        // For stocks: quantity * price
-        // For options: quantity * price * 100 (standard contract size)
-        BigDecimal value = quantity.multiply(marketPrice);
-
-        if (security.getType() == SecurityType.STOCK) {
-            return value.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
-        } else {
-            // For options, multiply by contract size (100 shares per contract)
-            return value.multiply(OPTION_CONTRACT_SIZE).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
-        }
+        return state.getMarketValue();
+    }
+
+    public BigDecimal calculateMarketValue() {
+        PositionState current = state;
+        return PositionState.calculateMarketValue(current.getSecurity(), current.getQuantity(), current.getMarketPrice());
     }
 
     // Update the current price of the position
     public void updatePrice(BigDecimal newPrice) {
-        this.marketPrice = newPrice;
+        PositionState current;
+        PositionState next;
+        do {
+            current = state;
+            next = current.withMarketPrice(newPrice);
+        } while (!STATE.compareAndSet(this, current, next));
+        revalued(current, next);
+    }
+
+    public void setMarketPrice(BigDecimal marketPrice) {
+        updatePrice(marketPrice);
+    }
+
+    // May race with price updates on the tick thread; neither change is lost
+    public void setQuantity(BigDecimal quantity) {
+        PositionState current;
+        PositionState next;
+        do {
+            current = state;
+            next = current.withQuantity(quantity);
+        } while (!STATE.compareAndSet(this, current, next));
+        revalued(current, next);
+    }
+
+    public void setSecurity(Security security) {
+        PositionState current;
+        PositionState next;
+        do {
+            current = state;
+            next = current.withSecurity(security);
+        } while (!STATE.compareAndSet(this, current, next));
+        revalued(current, next);
+    }
+
+    // Recomputes the market value at the current price, e.g. after the contract size changed
+    public void revalue() {
+        PositionState current;
+        PositionState next;
+        do {
+            current = state;
+            next = current.withSecurity(current.getSecurity());
+        } while (!STATE.compareAndSet(this, current, next));
+        revalued(current, next);
+    }
+
+    void attach(Portfolio portfolio) {
+        this.portfolio = portfolio;
+    }
+
+    void detach() {
+        this.portfolio = null;
+    }
+
+    private void revalued(PositionState oldState, PositionState newState) {
+        Portfolio owner = portfolio;
+        if (owner != null) {
+            owner.adjustTotalValue(newState.getMarketValueCents() - oldState.getMarketValueCents());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.trading.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Quantity, price and market value of a position at one instant. A position publishes a
+ * new state on every change, so the fields of one state always agree with each other.
+ */
+@Getter
+public final class PositionState {
+    private static final int DECIMAL_PLACES = 2;
+    static final PositionState EMPTY = new PositionState(null, null, null);
+
+    private final Security security;
+    private final BigDecimal quantity;
+    private final BigDecimal marketPrice;
+    private final BigDecimal marketValue;
+    // Market value in cents, for the portfolio's running total and snapshot sums
+    @Getter(AccessLevel.NONE)
+    private final long marketValueCents;
+
+    PositionState(Security security, BigDecimal quantity, BigDecimal marketPrice) {
+        this.security = security;
+        this.quantity = quantity;
+        this.marketPrice = marketPrice;
+        this.marketValue = calculateMarketValue(security, quantity, marketPrice);
+        this.marketValueCents = marketValue.movePointRight(DECIMAL_PLACES).longValueExact();
+    }
+
+    PositionState withSecurity(Security security) {
+        return new PositionState(security, quantity, marketPrice);
+    }
+
+    PositionState withQuantity(BigDecimal quantity) {
+        return new PositionState(security, quantity, marketPrice);
+    }
+
+    PositionState withMarketPrice(BigDecimal marketPrice) {
+        return new PositionState(security, quantity, marketPrice);
+    }
+
+    long getMarketValueCents() {
+        return marketValueCents;
+    }
+
+    static BigDecimal calculateMarketValue(Security security, BigDecimal quantity, BigDecimal marketPrice) {
+        if (security == null || quantity == null || marketPrice == null) {
+            return BigDecimal.ZERO.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        }
+
+        // For stocks: quantity * price
+        // For options: quantity * price * contract size (100 by default)
+        BigDecimal value = quantity.multiply(marketPrice);
+
+        if (security.getType() == SecurityType.STOCK) {
+            return value.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        } else {
+            // For options, multiply by contract size
+            return value.multiply(security.getContractSize()).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.trading.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.Month;
 import java.util.Objects;
 
@@ -21,7 +23,24 @@ public class Security {
     // Original option details for display purposes
     private Month expirationMonth;   // Original expiration month
     private Integer expirationYear;  // Original expiration year
+    // When set, identifies the option in place of timeToMaturity, which then changes over time
+    private LocalDate expirationDate;
 
+    private BigDecimal contractSize = STANDARD_CONTRACT_SIZE; // Shares per option contract
+
+    // Sigma was solved from a market price; the security master's sigma no longer applies
+    private boolean impliedSigma;
+
+    // Dense ID assigned by a SecurityRegistry, -1 until interned
+    @Setter(AccessLevel.NONE)
+    private int id = -1;
+
+    // Cached hashCode, 0 until computed or after an identity field changes
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int hash;
+
+    public static final BigDecimal STANDARD_CONTRACT_SIZE = new BigDecimal("100");
     private static final int DECIMAL_PLACES = 4;
 
     public Security() {
@@ -69,6 +88,53 @@ public class Security {
         this.sigma = sigma.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
         this.expirationMonth = expirationMonth;
         this.expirationYear = expirationYear;
+        if (expirationMonth != null && expirationYear != null) {
+            this.expirationDate = OptionExpiry.monthlyExpiry(expirationYear, expirationMonth);
+        }
+    }
+
+    // Unregistered copy of another registry's security
+    Security(Security other) {
+        this.ticker = other.ticker;
+        this.type = other.type;
+        this.strike = other.strike;
+        this.timeToMaturity = other.timeToMaturity;
+        this.mu = other.mu;
+        this.sigma = other.sigma;
+        this.expirationMonth = other.expirationMonth;
+        this.expirationYear = other.expirationYear;
+        this.expirationDate = other.expirationDate;
+        this.contractSize = other.contractSize;
+        this.impliedSigma = other.impliedSigma;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+        this.hash = 0;
+    }
+
+    public void setType(SecurityType type) {
+        this.type = type;
+        this.hash = 0;
+    }
+
+    public void setStrike(BigDecimal strike) {
+        this.strike = strike;
+        this.hash = 0;
+    }
+
+    public void setTimeToMaturity(BigDecimal timeToMaturity) {
+        this.timeToMaturity = timeToMaturity;
+        this.hash = 0;
+    }
+
+    public void setExpirationDate(LocalDate expirationDate) {
+        this.expirationDate = expirationDate;
+        this.hash = 0;
+    }
+
+    void assignId(int id) {
+        this.id = id;
     }
 
     @Override
@@ -79,12 +145,20 @@ public class Security {
         return Objects.equals(ticker, security.ticker) &&
                type == security.type &&
                Objects.equals(strike, security.strike) &&
-               Objects.equals(timeToMaturity, security.timeToMaturity);
+               Objects.equals(expirationDate, security.expirationDate) &&
+               (expirationDate != null || Objects.equals(timeToMaturity, security.timeToMaturity));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(ticker, type, strike, timeToMaturity);
+        int h = hash;
+        if (h == 0) {
+            h = expirationDate != null
+                    ? Objects.hash(ticker, type, strike, expirationDate)
+                    : Objects.hash(ticker, type, strike, timeToMaturity);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
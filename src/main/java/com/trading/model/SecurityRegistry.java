@@ -0,0 +1,120 @@
+package com.trading.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Interns one canonical {@link Security} per instrument and numbers them densely from 0.
+ * <p>
+ * Positions that refer to the same instrument share one object, and per-instrument state
+ * lives in arrays indexed by {@link Security#getId()}: a portfolio's positions, the option
+ * price cache and the firm valuation index are all looked up by id rather than by hashing
+ * the security. A security keeps its id for good, so later changes to its fields do not
+ * lose it in those tables.
+ */
+public class SecurityRegistry {
+    private static final SecurityRegistry SHARED = new SecurityRegistry();
+
+    private final Map<Security, Security> canonical = new ConcurrentHashMap<>();
+    private final Map<String, Security> bySymbol = new ConcurrentHashMap<>();
+    private volatile Security[] byId = new Security[64];
+    private int size;
+
+    public static SecurityRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the registered instance equal to {@code security}, registering it first if it
+     * is new. Callers should keep the returned instance and drop their own.
+     */
+    public Security intern(Security security) {
+        Security existing = canonical.get(security);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = canonical.get(security);
+            if (existing != null) {
+                return existing;
+            }
+            if (security.getId() >= 0) {
+                // Numbered by another registry; its id must not change under that one
+                security = new Security(security);
+            }
+            Security[] securities = byId;
+            if (size == securities.length) {
+                securities = Arrays.copyOf(securities, size * 2);
+            }
+            security.assignId(size);
+            securities[size++] = security;
+            // Volatile write publishes the new slot to lock-free readers of get(int)
+            byId = securities;
+            canonical.put(security, security);
+            return security;
+        }
+    }
+
+    /**
+     * Interns the security for a position file symbol such as {@code AAPL} or
+     * {@code AAPL-JAN-2024-150-C}. {@code factory} only runs the first time a symbol is seen.
+     */
+    public Security intern(String symbol, Function<String, Security> factory) {
+        Security security = bySymbol.get(symbol);
+        if (security == null) {
+            security = bySymbol.computeIfAbsent(symbol, key -> intern(factory.apply(key)));
+        }
+        return security;
+    }
+
+    /**
+     * Id of {@code security} in this registry, interning it first if it is not the
+     * registered instance. Equal securities always get the same id.
+     */
+    public int idOf(Security security) {
+        int id = find(security);
+        return id >= 0 ? id : intern(security).getId();
+    }
+
+    // Id of the registered security equal to {@code security}, or -1; never registers it
+    public int find(Security security) {
+        int id = security.getId();
+        Security[] securities = byId;
+        if (id >= 0 && id < securities.length && securities[id] == security) {
+            return id;
+        }
+        Security existing = canonical.get(security);
+        return existing != null ? existing.getId() : -1;
+    }
+
+    public Security get(int id) {
+        Security[] securities = byId;
+        if (id < 0 || id >= securities.length || securities[id] == null) {
+            throw new IllegalArgumentException("Unknown security id: " + id);
+        }
+        return securities[id];
+    }
+
+    // Registered security for a position file symbol, or null
+    public Security lookup(String symbol) {
+        return bySymbol.get(symbol);
+    }
+
+    // Visits every registered security in id order
+    public void forEach(Consumer<Security> action) {
+        Security[] securities = byId;
+        for (Security security : securities) {
+            if (security == null) {
+                break;
+            }
+            action.accept(security);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,398 @@
+package com.trading.portfolio;
+
+import com.trading.account.AccountManager;
+import com.trading.market.MarketDataListener;
+import com.trading.market.MarketDataProvider;
+import com.trading.market.Subscription;
+import com.trading.model.Account;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionChainPricer;
+import com.trading.pricing.OptionPriceCache;
+import com.trading.pricing.OptionPriceCalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Values every account in an {@link AccountManager} from a single feed subscription per
+ * ticker, instead of one {@link PortfolioSubscriber} and one listener per position.
+ * <p>
+ * A reverse index maps each ticker to the (account, position) pairs holding it. Each
+ * distinct option {@link Security} is priced once per tick and the price is fanned out to
+ * every holder. Accounts touched by a tick are marked dirty, and only those are
+ * re-aggregated by {@link #refreshDirtyAccounts()}.
+ * <p>
+ * Each tick is bracketed by the {@link Portfolio.TickerBook} of every portfolio holding the
+ * ticker, so portfolio snapshots see the ticker at one price. {@link #refreshContracts()}
+ * plays the same role as {@link PortfolioSubscriber#refreshContracts()}: changed sigma or
+ * time to maturity is picked up on the next tick, and expired options are settled at
+ * intrinsic value.
+ */
+public class FirmValuationService {
+    private static final int DECIMAL_PLACES = 2;
+    private static final int OPTION_DECIMAL_PLACES = 4;
+
+    private final AccountManager accountManager;
+    private final MarketDataProvider marketDataProvider;
+    private final OptionPriceCache priceCache;
+    private final SecurityRegistry registry = SecurityRegistry.shared();
+    private final Map<String, TickerHolders> books = new LinkedHashMap<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Map<String, AccountEntry> accounts = new ConcurrentHashMap<>();
+    private final Queue<AccountEntry> dirtyAccounts = new ConcurrentLinkedQueue<>();
+    private BigDecimal firmTotalValue = BigDecimal.ZERO.setScale(DECIMAL_PLACES);
+
+    public FirmValuationService(AccountManager accountManager, MarketDataProvider marketDataProvider) {
+        this(accountManager, marketDataProvider, null);
+    }
+
+    /**
+     * @param priceCache cache consulted for each distinct option instead of the chain pricer, or null
+     */
+    public FirmValuationService(AccountManager accountManager, MarketDataProvider marketDataProvider,
+                                OptionPriceCache priceCache) {
+        this.accountManager = accountManager;
+        this.marketDataProvider = marketDataProvider;
+        this.priceCache = priceCache;
+    }
+
+    public synchronized void start() {
+        buildIndex();
+        subscribeBooks();
+        marketDataProvider.start();
+    }
+
+    public synchronized void stop() {
+        closeSubscriptions();
+        books.clear();
+        marketDataProvider.stop();
+    }
+
+    /**
+     * Re-reads accounts and positions from the account manager, e.g. after accounts are
+     * opened or closed, and swaps the ticker subscriptions over to the new index.
+     */
+    public synchronized void rebuildIndex() {
+        // The new books subscribe before the old ones let go, so no tick falls in between and
+        // a provider that resets a ticker once its last listener leaves never sees it unwatched
+        List<Subscription> previous = new ArrayList<>(subscriptions);
+        subscriptions.clear();
+        buildIndex();
+        subscribeBooks();
+        previous.forEach(Subscription::close);
+    }
+
+    /**
+     * Makes the next tick of every ticker re-read sigma and time to maturity from the option
+     * securities. Safe to call from any thread, typically a {@link MaturityScheduler} listener.
+     */
+    public synchronized void refreshContracts() {
+        books.values().forEach(TickerHolders::refreshContracts);
+    }
+
+    /**
+     * As {@link #refreshContracts()}, after revaluing the positions in {@code changed} at
+     * their current prices, e.g. when a contract size moved, and marking their accounts for
+     * the next {@link #refreshDirtyAccounts()}.
+     */
+    public synchronized void refreshContracts(Collection<Security> changed) {
+        for (AccountEntry entry : accounts.values()) {
+            if (entry.account.getPortfolio().revalue(changed) > 0) {
+                entry.markDirty();
+            }
+        }
+        refreshContracts();
+    }
+
+    /**
+     * Re-aggregates the accounts touched since the last call and returns how many were
+     * refreshed. Clean accounts are not visited.
+     */
+    public synchronized int refreshDirtyAccounts() {
+        int refreshed = 0;
+        AccountEntry entry;
+        while ((entry = dirtyAccounts.poll()) != null) {
+            entry.dirty.set(false);
+            // Marked by a book from before the last rebuild
+            if (accounts.get(entry.account.getAccountId()) != entry) {
+                continue;
+            }
+            BigDecimal value = entry.account.getTotalValue();
+            firmTotalValue = firmTotalValue.add(value.subtract(entry.value));
+            entry.value = value;
+            refreshed++;
+        }
+        return refreshed;
+    }
+
+    public synchronized BigDecimal getFirmTotalValue() {
+        return firmTotalValue;
+    }
+
+    // Value as of the last refresh, or null for an account that is not indexed
+    public BigDecimal getAccountValue(String accountId) {
+        AccountEntry entry = accounts.get(accountId);
+        return entry != null ? entry.value : null;
+    }
+
+    public int getDirtyAccountCount() {
+        return dirtyAccounts.size();
+    }
+
+    public synchronized int getTickerCount() {
+        return books.size();
+    }
+
+    public synchronized int getDistinctOptionCount() {
+        return books.values().stream().mapToInt(book -> book.options.length).sum();
+    }
+
+    // Expired options settled at intrinsic value and no longer repriced
+    public synchronized long getSettledOptions() {
+        return books.values().stream().mapToLong(book -> book.settledOptions).sum();
+    }
+
+    private void subscribeBooks() {
+        books.forEach((ticker, book) -> {
+            Subscription subscription = marketDataProvider.subscribe(ticker, book);
+            book.subscription = subscription;
+            subscriptions.add(subscription);
+        });
+    }
+
+    private void closeSubscriptions() {
+        subscriptions.forEach(Subscription::close);
+        subscriptions.clear();
+    }
+
+    private void buildIndex() {
+        books.clear();
+        accounts.clear();
+        dirtyAccounts.clear();
+
+        // Holders grouped per ticker by security id, so equal securities are one contract
+        Map<String, Map<Integer, List<Holder>>> holdersByTicker = new LinkedHashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accountManager.getAllAccounts()) {
+            AccountEntry entry = new AccountEntry(account);
+            accounts.put(account.getAccountId(), entry);
+            total = total.add(entry.value);
+
+            for (Position position : account.getPortfolio().getPositions()) {
+                Security security = position.getSecurity();
+                holdersByTicker.computeIfAbsent(security.getTicker(), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(registry.idOf(security), k -> new ArrayList<>())
+                        .add(new Holder(entry, position));
+            }
+        }
+        firmTotalValue = total.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+
+        holdersByTicker.forEach((ticker, holders) -> books.put(ticker, new TickerHolders(ticker, holders, priceCache)));
+    }
+
+    private final class AccountEntry {
+        private final Account account;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile BigDecimal value;
+
+        private AccountEntry(Account account) {
+            this.account = account;
+            this.value = account.getTotalValue();
+        }
+
+        private void markDirty() {
+            if (dirty.compareAndSet(false, true)) {
+                dirtyAccounts.add(this);
+            }
+        }
+    }
+
+    private static final class Holder {
+        private final AccountEntry account;
+        private final Position position;
+
+        private Holder(AccountEntry account, Position position) {
+            this.account = account;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Everything held on one ticker across the firm.
+     */
+    private static final class TickerHolders implements MarketDataListener {
+        private final Position[] stocks;
+        private final AccountEntry[] holderAccounts;
+        private final Portfolio.TickerBook[] books;
+        private final OptionPriceCache priceCache;
+        // Replaced on the tick thread when expired options are dropped
+        private Security[] options;
+        private Position[][] optionHolders;
+        private OptionChainPricer pricer;
+        private double[] prices;
+        private volatile boolean contractsStale;
+        private volatile Subscription subscription;
+        private volatile long settledOptions;
+
+        private TickerHolders(String ticker, Map<Integer, List<Holder>> holdersById, OptionPriceCache priceCache) {
+            this.priceCache = priceCache;
+            List<Position> stockHolders = new ArrayList<>();
+            List<Security> optionSecurities = new ArrayList<>();
+            Set<AccountEntry> touched = new LinkedHashSet<>();
+            Set<Portfolio.TickerBook> tickerBooks = new LinkedHashSet<>();
+
+            Map<Security, Position[]> positionsByOption = new IdentityHashMap<>();
+            holdersById.forEach((id, holders) -> {
+                Security security = holders.get(0).position.getSecurity();
+                if (security.getType() == SecurityType.STOCK) {
+                    holders.forEach(holder -> stockHolders.add(holder.position));
+                } else {
+                    optionSecurities.add(security);
+                    positionsByOption.put(security, holders.stream().map(holder -> holder.position).toArray(Position[]::new));
+                }
+                for (Holder holder : holders) {
+                    touched.add(holder.account);
+                    tickerBooks.add(holder.account.account.getPortfolio().getTickerBook(ticker));
+                }
+            });
+
+            // Group by expiry so the pricer shares sqrt(T) and exp(-rT) across strikes
+            optionSecurities.sort(Comparator.comparing(Security::getTimeToMaturity));
+
+            this.stocks = stockHolders.toArray(new Position[0]);
+            this.options = optionSecurities.toArray(new Security[0]);
+            this.optionHolders = new Position[options.length][];
+            for (int i = 0; i < options.length; i++) {
+                optionHolders[i] = positionsByOption.get(options[i]);
+            }
+            this.holderAccounts = touched.toArray(new AccountEntry[0]);
+            this.books = tickerBooks.toArray(new Portfolio.TickerBook[0]);
+            buildChain();
+            // Options already expired when indexed are settled on the first tick
+            contractsStale = options.length > 0 && options[0].getTimeToMaturity().signum() <= 0;
+        }
+
+        // Same contract as UnderlyingGroup#refreshContracts: the chain is rebuilt on the tick thread
+        private void refreshContracts() {
+            contractsStale = true;
+        }
+
+        @Override
+        public void onPriceUpdate(String ticker, BigDecimal price) {
+            // Every portfolio holding the ticker sees the whole tick or none of it in a snapshot
+            for (Portfolio.TickerBook book : books) {
+                book.beginUpdate();
+            }
+            try {
+                revalue(price);
+            } finally {
+                for (Portfolio.TickerBook book : books) {
+                    book.endUpdate();
+                }
+            }
+
+            for (AccountEntry account : holderAccounts) {
+                account.markDirty();
+            }
+        }
+
+        private void revalue(BigDecimal price) {
+            for (Position stock : stocks) {
+                stock.updatePrice(price);
+            }
+
+            double spot = price.doubleValue();
+            if (contractsStale) {
+                contractsStale = false;
+                reloadContracts(spot);
+            }
+
+            if (options.length > 0) {
+                // One price per distinct contract, shared by every holder
+                if (priceCache != null) {
+                    for (int i = 0; i < options.length; i++) {
+                        prices[i] = priceCache.price(options[i], spot);
+                    }
+                } else {
+                    pricer.price(spot, prices);
+                }
+                for (int i = 0; i < options.length; i++) {
+                    BigDecimal optionPrice = BigDecimal.valueOf(prices[i])
+                            .setScale(OPTION_DECIMAL_PLACES, RoundingMode.HALF_UP);
+                    for (Position holder : optionHolders[i]) {
+                        holder.updatePrice(optionPrice);
+                    }
+                }
+            }
+        }
+
+        // Settles expired contracts at intrinsic value and re-reads sigma and T of the rest
+        private void reloadContracts(double spot) {
+            int live = 0;
+            for (int i = 0; i < options.length; i++) {
+                Security security = options[i];
+                if (security.getTimeToMaturity().signum() > 0) {
+                    options[live] = security;
+                    optionHolders[live] = optionHolders[i];
+                    live++;
+                    continue;
+                }
+                double intrinsic = OptionPriceCalculator.calculateOptionPrice(spot,
+                        security.getStrike().doubleValue(), 0.0, 0.0, security.getType() == SecurityType.CALL_OPTION);
+                BigDecimal settlement = BigDecimal.valueOf(intrinsic).setScale(OPTION_DECIMAL_PLACES, RoundingMode.HALF_UP);
+                for (Position holder : optionHolders[i]) {
+                    holder.updatePrice(settlement);
+                    holder.setDelta(0.0);
+                    holder.setGamma(0.0);
+                    holder.setVega(0.0);
+                    holder.setTheta(0.0);
+                }
+                settledOptions++;
+            }
+            if (live < options.length) {
+                options = Arrays.copyOf(options, live);
+                optionHolders = Arrays.copyOf(optionHolders, live);
+            }
+            buildChain();
+
+            Subscription current = subscription;
+            if (stocks.length == 0 && options.length == 0 && current != null) {
+                current.close();
+            }
+        }
+
+        private void buildChain() {
+            double[] strikes = new double[options.length];
+            double[] maturities = new double[options.length];
+            double[] vols = new double[options.length];
+            boolean[] calls = new boolean[options.length];
+            for (int i = 0; i < options.length; i++) {
+                Security security = options[i];
+                strikes[i] = security.getStrike().doubleValue();
+                maturities[i] = security.getTimeToMaturity().doubleValue();
+                vols[i] = security.getSigma().doubleValue();
+                calls[i] = security.getType() == SecurityType.CALL_OPTION;
+            }
+            prices = new double[options.length];
+            pricer = new OptionChainPricer(strikes, maturities, vols, calls);
+        }
+    }
+}
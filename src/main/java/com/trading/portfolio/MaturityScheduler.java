@@ -0,0 +1,164 @@
+package com.trading.portfolio;
+
+import com.trading.model.OptionExpiry;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCache;
+import com.trading.runtime.ExecutionRuntime;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the time to maturity of option securities current from a {@link Clock}, so the
+ * tick path only ever reads T and never does date arithmetic.
+ * <p>
+ * {@link #recompute()} re-times every option held in the watched portfolios in one pass:
+ * T is computed once per expiry date from a single clock reading and written to each
+ * security, reaching zero once the option has expired. Listeners, typically
+ * {@link PortfolioSubscriber#refreshContracts()}, then pick up the new values on their
+ * next tick, which also settles expired options at intrinsic value and drops feed
+ * subscriptions that have nothing left to value. Options without an expiry date keep
+ * the T they were created with.
+ */
+public class MaturityScheduler {
+    private final Clock clock;
+    private final List<Portfolio> portfolios = new CopyOnWriteArrayList<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile OptionPriceCache priceCache;
+
+    // Guarded by this
+    private LocalDate lastDate;
+    private volatile long recomputes;
+    private volatile int lastChanged;
+    private volatile int expiredOptions;
+
+    public MaturityScheduler() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public MaturityScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void addPortfolio(Portfolio portfolio) {
+        portfolios.add(portfolio);
+    }
+
+    // Called after every recompute that changed at least one time to maturity
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // Cache whose entries for re-timed securities are evicted, or null
+    public void setPriceCache(OptionPriceCache priceCache) {
+        this.priceCache = priceCache;
+    }
+
+    /**
+     * Recomputes T of every option in the watched portfolios as of now and returns the
+     * number of securities whose T changed.
+     */
+    public synchronized int recompute() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        lastDate = now.toLocalDate();
+
+        // Securities are shared between positions and portfolios, so each is re-timed once
+        Set<Security> options = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Portfolio portfolio : portfolios) {
+            for (Position position : portfolio.getPositions()) {
+                Security security = position.getSecurity();
+                if (security.getType() != SecurityType.STOCK && security.getExpirationDate() != null) {
+                    options.add(security);
+                }
+            }
+        }
+
+        Map<LocalDate, BigDecimal> maturities = new HashMap<>();
+        List<Security> changed = new ArrayList<>();
+        int expired = 0;
+        for (Security security : options) {
+            BigDecimal maturity = maturities.computeIfAbsent(security.getExpirationDate(),
+                    expiry -> OptionExpiry.yearsToExpiry(now, expiry));
+            if (maturity.signum() == 0) {
+                expired++;
+            }
+            if (maturity.compareTo(security.getTimeToMaturity()) != 0) {
+                security.setTimeToMaturity(maturity);
+                changed.add(security);
+            }
+        }
+        lastChanged = changed.size();
+        expiredOptions = expired;
+        recomputes++;
+
+        if (!changed.isEmpty()) {
+            OptionPriceCache cache = priceCache;
+            if (cache != null) {
+                cache.invalidateAll(changed);
+            }
+            listeners.forEach(Runnable::run);
+        }
+        return changed.size();
+    }
+
+    /**
+     * Recomputes only if the date has changed since the last recompute, and returns
+     * whether it did. {@link #getLastChanged()} and {@link #getExpiredOptions()} then
+     * describe the roll.
+     */
+    public synchronized boolean recomputeOnDayRoll() {
+        if (LocalDate.now(clock).equals(lastDate)) {
+            return false;
+        }
+        recompute();
+        return true;
+    }
+
+    /**
+     * Recomputes every {@code period}, for intraday time decay.
+     */
+    public ExecutionRuntime.ScheduledJob schedule(ExecutionRuntime runtime, long period, TimeUnit unit) {
+        return runtime.schedulePeriodic(this::recompute, period, unit);
+    }
+
+    /**
+     * Checks for a date change every {@code checkPeriod} and recomputes when the day rolls,
+     * then runs {@code onRoll}, e.g. to log the counts.
+     */
+    public ExecutionRuntime.ScheduledJob scheduleDayRoll(ExecutionRuntime runtime, long checkPeriod, TimeUnit unit,
+                                                         Runnable onRoll) {
+        return runtime.schedulePeriodic(() -> {
+            if (recomputeOnDayRoll()) {
+                onRoll.run();
+            }
+        }, checkPeriod, unit);
+    }
+
+    public long getRecomputes() {
+        return recomputes;
+    }
+
+    // Securities whose time to maturity the last recompute changed
+    public int getLastChanged() {
+        return lastChanged;
+    }
+
+    // Options at zero time to maturity as of the last recompute
+    public int getExpiredOptions() {
+        return expiredOptions;
+    }
+}
@@ -1,167 +1,159 @@
 package com.trading.portfolio;
 
-import com.trading.market.MarketDataListener;
 import com.trading.market.MarketDataProvider;
+import com.trading.market.Subscription;
 import com.trading.model.Account;
 import com.trading.model.Portfolio;
 import com.trading.model.Position;
 import com.trading.model.Security;
-import com.trading.model.SecurityType;
-import com.trading.pricing.OptionPriceCalculator;
+import com.trading.pricing.OptionPriceCache;
+import com.trading.report.PortfolioReport;
+import com.trading.report.ValuationPublisher;
+import com.trading.runtime.ExecutionRuntime;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.time.Month;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PortfolioSubscriber {
     private final Account account;
     private final Portfolio portfolio;
     private final MarketDataProvider marketDataProvider;
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-    private static final int DECIMAL_PLACES = 2;
+    private final ExecutionRuntime runtime;
+    private final List<ExecutionRuntime.ScheduledJob> scheduledJobs = new ArrayList<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    // Read by refreshContracts() from any thread
+    private final List<UnderlyingGroup> groups = new CopyOnWriteArrayList<>();
+    private RevaluationSettings revaluationSettings = RevaluationSettings.full();
+    private OptionPriceCache priceCache;
+    private ValuationPublisher valuationPublisher = ValuationPublisher.console();
+    private boolean changedRowsOnly;
+    private PortfolioReport report;
+    private final LongAdder driftChecks = new LongAdder();
+    private volatile long lastDriftCents;
+    private static final long DRIFT_CHECK_INTERVAL_SECONDS = 60;
 
     public PortfolioSubscriber(Account account, MarketDataProvider marketDataProvider) {
+        this(account, marketDataProvider, ExecutionRuntime.shared());
+    }
+
+    public PortfolioSubscriber(Account account, MarketDataProvider marketDataProvider, ExecutionRuntime runtime) {
         this.account = account;
         this.portfolio = account.getPortfolio();
         this.marketDataProvider = marketDataProvider;
+        this.runtime = runtime;
     }
 
     public PortfolioSubscriber(Portfolio portfolio, MarketDataProvider marketDataProvider) {
+        this(portfolio, marketDataProvider, ExecutionRuntime.shared());
+    }
+
+    public PortfolioSubscriber(Portfolio portfolio, MarketDataProvider marketDataProvider, ExecutionRuntime runtime) {
         this.account = null;
         this.portfolio = portfolio;
         this.marketDataProvider = marketDataProvider;
+        this.runtime = runtime;
+    }
+
+    // Applies to groups created by the next start()
+    public void setRevaluationSettings(RevaluationSettings revaluationSettings) {
+        this.revaluationSettings = revaluationSettings;
+    }
+
+    // Option price cache, typically shared by every subscriber; applies from the next start()
+    public void setPriceCache(OptionPriceCache priceCache) {
+        this.priceCache = priceCache;
+    }
+
+    // Where the periodic valuation report goes; defaults to the shared console publisher
+    public void setValuationPublisher(ValuationPublisher valuationPublisher) {
+        this.valuationPublisher = valuationPublisher;
+    }
+
+    // Report only positions whose quantity or price moved; applies from the next start()
+    public void setChangedRowsOnly(boolean changedRowsOnly) {
+        this.changedRowsOnly = changedRowsOnly;
+    }
+
+    // Picks up changed sigma or time to maturity of option positions from the next tick;
+    // options that reached expiry are settled at intrinsic value
+    public void refreshContracts() {
+        groups.forEach(UnderlyingGroup::refreshContracts);
+    }
+
+    // As above, after revaluing positions in securities whose contract size may have changed
+    public void refreshContracts(Collection<Security> changed) {
+        portfolio.revalue(changed);
+        refreshContracts();
     }
 
     public void start() {
-        // Subscribe to market data for each position
+        // Subscribe once per underlying; stock and option positions on it are valued together
+        Map<String, List<Position>> positionsByTicker = new LinkedHashMap<>();
         for (Position position : portfolio.getPositions()) {
             Security security = position.getSecurity();
-            marketDataProvider.subscribe(security.getTicker(), createListener(position));
+            positionsByTicker.computeIfAbsent(security.getTicker(), k -> new ArrayList<>()).add(position);
         }
+        positionsByTicker.forEach((ticker, positions) -> {
+            UnderlyingGroup group = new UnderlyingGroup(ticker, positions, revaluationSettings, priceCache);
+            groups.add(group);
+            // Before subscribing: the provider may deliver the current price from subscribe()
+            group.setTickerBook(portfolio.getTickerBook(ticker));
+            Subscription subscription = marketDataProvider.subscribe(ticker, group);
+            group.setSubscription(subscription);
+            subscriptions.add(subscription);
+        });
 
         // Start market data provider
         marketDataProvider.start();
 
-        // Schedule portfolio value display
-        executor.scheduleAtFixedRate(this::displayPortfolioValue, 0, 3, TimeUnit.SECONDS);
+        // Schedule portfolio value display; the runtime shares one timer across subscribers
+        // and the publisher formats and writes off the timer thread
+        report = new PortfolioReport(account, portfolio, changedRowsOnly);
+        scheduledJobs.add(runtime.schedulePeriodic(this::displayPortfolioValue, 3, TimeUnit.SECONDS));
+
+        // Periodically check the running total against a full recompute
+        scheduledJobs.add(runtime.schedulePeriodic(this::checkPortfolioValue,
+            DRIFT_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS));
     }
 
     public void stop() {
         // Unsubscribe from market data
-        for (Position position : portfolio.getPositions()) {
-            Security security = position.getSecurity();
-            marketDataProvider.unsubscribe(security.getTicker(), createListener(position));
-        }
+        subscriptions.forEach(Subscription::close);
+        subscriptions.clear();
+        groups.clear();
 
-        // Stop market data provider and executor
+        // Stop market data provider and scheduled jobs
         marketDataProvider.stop();
-        executor.shutdown();
-    }
-
-    private MarketDataListener createListener(Position position) {
-        return (ticker, price) -> {
-            Security security = position.getSecurity();
-            BigDecimal marketPrice = price;
-
-            // Calculate option price if necessary
-            if (security.getType() != SecurityType.STOCK) {
-                marketPrice = OptionPriceCalculator.calculateOptionPrice(
-                    price,
-                    security.getStrike(),
-                    security.getTimeToMaturity(),
-                    security.getSigma(),
-                    security.getType()
-                );
-            }
-
-            // Update position market value
-            position.updatePrice(marketPrice);
-        };
+        scheduledJobs.forEach(ExecutionRuntime.ScheduledJob::close);
+        scheduledJobs.clear();
     }
 
     private void displayPortfolioValue() {
-        List<Position> positions = portfolio.getPositions();
-        BigDecimal totalValue = BigDecimal.ZERO;
-
-        System.out.println("\nPortfolio Value Update:");
-
-        // Display account information if available
-        if (account != null) {
-            System.out.println("Account: " + account.getAccountName() + " (" + account.getAccountId() + ")");
-        }
-
-        System.out.println("Symbol                Type        Quantity    Price       Market Value");
-        System.out.println("---------------------------------------------------------------------");
-
-        for (Position position : positions) {
-            Security security = position.getSecurity();
-            BigDecimal marketValue = position.getMarketValue();
-            totalValue = totalValue.add(marketValue);
-
-            String symbolDisplay = getSymbolDisplay(security);
-            String typeDisplay = getTypeDisplay(security);
-
-            System.out.printf("%-20s %-12s %-12s %-12s %-12s%n",
-                symbolDisplay,
-                typeDisplay,
-                position.getQuantity().setScale(DECIMAL_PLACES, RoundingMode.HALF_UP),
-                position.getMarketPrice().setScale(DECIMAL_PLACES, RoundingMode.HALF_UP),
-                marketValue.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP));
-        }
+        valuationPublisher.publish(report);
+    }
 
-        System.out.println("---------------------------------------------------------------------");
-        System.out.printf("Portfolio Value: %s%n", totalValue.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP));
-    }
-
-    private String getSymbolDisplay(Security security) {
-        if (security.getType() == SecurityType.STOCK) {
-            return security.getTicker();
-        } else {
-            // For options, show ticker-month-year-strike-type format to match CSV
-            String optionType = security.getType() == SecurityType.CALL_OPTION ? "C" : "P";
-            String monthStr = getMonthString(security.getExpirationMonth());
-            return String.format("%s-%s-%d-%s-%s",
-                security.getTicker(),
-                monthStr,
-                security.getExpirationYear(),
-                security.getStrike().setScale(0, RoundingMode.HALF_UP),
-                optionType);
+    private void checkPortfolioValue() {
+        BigDecimal drift = portfolio.getTotalValueDrift();
+        if (drift.signum() != 0) {
+            driftChecks.increment();
+            lastDriftCents = drift.movePointRight(2).longValue();
         }
     }
 
-    private String getMonthString(Month month) {
-        if (month == null) return "UNK";
-        switch (month) {
-            case JANUARY: return "JAN";
-            case FEBRUARY: return "FEB";
-            case MARCH: return "MAR";
-            case APRIL: return "APR";
-            case MAY: return "MAY";
-            case JUNE: return "JUN";
-            case JULY: return "JUL";
-            case AUGUST: return "AUG";
-            case SEPTEMBER: return "SEP";
-            case OCTOBER: return "OCT";
-            case NOVEMBER: return "NOV";
-            case DECEMBER: return "DEC";
-            default: return "UNK";
-        }
+    // Checks that found the running total off from a full recompute
+    public long getDriftCheckCount() {
+        return driftChecks.sum();
     }
 
-    private String getTypeDisplay(Security security) {
-        switch (security.getType()) {
-            case STOCK:
-                return "STOCK";
-            case CALL_OPTION:
-                return "CALL";
-            case PUT_OPTION:
-                return "PUT";
-            default:
-                return "UNKNOWN";
-        }
+    // Signed drift found by the last check that found any, in cents
+    public long getLastDriftCents() {
+        return lastDriftCents;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.trading.portfolio;
+
+import lombok.Getter;
+
+/**
+ * How option positions are revalued on a spot tick.
+ * <p>
+ * In {@link Mode#DELTA_GAMMA} mode a tick is applied as
+ * {@code P + delta * dS + gamma * dS^2 / 2} against the last full reprice. A full
+ * Black-Scholes reprice (which also refreshes the greeks) runs once the spot has moved
+ * more than {@code spotBand} (relative) from the reference spot, or once
+ * {@code fullRepriceIntervalMillis} has elapsed. The truncation error is third order in
+ * dS, so with the default 0.5% band it stays within {@link #DEFAULT_TOLERANCE} per
+ * share for typical listed options.
+ */
+@Getter
+public class RevaluationSettings {
+    public enum Mode {
+        FULL,
+        DELTA_GAMMA
+    }
+
+    public static final double DEFAULT_SPOT_BAND = 0.005;
+    public static final long DEFAULT_FULL_REPRICE_INTERVAL_MILLIS = 1000;
+    public static final double DEFAULT_TOLERANCE = 0.01;
+
+    private final Mode mode;
+    private final double spotBand;
+    private final long fullRepriceIntervalMillis;
+
+    private RevaluationSettings(Mode mode, double spotBand, long fullRepriceIntervalMillis) {
+        if (spotBand < 0 || fullRepriceIntervalMillis < 0) {
+            throw new IllegalArgumentException("Spot band and reprice interval must not be negative");
+        }
+        this.mode = mode;
+        this.spotBand = spotBand;
+        this.fullRepriceIntervalMillis = fullRepriceIntervalMillis;
+    }
+
+    public static RevaluationSettings full() {
+        return new RevaluationSettings(Mode.FULL, 0, 0);
+    }
+
+    public static RevaluationSettings deltaGamma() {
+        return deltaGamma(DEFAULT_SPOT_BAND, DEFAULT_FULL_REPRICE_INTERVAL_MILLIS);
+    }
+
+    public static RevaluationSettings deltaGamma(double spotBand, long fullRepriceIntervalMillis) {
+        return new RevaluationSettings(Mode.DELTA_GAMMA, spotBand, fullRepriceIntervalMillis);
+    }
+}
@@ -0,0 +1,334 @@
+package com.trading.portfolio;
+
+import com.trading.market.MarketDataListener;
+import com.trading.market.Subscription;
+import com.trading.metrics.LatencyHistogram;
+import com.trading.metrics.TradingMetrics;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionChainPricer;
+import com.trading.pricing.OptionPriceCache;
+import com.trading.pricing.OptionPriceCalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * All positions on one underlying ticker. Stock positions take the tick directly and
+ * option positions are repriced together through an {@link OptionChainPricer}, or
+ * approximated from their greeks according to the {@link RevaluationSettings}.
+ * <p>
+ * Options whose time to maturity has reached zero are settled at intrinsic value on the
+ * next tick after {@link #refreshContracts()} and dropped from the chain. Once nothing
+ * on the underlying is left to value the group closes its own subscription.
+ */
+public class UnderlyingGroup implements MarketDataListener {
+    private static final int OPTION_DECIMAL_PLACES = 4;
+
+    private final String ticker;
+    private final List<Position> stocks = new ArrayList<>();
+    private final List<Position> options = new ArrayList<>();
+    private final RevaluationSettings settings;
+    private final OptionPriceCache priceCache;
+    private final TradingMetrics metrics;
+    private final LatencyHistogram repriceLatency;
+    // Rebuilt on the tick thread when expired options are dropped
+    private OptionChainPricer pricer;
+    private double[] prices;
+    // Greeks of one option from the price cache
+    private final double[] cachedGreeks = new double[OptionPriceCache.GREEKS];
+
+    // State of the last full reprice
+    private double[] referencePrices;
+    private double[] deltas;
+    private double[] gammas;
+    private double[] vegas;
+    private double[] thetas;
+    private double referenceSpot = Double.NaN;
+    private long lastFullRepriceNanos;
+    private volatile boolean contractsStale;
+    private volatile Subscription subscription;
+    private volatile Portfolio.TickerBook tickerBook;
+
+    private volatile long fullReprices;
+    private volatile long approximations;
+    private volatile double maxApproximationError;
+    private volatile long settledOptions;
+
+    public UnderlyingGroup(String ticker, List<Position> positions) {
+        this(ticker, positions, RevaluationSettings.full());
+    }
+
+    public UnderlyingGroup(String ticker, List<Position> positions, RevaluationSettings settings) {
+        this(ticker, positions, settings, null);
+    }
+
+    /**
+     * @param priceCache shared option price cache used in {@link RevaluationSettings.Mode#FULL}
+     *                   mode instead of the chain pricer, or null. Greeks then come from the
+     *                   cache too, computed at the tick-rounded spot.
+     */
+    public UnderlyingGroup(String ticker, List<Position> positions, RevaluationSettings settings,
+                           OptionPriceCache priceCache) {
+        this(ticker, positions, settings, priceCache, TradingMetrics.shared());
+    }
+
+    public UnderlyingGroup(String ticker, List<Position> positions, RevaluationSettings settings,
+                           OptionPriceCache priceCache, TradingMetrics metrics) {
+        this.ticker = ticker;
+        this.metrics = metrics;
+        this.repriceLatency = metrics.getReprice();
+        this.settings = settings;
+        this.priceCache = priceCache;
+        for (Position position : positions) {
+            if (position.getSecurity().getType() == SecurityType.STOCK) {
+                stocks.add(position);
+            } else {
+                options.add(position);
+            }
+        }
+
+        // Group by expiry so the pricer shares sqrt(T) and exp(-rT) across strikes
+        options.sort(Comparator.comparing(position -> position.getSecurity().getTimeToMaturity()));
+        buildChain();
+        // Options already expired when loaded are settled on the first tick
+        contractsStale = !options.isEmpty() && options.get(0).getSecurity().getTimeToMaturity().signum() <= 0;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * Book whose update sequence brackets each tick, so portfolio snapshots see all of this
+     * ticker's positions at the same tick. Ticks must then arrive on one thread at a time.
+     */
+    public void setTickerBook(Portfolio.TickerBook tickerBook) {
+        this.tickerBook = tickerBook;
+    }
+
+    // The group's own registration, closed once it has nothing left to value
+    public void setSubscription(Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    /**
+     * Makes the next tick re-read sigma and time to maturity from the option securities,
+     * e.g. after implied volatilities were updated. The pricer is rebuilt on the tick
+     * thread, so this is safe to call from any thread.
+     */
+    public void refreshContracts() {
+        contractsStale = true;
+    }
+
+    // Expired options settled at intrinsic value and no longer repriced
+    public long getSettledOptions() {
+        return settledOptions;
+    }
+
+    public long getFullReprices() {
+        return fullReprices;
+    }
+
+    public long getApproximations() {
+        return approximations;
+    }
+
+    /**
+     * Largest per-share gap seen between the delta-gamma estimate and the full reprice
+     * that replaced it. Compare against {@link RevaluationSettings#DEFAULT_TOLERANCE}.
+     */
+    public double getMaxApproximationError() {
+        return maxApproximationError;
+    }
+
+    @Override
+    public void onPriceUpdate(String ticker, BigDecimal price) {
+        Portfolio.TickerBook book = tickerBook;
+        if (book == null) {
+            timedRevalue(price);
+            return;
+        }
+        book.beginUpdate();
+        try {
+            timedRevalue(price);
+        } finally {
+            book.endUpdate();
+        }
+    }
+
+    private void timedRevalue(BigDecimal price) {
+        if (!metrics.isEnabled()) {
+            revalue(price);
+            return;
+        }
+        long start = System.nanoTime();
+        revalue(price);
+        repriceLatency.recordSince(start);
+    }
+
+    private void revalue(BigDecimal price) {
+        for (Position stock : stocks) {
+            stock.updatePrice(price);
+        }
+
+        double spot = price.doubleValue();
+        if (contractsStale) {
+            contractsStale = false;
+            reloadContracts(spot);
+        }
+
+        if (options.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (priceCache != null && settings.getMode() == RevaluationSettings.Mode.FULL) {
+            for (int i = 0; i < prices.length; i++) {
+                Position option = options.get(i);
+                prices[i] = priceCache.price(option.getSecurity(), spot, cachedGreeks);
+                option.setDelta(cachedGreeks[0]);
+                option.setGamma(cachedGreeks[1]);
+                option.setVega(cachedGreeks[2]);
+                option.setTheta(cachedGreeks[3]);
+            }
+        } else if (needsFullReprice(spot, now)) {
+            fullReprice(spot, now);
+        } else {
+            approximate(spot);
+            approximations++;
+        }
+
+        for (int i = 0; i < prices.length; i++) {
+            options.get(i).updatePrice(
+                    BigDecimal.valueOf(prices[i]).setScale(OPTION_DECIMAL_PLACES, RoundingMode.HALF_UP));
+        }
+    }
+
+    private void reloadContracts(double spot) {
+        if (settleExpired(spot)) {
+            buildChain();
+        } else if (!options.isEmpty()) {
+            ChainInputs inputs = new ChainInputs(options);
+            pricer.setContracts(inputs.strikes, inputs.maturities, inputs.vols, inputs.calls);
+        }
+        // Greeks from the old inputs no longer apply
+        referenceSpot = Double.NaN;
+
+        Subscription current = subscription;
+        if (stocks.isEmpty() && options.isEmpty() && current != null) {
+            current.close();
+        }
+    }
+
+    // Marks options at zero time to maturity to intrinsic value at this spot and drops them
+    private boolean settleExpired(double spot) {
+        boolean settled = false;
+        for (Iterator<Position> it = options.iterator(); it.hasNext(); ) {
+            Position option = it.next();
+            Security security = option.getSecurity();
+            if (security.getTimeToMaturity().signum() > 0) {
+                continue;
+            }
+            double intrinsic = OptionPriceCalculator.calculateOptionPrice(spot, security.getStrike().doubleValue(),
+                    0.0, 0.0, security.getType() == SecurityType.CALL_OPTION);
+            option.updatePrice(BigDecimal.valueOf(intrinsic).setScale(OPTION_DECIMAL_PLACES, RoundingMode.HALF_UP));
+            option.setDelta(0.0);
+            option.setGamma(0.0);
+            option.setVega(0.0);
+            option.setTheta(0.0);
+            it.remove();
+            settledOptions++;
+            settled = true;
+        }
+        return settled;
+    }
+
+    private void buildChain() {
+        int size = options.size();
+        prices = new double[size];
+        referencePrices = new double[size];
+        deltas = new double[size];
+        gammas = new double[size];
+        vegas = new double[size];
+        thetas = new double[size];
+        ChainInputs inputs = new ChainInputs(options);
+        pricer = new OptionChainPricer(inputs.strikes, inputs.maturities, inputs.vols, inputs.calls);
+    }
+
+    private boolean needsFullReprice(double spot, long now) {
+        if (settings.getMode() == RevaluationSettings.Mode.FULL || Double.isNaN(referenceSpot)) {
+            return true;
+        }
+        return Math.abs(spot - referenceSpot) > settings.getSpotBand() * referenceSpot
+                || now - lastFullRepriceNanos >= settings.getFullRepriceIntervalMillis() * 1_000_000L;
+    }
+
+    private void fullReprice(double spot, long now) {
+        boolean measure = settings.getMode() == RevaluationSettings.Mode.DELTA_GAMMA && !Double.isNaN(referenceSpot);
+        if (measure) {
+            // Estimate at the new spot first so the error of the approximation can be tracked
+            approximate(spot);
+        }
+
+        pricer.price(spot, referencePrices, deltas, gammas, vegas, thetas);
+
+        if (measure) {
+            double maxError = maxApproximationError;
+            for (int i = 0; i < prices.length; i++) {
+                maxError = Math.max(maxError, Math.abs(prices[i] - referencePrices[i]));
+            }
+            maxApproximationError = maxError;
+        }
+
+        System.arraycopy(referencePrices, 0, prices, 0, prices.length);
+        referenceSpot = spot;
+        lastFullRepriceNanos = now;
+        fullReprices++;
+
+        for (int i = 0; i < prices.length; i++) {
+            Position option = options.get(i);
+            option.setDelta(deltas[i]);
+            option.setGamma(gammas[i]);
+            option.setVega(vegas[i]);
+            option.setTheta(thetas[i]);
+        }
+    }
+
+    // Second order Taylor expansion around the last full reprice
+    private void approximate(double spot) {
+        double dS = spot - referenceSpot;
+        double halfDS2 = 0.5 * dS * dS;
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = referencePrices[i] + deltas[i] * dS + gammas[i] * halfDS2;
+        }
+    }
+
+    private static final class ChainInputs {
+        private final double[] strikes;
+        private final double[] maturities;
+        private final double[] vols;
+        private final boolean[] calls;
+
+        private ChainInputs(List<Position> options) {
+            int size = options.size();
+            strikes = new double[size];
+            maturities = new double[size];
+            vols = new double[size];
+            calls = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                Security security = options.get(i).getSecurity();
+                strikes[i] = security.getStrike().doubleValue();
+                maturities[i] = security.getTimeToMaturity().doubleValue();
+                vols[i] = security.getSigma().doubleValue();
+                calls[i] = security.getType() == SecurityType.CALL_OPTION;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.trading.pricing;
+
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inverts {@link OptionPriceCalculator}: the Black-Scholes volatility that reproduces an
+ * option price.
+ * <p>
+ * Every solve works on the out-of-the-money side (an in-the-money call is turned into
+ * the put with the same strike by put-call parity), where the price is most sensitive to
+ * volatility. It starts from the Corrado-Miller closed form and takes Halley steps using
+ * vega and volga. The price is increasing in volatility, so each evaluation also narrows
+ * a bracket around the root; a step that would leave the bracket bisects instead. That
+ * bounds every solve at {@link #MAX_ITERATIONS} price evaluations, and no solve
+ * allocates.
+ */
+public class ImpliedVolatility {
+    public static final int MAX_ITERATIONS = 12;
+    public static final double PRICE_TOLERANCE = 1e-10;
+    public static final double MIN_VOLATILITY = 1e-6;
+    public static final double MAX_VOLATILITY = 5.0;
+    private static final int SIGMA_DECIMAL_PLACES = 6;
+    private static final double SQRT_2PI = Math.sqrt(2 * Math.PI);
+
+    private ImpliedVolatility() {
+    }
+
+    /**
+     * Implied volatility of an option trading at {@code price}, or NaN when the price is
+     * outside the no-arbitrage bounds or the option has expired.
+     */
+    public static double solve(double price, double spot, double strike, double timeToMaturityYears, boolean call) {
+        if (!(timeToMaturityYears > 0) || !(spot > 0) || !(strike > 0)) {
+            return Double.NaN;
+        }
+        double discountedStrike = strike * Math.exp(-OptionPriceCalculator.RISK_FREE_RATE * timeToMaturityYears);
+
+        // Work with the out-of-the-money option: C - P = S - K e^-rT
+        boolean otmCall = spot < discountedStrike;
+        double target = price;
+        if (call != otmCall) {
+            target = call ? price - spot + discountedStrike : price + spot - discountedStrike;
+        }
+        double upperBound = otmCall ? spot : discountedStrike;
+        if (!(target > 0) || target >= upperBound) {
+            return Double.NaN;
+        }
+
+        double sqrtT = Math.sqrt(timeToMaturityYears);
+        double logMoneyness = Math.log(spot / discountedStrike);
+        double sign = otmCall ? 1.0 : -1.0;
+
+        double low = MIN_VOLATILITY;
+        double high = MAX_VOLATILITY;
+        double vol = initialGuess(target, spot, discountedStrike, sqrtT, otmCall);
+
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double volSqrtT = vol * sqrtT;
+            double d1 = logMoneyness / volSqrtT + volSqrtT / 2;
+            double d2 = d1 - volSqrtT;
+            double model = sign * (spot * OptionPriceCalculator.cumulativeNormal(sign * d1)
+                    - discountedStrike * OptionPriceCalculator.cumulativeNormal(sign * d2));
+            double diff = model - target;
+            if (Math.abs(diff) <= PRICE_TOLERANCE * Math.max(1.0, target)) {
+                return vol;
+            }
+            if (diff > 0) {
+                high = vol;
+            } else {
+                low = vol;
+            }
+
+            double vega = spot * OptionPriceCalculator.normalDensity(d1) * sqrtT;
+            double next = Double.NaN;
+            if (vega > 1e-300) {
+                double newton = diff / vega;
+                double volga = vega * d1 * d2 / vol;
+                double correction = 1 - newton * volga / (2 * vega);
+                // Halley when its correction is well behaved, Newton otherwise
+                next = vol - (correction > 0.5 ? newton / correction : newton);
+            }
+            if (!(next > low && next < high)) {
+                next = (low + high) / 2;
+            }
+            vol = next;
+        }
+        return vol;
+    }
+
+    /**
+     * Solves every contract of the arrays into {@code vols}; unsolvable entries get NaN.
+     * Returns the number solved. Allocates nothing.
+     */
+    public static int solve(double[] prices, double[] spots, double[] strikes, double[] maturities,
+                            boolean[] calls, double[] vols) {
+        int size = prices.length;
+        if (spots.length != size || strikes.length != size || maturities.length != size
+                || calls.length != size || vols.length < size) {
+            throw new IllegalArgumentException("Implied volatility arrays must have the same length");
+        }
+        int solved = 0;
+        for (int i = 0; i < size; i++) {
+            vols[i] = solve(prices[i], spots[i], strikes[i], maturities[i], calls[i]);
+            if (!Double.isNaN(vols[i])) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * Sets each option's sigma to the volatility implied by its quoted price and drops its
+     * entries from {@code cache} (which may be null). Securities whose quote cannot be
+     * inverted keep their sigma. Returns the securities that changed; subscribers valuing
+     * them should then refresh their contracts.
+     */
+    public static List<Security> updateSigmas(List<Security> options, double[] prices, double[] spots,
+                                              OptionPriceCache cache) {
+        int size = options.size();
+        if (prices.length != size || spots.length != size) {
+            throw new IllegalArgumentException("One price and spot is required per security");
+        }
+        List<Security> updated = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Security security = options.get(i);
+            if (security.getType() == SecurityType.STOCK) {
+                continue;
+            }
+            double vol = solve(prices[i], spots[i], security.getStrike().doubleValue(),
+                    security.getTimeToMaturity().doubleValue(), security.getType() == SecurityType.CALL_OPTION);
+            if (Double.isNaN(vol)) {
+                continue;
+            }
+            BigDecimal sigma = BigDecimal.valueOf(vol).setScale(SIGMA_DECIMAL_PLACES, RoundingMode.HALF_UP);
+            security.setImpliedSigma(true);
+            if (sigma.compareTo(security.getSigma()) != 0) {
+                security.setSigma(sigma);
+                updated.add(security);
+            }
+        }
+        if (cache != null && !updated.isEmpty()) {
+            cache.invalidateAll(updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Reference solver: plain bisection over [{@link #MIN_VOLATILITY},
+     * {@link #MAX_VOLATILITY}] for {@code iterations} halvings.
+     */
+    public static double bisect(double price, double spot, double strike, double timeToMaturityYears,
+                                boolean call, int iterations) {
+        double low = MIN_VOLATILITY;
+        double high = MAX_VOLATILITY;
+        for (int i = 0; i < iterations; i++) {
+            double mid = (low + high) / 2;
+            if (OptionPriceCalculator.calculateOptionPrice(spot, strike, timeToMaturityYears, mid, call) > price) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    // Corrado-Miller approximation for the out-of-the-money option price, in the bracket
+    private static double initialGuess(double price, double spot, double discountedStrike, double sqrtT,
+                                       boolean call) {
+        double callPrice = call ? price : price + spot - discountedStrike;
+        double half = (spot - discountedStrike) / 2;
+        double a = callPrice - half;
+        double discriminant = a * a - (spot - discountedStrike) * (spot - discountedStrike) / Math.PI;
+        double guess = SQRT_2PI / (sqrtT * (spot + discountedStrike)) * (a + Math.sqrt(Math.max(discriminant, 0.0)));
+        if (!(guess > MIN_VOLATILITY) || guess >= MAX_VOLATILITY) {
+            guess = 0.3;
+        }
+        return guess;
+    }
+}
@@ -0,0 +1,159 @@
+package com.trading.pricing;
+
+/**
+ * Batch Black-Scholes pricer for a chain of options on one underlying.
+ * <p>
+ * Contracts are held as structure-of-arrays. Everything that does not depend on the
+ * spot (log strike, sqrt(T), discount factor, drift) is computed once when contracts
+ * are set, and shared between contracts of the same expiry. A tick then only costs one
+ * log of the spot plus straight-line array loops the JIT can unroll and vectorize.
+ */
+public class OptionChainPricer {
+    private final int size;
+    private final double[] strikes;
+    private final double[] sign;              // +1 for calls, -1 for puts
+    private final boolean[] expired;
+
+    // Spot independent terms
+    private final double[] logStrike;
+    private final double[] drift;             // (r + sigma^2 / 2) * T
+    private final double[] invVolSqrtT;       // 1 / (sigma * sqrt(T))
+    private final double[] volSqrtT;          // sigma * sqrt(T)
+    private final double[] discountedStrike;  // K * exp(-rT)
+    private final double[] vols;
+    private final double[] sqrtT;
+
+    // Per tick scratch
+    private final double[] d1;
+    private final double[] d2;
+
+    public OptionChainPricer(double[] strikes, double[] maturities, double[] vols, boolean[] calls) {
+        if (maturities.length != strikes.length || vols.length != strikes.length || calls.length != strikes.length) {
+            throw new IllegalArgumentException("Option chain arrays must have the same length");
+        }
+        this.size = strikes.length;
+        this.strikes = new double[size];
+        this.sign = new double[size];
+        this.expired = new boolean[size];
+        this.logStrike = new double[size];
+        this.drift = new double[size];
+        this.invVolSqrtT = new double[size];
+        this.volSqrtT = new double[size];
+        this.discountedStrike = new double[size];
+        this.vols = new double[size];
+        this.sqrtT = new double[size];
+        this.d1 = new double[size];
+        this.d2 = new double[size];
+        setContracts(strikes, maturities, vols, calls);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Recomputes the spot independent terms for every contract, e.g. after a sigma or
+     * time to maturity change. sqrt(T) and exp(-rT) are evaluated once per run of
+     * equal maturities, so callers should group contracts by expiry.
+     */
+    public void setContracts(double[] strikes, double[] maturities, double[] vols, boolean[] calls) {
+        double lastMaturity = Double.NaN;
+        double sqrtMaturity = 0.0;
+        double discount = 1.0;
+
+        for (int i = 0; i < size; i++) {
+            double t = maturities[i];
+            if (t != lastMaturity) {
+                sqrtMaturity = t > 0 ? Math.sqrt(t) : 0.0;
+                discount = Math.exp(-OptionPriceCalculator.RISK_FREE_RATE * t);
+                lastMaturity = t;
+            }
+            setContract(i, strikes[i], t, vols[i], calls[i], sqrtMaturity, discount);
+        }
+    }
+
+    public void setContract(int index, double strike, double maturity, double vol, boolean call) {
+        setContract(index, strike, maturity, vol, call,
+                maturity > 0 ? Math.sqrt(maturity) : 0.0,
+                Math.exp(-OptionPriceCalculator.RISK_FREE_RATE * maturity));
+    }
+
+    private void setContract(int i, double strike, double maturity, double vol, boolean call,
+                             double sqrtMaturity, double discount) {
+        strikes[i] = strike;
+        sign[i] = call ? 1.0 : -1.0;
+        expired[i] = maturity <= 0;
+        logStrike[i] = Math.log(strike);
+        drift[i] = (OptionPriceCalculator.RISK_FREE_RATE + vol * vol / 2) * maturity;
+        volSqrtT[i] = vol * sqrtMaturity;
+        invVolSqrtT[i] = expired[i] ? 0.0 : 1.0 / volSqrtT[i];
+        discountedStrike[i] = strike * discount;
+        vols[i] = vol;
+        sqrtT[i] = sqrtMaturity;
+    }
+
+    /**
+     * Prices every contract for the given spot into {@code prices}, which must hold at
+     * least {@link #size()} elements. Allocates nothing.
+     */
+    public void price(double spot, double[] prices) {
+        double logSpot = Math.log(spot);
+
+        for (int i = 0; i < size; i++) {
+            double x = (logSpot - logStrike[i] + drift[i]) * invVolSqrtT[i];
+            d1[i] = x * sign[i];
+            d2[i] = (x - volSqrtT[i]) * sign[i];
+        }
+
+        for (int i = 0; i < size; i++) {
+            d1[i] = OptionPriceCalculator.cumulativeNormal(d1[i]);
+            d2[i] = OptionPriceCalculator.cumulativeNormal(d2[i]);
+        }
+
+        // Call: S N(d1) - K e^-rT N(d2); put: K e^-rT N(-d2) - S N(-d1)
+        for (int i = 0; i < size; i++) {
+            double s = sign[i];
+            double model = s * (spot * d1[i] - discountedStrike[i] * d2[i]);
+            double intrinsic = Math.max(s * (spot - strikes[i]), 0.0);
+            prices[i] = expired[i] ? intrinsic : model;
+        }
+    }
+
+    /**
+     * Prices every contract and also writes delta, gamma, vega (per 1.00 vol) and
+     * theta (per year). Allocates nothing.
+     */
+    public void price(double spot, double[] prices, double[] deltas, double[] gammas,
+                      double[] vegas, double[] thetas) {
+        double logSpot = Math.log(spot);
+        double r = OptionPriceCalculator.RISK_FREE_RATE;
+
+        for (int i = 0; i < size; i++) {
+            double x = (logSpot - logStrike[i] + drift[i]) * invVolSqrtT[i];
+            // Density goes into the gamma buffer until the final pass
+            gammas[i] = OptionPriceCalculator.normalDensity(x);
+            d1[i] = x * sign[i];
+            d2[i] = (x - volSqrtT[i]) * sign[i];
+        }
+
+        for (int i = 0; i < size; i++) {
+            d1[i] = OptionPriceCalculator.cumulativeNormal(d1[i]);
+            d2[i] = OptionPriceCalculator.cumulativeNormal(d2[i]);
+        }
+
+        for (int i = 0; i < size; i++) {
+            double s = sign[i];
+            double pdf = gammas[i];
+            boolean live = !expired[i];
+            double model = s * (spot * d1[i] - discountedStrike[i] * d2[i]);
+            double intrinsic = Math.max(s * (spot - strikes[i]), 0.0);
+            double decay = live ? -spot * pdf * vols[i] / (2 * sqrtT[i]) : 0.0;
+
+            prices[i] = live ? model : intrinsic;
+            deltas[i] = live ? s * d1[i] : (intrinsic > 0 ? s : 0.0);
+            gammas[i] = live ? pdf * invVolSqrtT[i] / spot : 0.0;
+            vegas[i] = live ? spot * pdf * sqrtT[i] : 0.0;
+            thetas[i] = live ? decay - s * r * discountedStrike[i] * d2[i] : 0.0;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.trading.pricing;
+
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Bounded cache of option prices and greeks in front of the Black-Scholes pricer.
+ * <p>
+ * Entries are keyed by the security's {@link SecurityRegistry} id, spot quantized to
+ * {@code tickSize}, sigma and time to maturity rounded to {@code maturityBucket}, all as
+ * primitives. Prices are computed at the quantized spot, so a hit returns exactly what a
+ * miss would have computed. A sigma or maturity change produces a different key, and
+ * {@link #invalidate(Security)} drops the stale entries of a security eagerly.
+ * <p>
+ * The cache is split into lock stripes chosen by key hash, so consumers pricing different
+ * contracts rarely contend. Each stripe is a set-associative table of primitive arrays:
+ * a key can sit in one of {@link #WAYS} slots and replaces the least recently used of them.
+ * Lookups allocate nothing.
+ */
+public class OptionPriceCache {
+    public static final double DEFAULT_TICK_SIZE = 0.01;
+    public static final double DEFAULT_MATURITY_BUCKET = 0.0001;
+    // Slots a key may occupy within its stripe
+    public static final int WAYS = 4;
+    // Greeks written by price(Security, double, double[]): delta, gamma, vega, theta
+    public static final int GREEKS = 4;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final double tickSize;
+    private final double maturityBucket;
+    private final SecurityRegistry registry;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public OptionPriceCache(int capacity) {
+        this(capacity, DEFAULT_TICK_SIZE, DEFAULT_MATURITY_BUCKET);
+    }
+
+    public OptionPriceCache(int capacity, double tickSize, double maturityBucket) {
+        this(capacity, tickSize, maturityBucket, SecurityRegistry.shared());
+    }
+
+    /**
+     * @param registry numbers the securities; securities not interned in it are interned on first use
+     */
+    public OptionPriceCache(int capacity, double tickSize, double maturityBucket, SecurityRegistry registry) {
+        if (capacity < 1 || tickSize <= 0 || maturityBucket <= 0) {
+            throw new IllegalArgumentException("Capacity, tick size and maturity bucket must be positive");
+        }
+        this.tickSize = tickSize;
+        this.maturityBucket = maturityBucket;
+        this.registry = registry;
+
+        // Enough stripes to spread the consumer threads, but each keeps at least a few sets
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 4));
+        while (stripeCount > 1 && stripeCount * WAYS * 4 > capacity) {
+            stripeCount >>= 1;
+        }
+        int sets = Math.max(1, (capacity + stripeCount * WAYS - 1) / (stripeCount * WAYS));
+        sets = Integer.highestOneBit(sets) == sets ? sets : Integer.highestOneBit(sets) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(sets);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Price of {@code security} at {@code spot} rounded to the tick size.
+     */
+    public double price(Security security, double spot) {
+        return price(security, spot, null);
+    }
+
+    /**
+     * Price of {@code security} at {@code spot} rounded to the tick size. When
+     * {@code greeks} is not null, delta, gamma, vega (per 1.00 vol) and theta (per year)
+     * at the same spot are written to its first {@link #GREEKS} elements.
+     */
+    public double price(Security security, double spot, double[] greeks) {
+        int id = registry.idOf(security);
+        long spotTicks = Math.round(spot / tickSize);
+        double sigma = security.getSigma().doubleValue();
+        double maturity = security.getTimeToMaturity().doubleValue();
+        long sigmaBits = Double.doubleToLongBits(sigma);
+        long maturityKey = Math.round(maturity / maturityBucket);
+
+        long hash = hash(id, spotTicks, sigmaBits, maturityKey);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            int slot = stripe.find((int) (hash >>> 32), id, spotTicks, sigmaBits, maturityKey);
+            if (slot >= 0) {
+                stripe.hits++;
+            } else {
+                stripe.misses++;
+                slot = stripe.insert((int) (hash >>> 32), id, spotTicks, sigmaBits, maturityKey);
+                stripe.compute(slot, spotTicks * tickSize, security.getStrike().doubleValue(), maturity, sigma,
+                        security.getType() == SecurityType.CALL_OPTION);
+            }
+            if (greeks != null) {
+                System.arraycopy(stripe.greeks, slot * GREEKS, greeks, 0, GREEKS);
+            }
+            return stripe.prices[slot];
+        }
+    }
+
+    // Drops every entry for the security, e.g. after its sigma or time to maturity changed
+    public void invalidate(Security security) {
+        BitSet stale = new BitSet();
+        stale.set(registry.idOf(security));
+        invalidateIds(stale);
+    }
+
+    // One pass over the cache for a batch of securities
+    public void invalidateAll(Collection<Security> securities) {
+        BitSet stale = new BitSet();
+        for (Security security : securities) {
+            stale.set(registry.idOf(security));
+        }
+        invalidateIds(stale);
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Arrays.fill(stripe.ids, Stripe.EMPTY);
+                stripe.size = 0;
+            }
+        }
+    }
+
+    // Entries the cache can hold, the requested capacity rounded up to whole sets
+    public int getCapacity() {
+        return stripes.length * stripes[0].ids.length;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        long hits = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                hits += stripe.hits;
+            }
+        }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                misses += stripe.misses;
+            }
+        }
+        return misses;
+    }
+
+    public long getEvictions() {
+        long evictions = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evictions += stripe.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    private void invalidateIds(BitSet stale) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.ids.length; i++) {
+                    int id = stripe.ids[i];
+                    if (id != Stripe.EMPTY && stale.get(id)) {
+                        stripe.ids[i] = Stripe.EMPTY;
+                        stripe.size--;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long hash(int id, long spotTicks, long sigmaBits, long maturityKey) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        h = (h ^ spotTicks) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ sigmaBits) * 0x94D049BB133111EBL;
+        h = (h ^ maturityKey) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * One lock stripe: parallel arrays of keys and values, {@link #WAYS} slots per set.
+     * Guarded by the stripe's monitor.
+     */
+    private static final class Stripe {
+        private static final int EMPTY = -1;
+
+        private final int setMask;
+        private final int[] ids;
+        private final long[] spotTicks;
+        private final long[] sigmaBits;
+        private final long[] maturityKeys;
+        private final long[] lastUsed;
+        private final double[] prices;
+        private final double[] greeks;
+        private long clock;
+        private int size;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        // Single contract pricer reused for every miss
+        private final OptionChainPricer pricer = new OptionChainPricer(
+                new double[] {1.0}, new double[] {0.0}, new double[] {0.0}, new boolean[] {true});
+        private final double[] price = new double[1];
+        private final double[] delta = new double[1];
+        private final double[] gamma = new double[1];
+        private final double[] vega = new double[1];
+        private final double[] theta = new double[1];
+
+        private Stripe(int sets) {
+            int slots = sets * WAYS;
+            this.setMask = sets - 1;
+            this.ids = new int[slots];
+            this.spotTicks = new long[slots];
+            this.sigmaBits = new long[slots];
+            this.maturityKeys = new long[slots];
+            this.lastUsed = new long[slots];
+            this.prices = new double[slots];
+            this.greeks = new double[slots * GREEKS];
+            Arrays.fill(ids, EMPTY);
+        }
+
+        private int find(int setHash, int id, long spot, long sigma, long maturity) {
+            int base = (setHash & setMask) * WAYS;
+            for (int i = base; i < base + WAYS; i++) {
+                if (ids[i] == id && spotTicks[i] == spot && sigmaBits[i] == sigma && maturityKeys[i] == maturity) {
+                    lastUsed[i] = ++clock;
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Claims an empty slot of the set, or the least recently used one
+        private int insert(int setHash, int id, long spot, long sigma, long maturity) {
+            int base = (setHash & setMask) * WAYS;
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (ids[i] == EMPTY) {
+                    victim = i;
+                    break;
+                }
+                if (lastUsed[i] < lastUsed[victim]) {
+                    victim = i;
+                }
+            }
+            if (ids[victim] == EMPTY) {
+                size++;
+            } else {
+                evictions++;
+            }
+            ids[victim] = id;
+            spotTicks[victim] = spot;
+            sigmaBits[victim] = sigma;
+            maturityKeys[victim] = maturity;
+            lastUsed[victim] = ++clock;
+            return victim;
+        }
+
+        private void compute(int slot, double spot, double strike, double maturity, double sigma, boolean call) {
+            pricer.setContract(0, strike, maturity, sigma, call);
+            pricer.price(spot, price, delta, gamma, vega, theta);
+            prices[slot] = price[0];
+            int g = slot * GREEKS;
+            greeks[g] = delta[0];
+            greeks[g + 1] = gamma[0];
+            greeks[g + 2] = vega[0];
+            greeks[g + 3] = theta[0];
+        }
+    }
+}
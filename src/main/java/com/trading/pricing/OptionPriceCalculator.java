@@ -1,76 +1,102 @@
 package com.trading.pricing;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import com.trading.model.SecurityType;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 public class OptionPriceCalculator {
-    private static final NormalDistribution NORMAL = new NormalDistribution(0, 1);
-    private static final BigDecimal RISK_FREE_RATE = new BigDecimal("0.02"); // 2% risk-free rate
+    public static final double RISK_FREE_RATE = 0.02; // 2% risk-free rate
     private static final int DECIMAL_PLACES = 4;
+    private static final double INV_SQRT_2PI = 0.3989422804014327;
 
     public static BigDecimal calculateOptionPrice(BigDecimal spotPrice, BigDecimal strikePrice,
                                            BigDecimal timeToMaturityYears, BigDecimal volatility,
                                            SecurityType optionType) {
-        if (timeToMaturityYears.compareTo(BigDecimal.ZERO) <= 0) {
-            return calculateIntrinsicValue(spotPrice, strikePrice, optionType);
-        }
-
-        double d1 = calculateD1(spotPrice.doubleValue(), strikePrice.doubleValue(),
-                              timeToMaturityYears.doubleValue(), volatility.doubleValue());
-        double d2 = d1 - volatility.doubleValue() * Math.sqrt(timeToMaturityYears.doubleValue());
+        double price = calculateOptionPrice(spotPrice.doubleValue(), strikePrice.doubleValue(),
+                timeToMaturityYears.doubleValue(), volatility.doubleValue(), optionType);
+        return BigDecimal.valueOf(price).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+    }
 
+    /**
+     * Primitive Black-Scholes price. Allocates nothing, so it is safe to call on every tick.
+     */
+    public static double calculateOptionPrice(double spotPrice, double strikePrice,
+                                              double timeToMaturityYears, double volatility,
+                                              SecurityType optionType) {
         switch (optionType) {
             case CALL_OPTION:
-                return calculateCallPrice(spotPrice, strikePrice, timeToMaturityYears, d1, d2);
+                return calculateOptionPrice(spotPrice, strikePrice, timeToMaturityYears, volatility, true);
             case PUT_OPTION:
-                return calculatePutPrice(spotPrice, strikePrice, timeToMaturityYears, d1, d2);
+                return calculateOptionPrice(spotPrice, strikePrice, timeToMaturityYears, volatility, false);
             default:
                 throw new IllegalArgumentException("Invalid option type: " + optionType);
         }
     }
 
-    private static BigDecimal calculateIntrinsicValue(BigDecimal spotPrice, BigDecimal strikePrice,
-                                                    SecurityType optionType) {
-        switch (optionType) {
-            case CALL_OPTION:
-                return spotPrice.subtract(strikePrice).max(BigDecimal.ZERO)
-                       .setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
-            case PUT_OPTION:
-                return strikePrice.subtract(spotPrice).max(BigDecimal.ZERO)
-                       .setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
-            default:
-                throw new IllegalArgumentException("Invalid option type: " + optionType);
+    public static double calculateOptionPrice(double spotPrice, double strikePrice,
+                                              double timeToMaturityYears, double volatility,
+                                              boolean call) {
+        if (timeToMaturityYears <= 0) {
+            return call ? Math.max(spotPrice - strikePrice, 0.0) : Math.max(strikePrice - spotPrice, 0.0);
+        }
+
+        double volSqrtT = volatility * Math.sqrt(timeToMaturityYears);
+        double d1 = (Math.log(spotPrice / strikePrice) +
+                (RISK_FREE_RATE + volatility * volatility / 2) * timeToMaturityYears) / volSqrtT;
+        double d2 = d1 - volSqrtT;
+        double discountedStrike = strikePrice * Math.exp(-RISK_FREE_RATE * timeToMaturityYears);
+
+        if (call) {
+            return spotPrice * cumulativeNormal(d1) - discountedStrike * cumulativeNormal(d2);
+        } else {
+            return discountedStrike * cumulativeNormal(-d2) - spotPrice * cumulativeNormal(-d1);
         }
     }
 
-    private static double calculateD1(double spotPrice, double strikePrice,
-                                    double timeToMaturityYears, double volatility) {
-        return (Math.log(spotPrice / strikePrice) +
-                (RISK_FREE_RATE.doubleValue() + volatility * volatility / 2) * timeToMaturityYears) /
-                (volatility * Math.sqrt(timeToMaturityYears));
+    public static double normalDensity(double x) {
+        return INV_SQRT_2PI * Math.exp(-x * x / 2.0);
     }
 
-    private static BigDecimal calculateCallPrice(BigDecimal spotPrice, BigDecimal strikePrice,
-                                          BigDecimal timeToMaturityYears, double d1, double d2) {
-        BigDecimal term1 = spotPrice.multiply(new BigDecimal(NORMAL.cumulativeProbability(d1)));
-        BigDecimal term2 = strikePrice.multiply(
-            new BigDecimal(Math.exp(-RISK_FREE_RATE.doubleValue() * timeToMaturityYears.doubleValue()))
-        ).multiply(new BigDecimal(NORMAL.cumulativeProbability(d2)));
+    /**
+     * Standard normal CDF using Hart's double precision rational approximation
+     * (absolute error below 1e-14), without going through commons-math.
+     */
+    public static double cumulativeNormal(double x) {
+        double xAbs = Math.abs(x);
+        double c;
 
-        return term1.subtract(term2).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
-    }
+        if (xAbs > 37.0) {
+            c = 0.0;
+        } else {
+            double e = Math.exp(-xAbs * xAbs / 2.0);
+            if (xAbs < 7.07106781186547) {
+                double n = 3.52624965998911E-02 * xAbs + 0.700383064443688;
+                n = n * xAbs + 6.37396220353165;
+                n = n * xAbs + 33.912866078383;
+                n = n * xAbs + 112.079291497871;
+                n = n * xAbs + 221.213596169931;
+                n = n * xAbs + 220.206867912376;
 
-    private static BigDecimal calculatePutPrice(BigDecimal spotPrice, BigDecimal strikePrice,
-                                         BigDecimal timeToMaturityYears, double d1, double d2) {
-        BigDecimal term1 = strikePrice.multiply(
-            new BigDecimal(Math.exp(-RISK_FREE_RATE.doubleValue() * timeToMaturityYears.doubleValue()))
-        ).multiply(new BigDecimal(NORMAL.cumulativeProbability(-d2)));
+                double d = 8.83883476483184E-02 * xAbs + 1.75566716318264;
+                d = d * xAbs + 16.064177579207;
+                d = d * xAbs + 86.7807322029461;
+                d = d * xAbs + 296.564248779674;
+                d = d * xAbs + 637.333633378831;
+                d = d * xAbs + 793.826512519948;
+                d = d * xAbs + 440.413735824752;
 
-        BigDecimal term2 = spotPrice.multiply(new BigDecimal(NORMAL.cumulativeProbability(-d1)));
+                c = e * n / d;
+            } else {
+                double b = xAbs + 0.65;
+                b = xAbs + 4.0 / b;
+                b = xAbs + 3.0 / b;
+                b = xAbs + 2.0 / b;
+                b = xAbs + 1.0 / b;
+                c = e / b / 2.506628274631;
+            }
+        }
 
-        return term1.subtract(term2).setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+        return x > 0 ? 1.0 - c : c;
     }
-}
\ No newline at end of file
+}
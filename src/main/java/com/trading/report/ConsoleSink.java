@@ -0,0 +1,12 @@
+package com.trading.report;
+
+/**
+ * Writes each report to standard output in a single call.
+ */
+public class ConsoleSink implements ValuationSink {
+    @Override
+    public void write(CharSequence report) {
+        System.out.print(report);
+        System.out.flush();
+    }
+}
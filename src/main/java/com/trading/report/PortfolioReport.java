@@ -0,0 +1,149 @@
+package com.trading.report;
+
+import com.trading.model.Account;
+import com.trading.model.Portfolio;
+import com.trading.model.PortfolioSnapshot;
+import com.trading.model.PositionState;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Valuation report for one portfolio, captured by a {@link ValuationPublisher}.
+ * <p>
+ * In changed-rows mode only positions whose quantity or price moved since the last
+ * report handed to the writer are emitted. Reports that were dropped or coalesced do not
+ * advance that baseline, so their changes show up in the next one. A report must be
+ * published from one thread at a time, which a periodic job already guarantees.
+ */
+public class PortfolioReport {
+    private final Portfolio portfolio;
+    private final String accountLine;
+    private final boolean changedOnly;
+    private final Map<Security, String> symbolDisplays = new IdentityHashMap<>();
+    private Security[] lastSecurities = new Security[0];
+    private BigDecimal[] lastQuantities = new BigDecimal[0];
+    private BigDecimal[] lastPrices = new BigDecimal[0];
+
+    // Set while a snapshot of this report waits for the writer
+    final AtomicBoolean pending = new AtomicBoolean();
+
+    public PortfolioReport(Account account, Portfolio portfolio, boolean changedOnly) {
+        this.portfolio = portfolio;
+        this.accountLine = account != null
+                ? "Account: " + account.getAccountName() + " (" + account.getAccountId() + ")"
+                : null;
+        this.changedOnly = changedOnly;
+    }
+
+    public boolean isChangedOnly() {
+        return changedOnly;
+    }
+
+    /**
+     * Copies the rows to report into {@code snapshot}. Returns false when there is
+     * nothing to report because no row changed.
+     */
+    boolean fill(ValuationSnapshot snapshot) {
+        // One consistent view, so the rows and the total agree
+        PortfolioSnapshot view = portfolio.snapshot();
+        List<PositionState> positions = view.getPositions();
+        int count = positions.size();
+        if (lastSecurities.length < count) {
+            lastSecurities = Arrays.copyOf(lastSecurities, count);
+            lastQuantities = Arrays.copyOf(lastQuantities, count);
+            lastPrices = Arrays.copyOf(lastPrices, count);
+        }
+
+        snapshot.owner = this;
+        snapshot.accountLine = accountLine;
+        snapshot.changedOnly = changedOnly;
+        snapshot.totalRows = count;
+        for (int i = 0; i < count; i++) {
+            PositionState position = positions.get(i);
+            Security security = position.getSecurity();
+            BigDecimal quantity = position.getQuantity();
+            BigDecimal price = position.getMarketPrice();
+            if (changedOnly && lastSecurities[i] == security
+                    && quantity.compareTo(lastQuantities[i]) == 0
+                    && price.compareTo(lastPrices[i]) == 0) {
+                continue;
+            }
+            snapshot.add(i, security, getSymbolDisplay(security), getTypeDisplay(security),
+                    quantity, price, position.getMarketValue());
+        }
+        snapshot.totalValue = view.getTotalValue();
+        return !changedOnly || snapshot.size > 0;
+    }
+
+    // The snapshot was handed to the writer; its rows become the new baseline
+    void submitted(ValuationSnapshot snapshot) {
+        for (int i = 0; i < snapshot.size; i++) {
+            int index = snapshot.rowIndex[i];
+            lastSecurities[index] = snapshot.securities[i];
+            lastQuantities[index] = snapshot.quantities[i];
+            lastPrices[index] = snapshot.prices[i];
+        }
+    }
+
+    private String getSymbolDisplay(Security security) {
+        // Option symbols are formatted once per security rather than on every report
+        return symbolDisplays.computeIfAbsent(security, PortfolioReport::formatSymbol);
+    }
+
+    private static String formatSymbol(Security security) {
+        if (security.getType() == SecurityType.STOCK) {
+            return security.getTicker();
+        } else {
+            // For options, show ticker-month-year-strike-type format to match CSV
+            String optionType = security.getType() == SecurityType.CALL_OPTION ? "C" : "P";
+            String monthStr = getMonthString(security.getExpirationMonth());
+            return String.format("%s-%s-%d-%s-%s",
+                security.getTicker(),
+                monthStr,
+                security.getExpirationYear(),
+                security.getStrike().setScale(0, RoundingMode.HALF_UP),
+                optionType);
+        }
+    }
+
+    private static String getMonthString(Month month) {
+        if (month == null) return "UNK";
+        switch (month) {
+            case JANUARY: return "JAN";
+            case FEBRUARY: return "FEB";
+            case MARCH: return "MAR";
+            case APRIL: return "APR";
+            case MAY: return "MAY";
+            case JUNE: return "JUN";
+            case JULY: return "JUL";
+            case AUGUST: return "AUG";
+            case SEPTEMBER: return "SEP";
+            case OCTOBER: return "OCT";
+            case NOVEMBER: return "NOV";
+            case DECEMBER: return "DEC";
+            default: return "UNK";
+        }
+    }
+
+    private static String getTypeDisplay(Security security) {
+        switch (security.getType()) {
+            case STOCK:
+                return "STOCK";
+            case CALL_OPTION:
+                return "CALL";
+            case PUT_OPTION:
+                return "PUT";
+            default:
+                return "UNKNOWN";
+        }
+    }
+}
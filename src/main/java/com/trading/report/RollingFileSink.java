@@ -0,0 +1,78 @@
+package com.trading.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends reports to a file, rolling it to {@code name.1}, {@code name.2}, ... once it
+ * passes a size limit and keeping at most {@code maxBackups} rolled files.
+ */
+public class RollingFileSink implements ValuationSink {
+    private final Path file;
+    private final long maxBytes;
+    private final int maxBackups;
+    private Writer writer;
+    private long written;
+
+    public RollingFileSink(Path file, long maxBytes, int maxBackups) throws IOException {
+        if (maxBytes <= 0 || maxBackups < 0) {
+            throw new IllegalArgumentException("Size limit must be positive and backups non-negative");
+        }
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxBackups = maxBackups;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    @Override
+    public void write(CharSequence report) throws IOException {
+        if (written >= maxBytes) {
+            roll();
+        }
+        writer.append(report);
+        writer.flush();
+        // Reports are ASCII, so characters count bytes
+        written += report.length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void open() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        if (maxBackups == 0) {
+            Files.delete(file);
+        } else {
+            Files.deleteIfExists(backup(maxBackups));
+            for (int i = maxBackups - 1; i >= 1; i--) {
+                Path backup = backup(i);
+                if (Files.exists(backup)) {
+                    Files.move(backup, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
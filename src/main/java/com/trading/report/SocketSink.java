@@ -0,0 +1,85 @@
+package com.trading.report;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams reports over TCP to a local listener, e.g. a dashboard or {@code nc -lk 9099}.
+ * <p>
+ * Reports written while nothing is listening are discarded. After a failure the sink
+ * waits {@code retryMillis} before connecting again, so a missing listener costs the
+ * writer thread one connection attempt per interval rather than one per report.
+ */
+public class SocketSink implements ValuationSink {
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private final long retryMillis;
+    private Socket socket;
+    private Writer writer;
+    private long nextAttemptMillis;
+
+    public SocketSink(int port) {
+        this("localhost", port, 5000);
+    }
+
+    public SocketSink(String host, int port, long retryMillis) {
+        this.host = host;
+        this.port = port;
+        this.retryMillis = retryMillis;
+    }
+
+    @Override
+    public void write(CharSequence report) {
+        if (writer == null && !connect()) {
+            return;
+        }
+        try {
+            writer.append(report);
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Valuation socket " + host + ":" + port + " disconnected: " + e.getMessage());
+            disconnect();
+        }
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    private boolean connect() {
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptMillis) {
+            return false;
+        }
+        try {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            return true;
+        } catch (IOException e) {
+            disconnect();
+            return false;
+        }
+    }
+
+    private void disconnect() {
+        nextAttemptMillis = System.currentTimeMillis() + retryMillis;
+        writer = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closing
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.trading.report;
+
+import com.trading.runtime.ExecutionRuntime;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands portfolio valuation reports to a background writer so formatting and I/O never
+ * run on the publishing thread.
+ * <p>
+ * A fixed pool of {@link ValuationSnapshot} buffers bounds the queue. Publishing copies
+ * the report's rows into a free buffer and enqueues it without blocking; the writer
+ * formats it into a reused builder, passes it to the sink and returns the buffer. When
+ * the writer falls behind, {@link OverflowPolicy#COALESCE} skips a report whose previous
+ * snapshot is still queued (it will be written with the newer rows later), and any report
+ * that finds no free buffer is dropped.
+ */
+public class ValuationPublisher implements AutoCloseable {
+    public enum OverflowPolicy {
+        // Skip reports that find the queue full
+        DROP,
+        // Also skip a report while its previous snapshot is still queued
+        COALESCE
+    }
+
+    private static final int DEFAULT_CAPACITY = 4;
+    private static volatile ValuationPublisher console;
+
+    private final ValuationSink sink;
+    private final OverflowPolicy policy;
+    private final BlockingQueue<ValuationSnapshot> free;
+    private final BlockingQueue<ValuationSnapshot> queued;
+    private final StringBuilder buffer = new StringBuilder(4096);
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public ValuationPublisher(ValuationSink sink, int capacity, OverflowPolicy policy) {
+        this(sink, capacity, policy, ExecutionRuntime.shared());
+    }
+
+    public ValuationPublisher(ValuationSink sink, int capacity, OverflowPolicy policy, ExecutionRuntime runtime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.sink = sink;
+        this.policy = policy;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.queued = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            free.add(new ValuationSnapshot());
+        }
+        this.writer = runtime.startDedicated(this::drain, "valuation-writer");
+    }
+
+    /**
+     * Publisher writing to standard output, shared by every subscriber that isn't given
+     * its own.
+     */
+    public static ValuationPublisher console() {
+        ValuationPublisher instance = console;
+        if (instance == null) {
+            synchronized (ValuationPublisher.class) {
+                instance = console;
+                if (instance == null) {
+                    instance = new ValuationPublisher(new ConsoleSink(), DEFAULT_CAPACITY, OverflowPolicy.COALESCE);
+                    console = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Captures {@code report} and queues it for the writer. Never blocks; returns false if
+     * the report was dropped, coalesced or had no changed rows.
+     */
+    public boolean publish(PortfolioReport report) {
+        if (!running) {
+            return false;
+        }
+        if (policy == OverflowPolicy.COALESCE && !report.pending.compareAndSet(false, true)) {
+            coalesced.increment();
+            return false;
+        }
+        ValuationSnapshot snapshot = free.poll();
+        if (snapshot == null) {
+            report.pending.set(false);
+            dropped.increment();
+            return false;
+        }
+        if (!report.fill(snapshot)) {
+            snapshot.clear();
+            free.offer(snapshot);
+            report.pending.set(false);
+            unchanged.increment();
+            return false;
+        }
+        report.submitted(snapshot);
+        // Cannot fail: at most capacity snapshots exist
+        queued.offer(snapshot);
+        published.increment();
+        return true;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    // Reports skipped because no row changed
+    public long getUnchangedCount() {
+        return unchanged.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public int getQueueDepth() {
+        return queued.size();
+    }
+
+    /**
+     * Writes out whatever is still queued, then closes the sink.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (Exception e) {
+            System.err.println("Failed to close valuation sink: " + e.getMessage());
+        }
+    }
+
+    private void drain() {
+        try {
+            while (running || !queued.isEmpty()) {
+                ValuationSnapshot snapshot = queued.poll(100, TimeUnit.MILLISECONDS);
+                if (snapshot != null) {
+                    write(snapshot);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(ValuationSnapshot snapshot) {
+        PortfolioReport owner = snapshot.owner;
+        buffer.setLength(0);
+        try {
+            snapshot.formatTo(buffer);
+            sink.write(buffer);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            System.err.println("Failed to write valuation report: " + e.getMessage());
+        } finally {
+            snapshot.clear();
+            owner.pending.set(false);
+            free.offer(snapshot);
+        }
+    }
+}
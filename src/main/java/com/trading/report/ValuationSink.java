@@ -0,0 +1,15 @@
+package com.trading.report;
+
+import java.io.IOException;
+
+/**
+ * Destination for formatted valuation reports. Called only from the publisher's writer
+ * thread, so implementations need not be thread-safe.
+ */
+public interface ValuationSink extends AutoCloseable {
+    void write(CharSequence report) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,100 @@
+package com.trading.report;
+
+import com.trading.model.Security;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer holding one portfolio's rows as captured at publish time. Filled on the
+ * publishing thread, formatted on the writer thread, then cleared and returned to the pool.
+ * The arrays grow to the largest portfolio seen and are kept.
+ */
+class ValuationSnapshot {
+    private static final int DECIMAL_PLACES = 2;
+    private static final String RULE = "---------------------------------------------------------------------";
+
+    PortfolioReport owner;
+    String accountLine;
+    boolean changedOnly;
+    int totalRows;
+    int size;
+    int[] rowIndex = new int[16];
+    Security[] securities = new Security[16];
+    String[] symbols = new String[16];
+    String[] types = new String[16];
+    BigDecimal[] quantities = new BigDecimal[16];
+    BigDecimal[] prices = new BigDecimal[16];
+    BigDecimal[] values = new BigDecimal[16];
+    BigDecimal totalValue;
+
+    void add(int index, Security security, String symbol, String type,
+             BigDecimal quantity, BigDecimal price, BigDecimal value) {
+        if (size == rowIndex.length) {
+            int capacity = size * 2;
+            rowIndex = Arrays.copyOf(rowIndex, capacity);
+            securities = Arrays.copyOf(securities, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            types = Arrays.copyOf(types, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        rowIndex[size] = index;
+        securities[size] = security;
+        symbols[size] = symbol;
+        types[size] = type;
+        quantities[size] = quantity;
+        prices[size] = price;
+        values[size] = value;
+        size++;
+    }
+
+    // Same layout the subscriber used to print row by row
+    void formatTo(StringBuilder out) {
+        out.append("\nPortfolio Value Update:\n");
+        if (accountLine != null) {
+            out.append(accountLine).append('\n');
+        }
+        if (changedOnly) {
+            out.append(size).append(" of ").append(totalRows).append(" positions changed\n");
+        }
+        out.append("Symbol                Type        Quantity    Price       Market Value\n");
+        out.append(RULE).append('\n');
+        for (int i = 0; i < size; i++) {
+            pad(out, symbols[i], 20).append(' ');
+            pad(out, types[i], 12).append(' ');
+            pad(out, scaled(quantities[i]), 12).append(' ');
+            pad(out, scaled(prices[i]), 12).append(' ');
+            pad(out, scaled(values[i]), 12).append('\n');
+        }
+        out.append(RULE).append('\n');
+        out.append("Portfolio Value: ").append(totalValue).append('\n');
+    }
+
+    // Drops references so pooled buffers don't keep positions' old values alive
+    void clear() {
+        Arrays.fill(securities, 0, size, null);
+        Arrays.fill(quantities, 0, size, null);
+        Arrays.fill(prices, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        owner = null;
+        accountLine = null;
+        totalValue = null;
+        totalRows = 0;
+        size = 0;
+    }
+
+    private static String scaled(BigDecimal value) {
+        return value.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP).toString();
+    }
+
+    private static StringBuilder pad(StringBuilder out, String text, int width) {
+        out.append(text);
+        for (int i = text.length(); i < width; i++) {
+            out.append(' ');
+        }
+        return out;
+    }
+}
@@ -0,0 +1,157 @@
+package com.trading.risk;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Correlated geometric Brownian motion for a set of underlyings: the same model as the
+ * mock feed, with drift {@code mu}, volatility {@code sigma} and a correlation matrix
+ * between the underlyings' shocks. The matrix is Cholesky-factored once here.
+ */
+public class MarketModel {
+    private final List<String> tickers;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final double[] spots;
+    private final double[] mus;
+    private final double[] sigmas;
+    // Lower triangular Cholesky factor, row major
+    private final double[] cholesky;
+
+    public MarketModel(List<String> tickers, double[] spots, double[] mus, double[] sigmas, double[][] correlation) {
+        int n = tickers.size();
+        if (spots.length != n || mus.length != n || sigmas.length != n || correlation.length != n) {
+            throw new IllegalArgumentException("Model arrays must have one entry per ticker");
+        }
+        for (int i = 0; i < n; i++) {
+            if (!(spots[i] > 0) || sigmas[i] < 0) {
+                throw new IllegalArgumentException("Invalid spot or volatility for " + tickers.get(i));
+            }
+            indexes.put(tickers.get(i), i);
+        }
+        this.tickers = Collections.unmodifiableList(new ArrayList<>(tickers));
+        this.spots = spots.clone();
+        this.mus = mus.clone();
+        this.sigmas = sigmas.clone();
+        this.cholesky = cholesky(correlation);
+    }
+
+    /**
+     * Model over every underlying in {@code positions}, with the same pairwise
+     * {@code correlation} between all of them. Drift and volatility come from each
+     * ticker's stock security, or from an option on it when no stock is held. The spot is
+     * taken from {@code spots} if present, otherwise from a priced stock position.
+     */
+    public static MarketModel fromPositions(Collection<Position> positions, Map<String, BigDecimal> spots,
+                                            double correlation) {
+        Map<String, Security> securities = new LinkedHashMap<>();
+        Map<String, BigDecimal> heldSpots = new HashMap<>();
+        for (Position position : positions) {
+            Security security = position.getSecurity();
+            String ticker = security.getTicker();
+            if (security.getType() == SecurityType.STOCK) {
+                securities.put(ticker, security);
+                if (position.getMarketPrice() != null && position.getMarketPrice().signum() > 0) {
+                    heldSpots.put(ticker, position.getMarketPrice());
+                }
+            } else {
+                securities.putIfAbsent(ticker, security);
+            }
+        }
+
+        int n = securities.size();
+        List<String> tickers = new ArrayList<>(securities.keySet());
+        double[] spotValues = new double[n];
+        double[] mus = new double[n];
+        double[] sigmas = new double[n];
+        for (int i = 0; i < n; i++) {
+            String ticker = tickers.get(i);
+            BigDecimal spot = spots.getOrDefault(ticker, heldSpots.get(ticker));
+            if (spot == null) {
+                throw new IllegalArgumentException("No spot price for " + ticker);
+            }
+            Security security = securities.get(ticker);
+            spotValues[i] = spot.doubleValue();
+            mus[i] = security.getMu().doubleValue();
+            sigmas[i] = security.getSigma().doubleValue();
+        }
+        return new MarketModel(tickers, spotValues, mus, sigmas, constantCorrelation(n, correlation));
+    }
+
+    public static double[][] constantCorrelation(int size, double correlation) {
+        double[][] matrix = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(matrix[i], correlation);
+            matrix[i][i] = 1.0;
+        }
+        return matrix;
+    }
+
+    public int size() {
+        return tickers.size();
+    }
+
+    public List<String> getTickers() {
+        return tickers;
+    }
+
+    // Index of ticker in this model, or -1
+    public int indexOf(String ticker) {
+        Integer index = indexes.get(ticker);
+        return index != null ? index : -1;
+    }
+
+    public double getSpot(int index) {
+        return spots[index];
+    }
+
+    public double getMu(int index) {
+        return mus[index];
+    }
+
+    public double getSigma(int index) {
+        return sigmas[index];
+    }
+
+    double[] getCholesky() {
+        return cholesky;
+    }
+
+    private static double[] cholesky(double[][] correlation) {
+        int n = correlation.length;
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            if (correlation[i].length != n) {
+                throw new IllegalArgumentException("Correlation matrix must be square");
+            }
+            for (int j = 0; j <= i; j++) {
+                if (Math.abs(correlation[i][j] - correlation[j][i]) > 1e-12) {
+                    throw new IllegalArgumentException("Correlation matrix must be symmetric");
+                }
+                double sum = correlation[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                if (i == j) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Correlation matrix is not positive definite");
+                    }
+                    l[i * n + i] = Math.sqrt(sum);
+                } else {
+                    l[i * n + j] = sum / l[j * n + j];
+                }
+            }
+        }
+        return l;
+    }
+}
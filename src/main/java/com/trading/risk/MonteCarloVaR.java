@@ -0,0 +1,279 @@
+package com.trading.risk;
+
+import com.trading.model.Account;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionChainPricer;
+import com.trading.pricing.OptionPriceCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo value at risk and expected shortfall.
+ * <p>
+ * Each scenario draws correlated underlying paths from a {@link MarketModel} and fully
+ * revalues the book at the horizon: stocks at the simulated spot, options by
+ * Black-Scholes with their remaining time to maturity. The book is first compiled into
+ * primitive arrays: stock holdings are summed per underlying, and puts are turned into
+ * calls by put-call parity ({@code P = C - S + K e^-rT}) so that every strike, expiry and
+ * volatility is priced once whatever mix of calls and puts is held. A scenario then
+ * costs one chain reprice per underlying and allocates nothing. Paths diffuse over the
+ * horizon in trading years while options roll down by its calendar length, the unit
+ * their times to maturity are kept in.
+ * <p>
+ * Scenarios are cut into fixed blocks, and every block gets its own random stream split
+ * from the seed in block order before any work is forked. Fork-join tasks then take
+ * whole blocks and write losses into their scenario slots, so a given seed produces the
+ * same result whatever the pool's parallelism.
+ */
+public class MonteCarloVaR {
+    private static final int BLOCK_SCENARIOS = 512;
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    public MonteCarloVaR() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloVaR(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Cash carries no market risk, so an account's risk is its portfolio's
+    public VaRResult calculate(Account account, MarketModel model, VaRSettings settings) {
+        return calculate(account.getPortfolio(), model, settings);
+    }
+
+    public VaRResult calculate(Portfolio portfolio, MarketModel model, VaRSettings settings) {
+        return calculate(portfolio.getPositions(), model, settings);
+    }
+
+    public VaRResult calculate(Collection<Position> positions, MarketModel model, VaRSettings settings) {
+        long start = System.nanoTime();
+        Book book = new Book(positions, model, settings.getHorizonCalendarYears());
+
+        int scenarios = settings.getScenarios();
+        int blocks = (scenarios + BLOCK_SCENARIOS - 1) / BLOCK_SCENARIOS;
+        SplittableRandom root = new SplittableRandom(settings.getSeed());
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            streams[b] = root.split();
+        }
+
+        double[] losses = new double[scenarios];
+        int blocksPerTask = Math.max(1, blocks / (pool.getParallelism() * TASKS_PER_THREAD));
+        pool.invoke(new ScenarioTask(book, model, settings, streams, losses, 0, blocks, blocksPerTask));
+        Arrays.parallelSort(losses);
+        return new VaRResult(losses, book.baseValue, System.nanoTime() - start);
+    }
+
+    /**
+     * Positions flattened to primitive arrays per underlying of the model.
+     */
+    private static final class Book {
+        private final double[] stockShares;
+        private final double[][] strikes;
+        private final double[][] horizonMaturities;
+        private final double[][] vols;
+        private final boolean[][] calls;
+        private final double[][] multipliers;
+        // Discounted strikes at the horizon left over from put-call parity
+        private final double horizonCash;
+        private final double baseValue;
+
+        private Book(Collection<Position> positions, MarketModel model, double horizonCalendarYears) {
+            int n = model.size();
+            stockShares = new double[n];
+            List<Map<String, Contract>> contracts = new ArrayList<>(n);
+            for (int u = 0; u < n; u++) {
+                contracts.add(new LinkedHashMap<>());
+            }
+
+            double value = 0.0;
+            double cash = 0.0;
+            for (Position position : positions) {
+                Security security = position.getSecurity();
+                int u = model.indexOf(security.getTicker());
+                if (u < 0) {
+                    throw new IllegalArgumentException("No market model for " + security.getTicker());
+                }
+                double spot = model.getSpot(u);
+                double quantity = position.getQuantity().doubleValue();
+                if (security.getType() == SecurityType.STOCK) {
+                    stockShares[u] += quantity;
+                    value += quantity * spot;
+                    continue;
+                }
+                double strike = security.getStrike().doubleValue();
+                double maturity = security.getTimeToMaturity().doubleValue();
+                double vol = security.getSigma().doubleValue();
+                boolean call = security.getType() == SecurityType.CALL_OPTION;
+                double multiplier = quantity * security.getContractSize().doubleValue();
+                value += multiplier * OptionPriceCalculator.calculateOptionPrice(spot, strike, maturity, vol, call);
+
+                String key = strike + "/" + maturity + "/" + vol;
+                contracts.get(u).computeIfAbsent(key, k -> new Contract(strike, maturity, vol)).multiplier += multiplier;
+                if (!call) {
+                    // Short the underlying and hold the discounted strike instead
+                    double remaining = Math.max(maturity - horizonCalendarYears, 0.0);
+                    stockShares[u] -= multiplier;
+                    cash += multiplier * strike * Math.exp(-OptionPriceCalculator.RISK_FREE_RATE * remaining);
+                }
+            }
+
+            strikes = new double[n][];
+            horizonMaturities = new double[n][];
+            vols = new double[n][];
+            calls = new boolean[n][];
+            multipliers = new double[n][];
+            for (int u = 0; u < n; u++) {
+                // Grouped by expiry so the chain pricer shares sqrt(T) and exp(-rT)
+                List<Contract> chain = new ArrayList<>(contracts.get(u).values());
+                chain.removeIf(contract -> contract.multiplier == 0);
+                chain.sort(Comparator.comparingDouble(contract -> contract.maturity));
+                int size = chain.size();
+                strikes[u] = new double[size];
+                horizonMaturities[u] = new double[size];
+                vols[u] = new double[size];
+                calls[u] = new boolean[size];
+                multipliers[u] = new double[size];
+                for (int i = 0; i < size; i++) {
+                    Contract contract = chain.get(i);
+                    strikes[u][i] = contract.strike;
+                    horizonMaturities[u][i] = contract.maturity - horizonCalendarYears;
+                    vols[u][i] = contract.vol;
+                    calls[u][i] = true;
+                    multipliers[u][i] = contract.multiplier;
+                }
+            }
+            horizonCash = cash;
+            baseValue = value;
+        }
+    }
+
+    private static final class Contract {
+        private final double strike;
+        private final double maturity;
+        private final double vol;
+        // Calls held plus puts converted to calls
+        private double multiplier;
+
+        private Contract(double strike, double maturity, double vol) {
+            this.strike = strike;
+            this.maturity = maturity;
+            this.vol = vol;
+        }
+    }
+
+    private static final class ScenarioTask extends RecursiveAction {
+        private final Book book;
+        private final MarketModel model;
+        private final VaRSettings settings;
+        private final SplittableRandom[] streams;
+        private final double[] losses;
+        private final int fromBlock;
+        private final int toBlock;
+        private final int blocksPerTask;
+
+        private ScenarioTask(Book book, MarketModel model, VaRSettings settings, SplittableRandom[] streams,
+                             double[] losses, int fromBlock, int toBlock, int blocksPerTask) {
+            this.book = book;
+            this.model = model;
+            this.settings = settings;
+            this.streams = streams;
+            this.losses = losses;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+            this.blocksPerTask = blocksPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBlock - fromBlock > blocksPerTask) {
+                int mid = (fromBlock + toBlock) >>> 1;
+                invokeAll(new ScenarioTask(book, model, settings, streams, losses, fromBlock, mid, blocksPerTask),
+                        new ScenarioTask(book, model, settings, streams, losses, mid, toBlock, blocksPerTask));
+                return;
+            }
+
+            // Per task scratch; nothing below allocates per scenario
+            int n = model.size();
+            double[] cholesky = model.getCholesky();
+            double[] logSpot0 = new double[n];
+            double[] drift = new double[n];
+            double[] diffusion = new double[n];
+            double dt = settings.getHorizonYears() / settings.getSteps();
+            for (int u = 0; u < n; u++) {
+                double sigma = model.getSigma(u);
+                logSpot0[u] = Math.log(model.getSpot(u));
+                drift[u] = (model.getMu(u) - sigma * sigma / 2) * dt;
+                diffusion[u] = sigma * Math.sqrt(dt);
+            }
+            OptionChainPricer[] pricers = new OptionChainPricer[n];
+            double[][] prices = new double[n][];
+            for (int u = 0; u < n; u++) {
+                if (book.strikes[u].length > 0) {
+                    pricers[u] = new OptionChainPricer(book.strikes[u], book.horizonMaturities[u],
+                            book.vols[u], book.calls[u]);
+                    prices[u] = new double[book.strikes[u].length];
+                }
+            }
+            double[] shocks = new double[n];
+            double[] logSpot = new double[n];
+
+            int steps = settings.getSteps();
+            for (int b = fromBlock; b < toBlock; b++) {
+                SplittableRandom normals = streams[b];
+                int end = Math.min(losses.length, (b + 1) * BLOCK_SCENARIOS);
+                for (int s = b * BLOCK_SCENARIOS; s < end; s++) {
+                    System.arraycopy(logSpot0, 0, logSpot, 0, n);
+                    for (int step = 0; step < steps; step++) {
+                        for (int u = 0; u < n; u++) {
+                            shocks[u] = normals.nextGaussian();
+                        }
+                        // Correlate with the Cholesky factor: z = L e
+                        for (int u = 0; u < n; u++) {
+                            double z = 0.0;
+                            int row = u * n;
+                            for (int k = 0; k <= u; k++) {
+                                z += cholesky[row + k] * shocks[k];
+                            }
+                            logSpot[u] += drift[u] + diffusion[u] * z;
+                        }
+                    }
+                    losses[s] = book.baseValue - revalue(logSpot, pricers, prices);
+                }
+            }
+        }
+
+        private double revalue(double[] logSpot, OptionChainPricer[] pricers, double[][] prices) {
+            double value = book.horizonCash;
+            for (int u = 0; u < logSpot.length; u++) {
+                double spot = Math.exp(logSpot[u]);
+                value += book.stockShares[u] * spot;
+                OptionChainPricer pricer = pricers[u];
+                if (pricer != null) {
+                    double[] chainPrices = prices[u];
+                    double[] multipliers = book.multipliers[u];
+                    pricer.price(spot, chainPrices);
+                    for (int i = 0; i < chainPrices.length; i++) {
+                        value += multipliers[i] * chainPrices[i];
+                    }
+                }
+            }
+            return value;
+        }
+    }
+}
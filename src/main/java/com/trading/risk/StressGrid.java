@@ -0,0 +1,79 @@
+package com.trading.risk;
+
+/**
+ * Spot and volatility shocks of a stress scenario grid. Spot shocks are relative (-0.20
+ * moves every underlying down 20%) and volatility shocks are absolute (0.10 adds ten vol
+ * points to every option). The grid has a cell for every combination.
+ */
+public class StressGrid {
+    // Floor for shocked volatility, so large negative shocks still price
+    static final double MIN_VOLATILITY = 1e-4;
+
+    private final double[] spotShocks;
+    private final double[] volShocks;
+
+    private StressGrid(double[] spotShocks, double[] volShocks) {
+        if (spotShocks.length == 0 || volShocks.length == 0) {
+            throw new IllegalArgumentException("Stress grid needs at least one spot and one vol shock");
+        }
+        for (double shock : spotShocks) {
+            if (!(shock > -1)) {
+                throw new IllegalArgumentException("Spot shock must be above -100%: " + shock);
+            }
+        }
+        this.spotShocks = spotShocks.clone();
+        this.volShocks = volShocks.clone();
+    }
+
+    public static StressGrid of(double[] spotShocks, double[] volShocks) {
+        return new StressGrid(spotShocks, volShocks);
+    }
+
+    /**
+     * Evenly spaced grid from {@code -maxSpotShock} to {@code +maxSpotShock} in
+     * {@code spotSteps} steps each way, and likewise for vol.
+     */
+    public static StressGrid symmetric(double maxSpotShock, int spotSteps, double maxVolShock, int volSteps) {
+        return new StressGrid(range(maxSpotShock, spotSteps), range(maxVolShock, volSteps));
+    }
+
+    // Spot -20% to +20% in 5% steps, vol -10 to +10 points in 5 point steps
+    public static StressGrid standard() {
+        return symmetric(0.20, 4, 0.10, 2);
+    }
+
+    public int getSpotCount() {
+        return spotShocks.length;
+    }
+
+    public int getVolCount() {
+        return volShocks.length;
+    }
+
+    public double getSpotShock(int index) {
+        return spotShocks[index];
+    }
+
+    public double getVolShock(int index) {
+        return volShocks[index];
+    }
+
+    public double[] getSpotShocks() {
+        return spotShocks.clone();
+    }
+
+    public double[] getVolShocks() {
+        return volShocks.clone();
+    }
+
+    private static double[] range(double max, int steps) {
+        if (steps < 0 || max < 0) {
+            throw new IllegalArgumentException("Shock range must not be negative");
+        }
+        double[] shocks = new double[2 * steps + 1];
+        for (int i = 0; i < shocks.length; i++) {
+            shocks[i] = steps == 0 ? 0.0 : max * (i - steps) / steps;
+        }
+        return shocks;
+    }
+}
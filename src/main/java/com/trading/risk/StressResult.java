@@ -0,0 +1,134 @@
+package com.trading.risk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * P&L of every stress grid cell against the unshocked model value, per book (an account,
+ * or a single portfolio) and per underlying. Matrices are indexed
+ * {@code [spot shock][vol shock]} in the order of the {@link StressGrid}.
+ */
+public class StressResult {
+    private final StressGrid grid;
+    private final List<String> tickers;
+    private final Map<String, Integer> tickerIndexes;
+    private final Map<String, double[][]> bookPnl;
+    private final long elapsedNanos;
+
+    // Per book, per underlying, flattened cells
+    StressResult(StressGrid grid, List<String> tickers, Map<String, Integer> tickerIndexes,
+                 Map<String, double[][]> bookPnl, long elapsedNanos) {
+        this.grid = grid;
+        this.tickers = Collections.unmodifiableList(tickers);
+        this.tickerIndexes = tickerIndexes;
+        this.bookPnl = bookPnl;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public StressGrid getGrid() {
+        return grid;
+    }
+
+    public List<String> getTickers() {
+        return tickers;
+    }
+
+    // Account IDs, or the single portfolio's name
+    public List<String> getBooks() {
+        return Collections.unmodifiableList(new ArrayList<>(bookPnl.keySet()));
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Whole-book P&L
+    public double[][] getPnl(String book) {
+        double[][] byTicker = book(book);
+        double[] total = new double[cells()];
+        for (double[] cells : byTicker) {
+            add(total, cells);
+        }
+        return matrix(total);
+    }
+
+    public double[][] getPnl(String book, String ticker) {
+        return matrix(book(book)[tickerIndex(ticker)]);
+    }
+
+    // P&L of one underlying summed over every book
+    public double[][] getUnderlyingPnl(String ticker) {
+        int index = tickerIndex(ticker);
+        double[] total = new double[cells()];
+        for (double[][] byTicker : bookPnl.values()) {
+            add(total, byTicker[index]);
+        }
+        return matrix(total);
+    }
+
+    public double[][] getTotalPnl() {
+        double[] total = new double[cells()];
+        for (double[][] byTicker : bookPnl.values()) {
+            for (double[] cells : byTicker) {
+                add(total, cells);
+            }
+        }
+        return matrix(total);
+    }
+
+    /**
+     * Matrix as text, spot shocks down and vol shocks across.
+     */
+    public String format(double[][] pnl) {
+        StringBuilder out = new StringBuilder(String.format("%10s", "spot\\vol"));
+        for (int j = 0; j < grid.getVolCount(); j++) {
+            out.append(String.format(" %+14.2f", grid.getVolShock(j)));
+        }
+        out.append('\n');
+        for (int i = 0; i < grid.getSpotCount(); i++) {
+            out.append(String.format("%+9.1f%%", grid.getSpotShock(i) * 100));
+            for (int j = 0; j < grid.getVolCount(); j++) {
+                out.append(String.format(" %14.2f", pnl[i][j] + 0.0)); // no "-0.00"
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private double[][] book(String book) {
+        double[][] byTicker = bookPnl.get(book);
+        if (byTicker == null) {
+            throw new IllegalArgumentException("No stress result for " + book);
+        }
+        return byTicker;
+    }
+
+    private int tickerIndex(String ticker) {
+        Integer index = tickerIndexes.get(ticker);
+        if (index == null) {
+            throw new IllegalArgumentException("No stress result for " + ticker);
+        }
+        return index;
+    }
+
+    private int cells() {
+        return grid.getSpotCount() * grid.getVolCount();
+    }
+
+    private double[][] matrix(double[] cells) {
+        int vols = grid.getVolCount();
+        double[][] matrix = new double[grid.getSpotCount()][vols];
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(cells, i * vols, matrix[i], 0, vols);
+        }
+        return matrix;
+    }
+
+    private static void add(double[] total, double[] cells) {
+        for (int k = 0; k < total.length; k++) {
+            total[k] += cells[k];
+        }
+    }
+}
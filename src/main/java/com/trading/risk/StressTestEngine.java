@@ -0,0 +1,285 @@
+package com.trading.risk;
+
+import com.trading.account.AccountManager;
+import com.trading.model.Account;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionChainPricer;
+import com.trading.pricing.OptionPriceCalculator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Revalues books over a {@link StressGrid} of spot and volatility shocks without touching
+ * live positions or prices.
+ * <p>
+ * Positions are only read. Every distinct option across all books (same underlying,
+ * strike, expiry, volatility and type) becomes one contract, and each underlying's
+ * contracts are priced once per grid cell by an {@link OptionChainPricer} sorted by
+ * expiry. Pricing runs in parallel per (underlying, vol shock), then each book's holdings
+ * are summed against the shared price table in parallel per book.
+ */
+public class StressTestEngine {
+    private final ForkJoinPool pool;
+
+    public StressTestEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public StressTestEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Stresses every account in {@code accountManager}; books are named by account ID.
+     *
+     * @param spots spot per underlying; tickers missing here use a held stock position's price
+     */
+    public StressResult run(AccountManager accountManager, Map<String, BigDecimal> spots, StressGrid grid) {
+        Map<String, List<Position>> books = new LinkedHashMap<>();
+        for (Account account : accountManager.getAllAccounts()) {
+            books.put(account.getAccountId(), new ArrayList<>(account.getPortfolio().getPositions()));
+        }
+        return run(books, spots, grid);
+    }
+
+    public StressResult run(Account account, Map<String, BigDecimal> spots, StressGrid grid) {
+        Map<String, List<Position>> books = new LinkedHashMap<>();
+        books.put(account.getAccountId(), new ArrayList<>(account.getPortfolio().getPositions()));
+        return run(books, spots, grid);
+    }
+
+    public StressResult run(String name, Portfolio portfolio, Map<String, BigDecimal> spots, StressGrid grid) {
+        Map<String, List<Position>> books = new LinkedHashMap<>();
+        books.put(name, new ArrayList<>(portfolio.getPositions()));
+        return run(books, spots, grid);
+    }
+
+    public StressResult run(Map<String, List<Position>> books, Map<String, BigDecimal> spots, StressGrid grid) {
+        long start = System.nanoTime();
+        Catalog catalog = new Catalog(books, spots);
+        int cells = grid.getSpotCount() * grid.getVolCount();
+
+        // Shocked price of every contract in every cell
+        double[][] shockedPrices = new double[catalog.contracts.size()][cells];
+        int tasks = catalog.tickers.size() * grid.getVolCount();
+        pool.invoke(new RangeTask(0, tasks, task -> priceUnderlying(catalog, grid,
+                task / grid.getVolCount(), task % grid.getVolCount(), shockedPrices)));
+
+        List<Book> bookList = catalog.books;
+        double[][][] pnl = new double[bookList.size()][][];
+        pool.invoke(new RangeTask(0, bookList.size(),
+                b -> pnl[b] = aggregate(catalog, grid, bookList.get(b), shockedPrices)));
+
+        Map<String, double[][]> bookPnl = new LinkedHashMap<>();
+        for (int b = 0; b < bookList.size(); b++) {
+            bookPnl.put(bookList.get(b).name, pnl[b]);
+        }
+        return new StressResult(grid, catalog.tickers, catalog.tickerIndexes, bookPnl, System.nanoTime() - start);
+    }
+
+    private static void priceUnderlying(Catalog catalog, StressGrid grid, int underlying, int volIndex,
+                                        double[][] shockedPrices) {
+        int[] chain = catalog.chains.get(underlying);
+        if (chain.length == 0) {
+            return;
+        }
+        double volShock = grid.getVolShock(volIndex);
+        double[] strikes = new double[chain.length];
+        double[] maturities = new double[chain.length];
+        double[] vols = new double[chain.length];
+        boolean[] calls = new boolean[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            Contract contract = catalog.contracts.get(chain[i]);
+            strikes[i] = contract.strike;
+            maturities[i] = contract.maturity;
+            vols[i] = Math.max(contract.vol + volShock, StressGrid.MIN_VOLATILITY);
+            calls[i] = contract.call;
+        }
+        OptionChainPricer pricer = new OptionChainPricer(strikes, maturities, vols, calls);
+        double[] prices = new double[chain.length];
+        double spot = catalog.spots[underlying];
+        for (int s = 0; s < grid.getSpotCount(); s++) {
+            pricer.price(spot * (1 + grid.getSpotShock(s)), prices);
+            int cell = s * grid.getVolCount() + volIndex;
+            for (int i = 0; i < chain.length; i++) {
+                shockedPrices[chain[i]][cell] = prices[i];
+            }
+        }
+    }
+
+    private static double[][] aggregate(Catalog catalog, StressGrid grid, Book book, double[][] shockedPrices) {
+        int vols = grid.getVolCount();
+        double[][] pnl = new double[catalog.tickers.size()][grid.getSpotCount() * vols];
+        for (int p = 0; p < book.underlyings.length; p++) {
+            double[] cells = pnl[book.underlyings[p]];
+            double multiplier = book.multipliers[p];
+            int contract = book.contracts[p];
+            if (contract < 0) {
+                double value = multiplier * catalog.spots[book.underlyings[p]];
+                for (int s = 0; s < grid.getSpotCount(); s++) {
+                    double change = value * grid.getSpotShock(s);
+                    for (int v = 0; v < vols; v++) {
+                        cells[s * vols + v] += change;
+                    }
+                }
+            } else {
+                double base = catalog.contracts.get(contract).basePrice;
+                double[] prices = shockedPrices[contract];
+                for (int k = 0; k < cells.length; k++) {
+                    cells[k] += multiplier * (prices[k] - base);
+                }
+            }
+        }
+        return pnl;
+    }
+
+    /**
+     * Underlyings, distinct option contracts and each book's holdings as indexes into them.
+     */
+    private static final class Catalog {
+        private final List<String> tickers = new ArrayList<>();
+        private final Map<String, Integer> tickerIndexes = new HashMap<>();
+        private final List<Contract> contracts = new ArrayList<>();
+        private final List<int[]> chains = new ArrayList<>();
+        private final List<Book> books = new ArrayList<>();
+        private final double[] spots;
+
+        private Catalog(Map<String, List<Position>> positionsByBook, Map<String, BigDecimal> spotOverrides) {
+            Map<String, Integer> contractIndexes = new HashMap<>();
+            Map<String, BigDecimal> heldSpots = new HashMap<>();
+            List<List<Integer>> chainLists = new ArrayList<>();
+
+            positionsByBook.forEach((name, positions) -> {
+                int size = positions.size();
+                Book book = new Book(name, size);
+                for (int p = 0; p < size; p++) {
+                    Position position = positions.get(p);
+                    Security security = position.getSecurity();
+                    String ticker = security.getTicker();
+                    Integer underlying = tickerIndexes.get(ticker);
+                    if (underlying == null) {
+                        underlying = tickers.size();
+                        tickers.add(ticker);
+                        tickerIndexes.put(ticker, underlying);
+                        chainLists.add(new ArrayList<>());
+                    }
+                    book.underlyings[p] = underlying;
+                    double quantity = position.getQuantity().doubleValue();
+
+                    if (security.getType() == SecurityType.STOCK) {
+                        book.contracts[p] = -1;
+                        book.multipliers[p] = quantity;
+                        BigDecimal price = position.getMarketPrice();
+                        if (price != null && price.signum() > 0) {
+                            heldSpots.put(ticker, price);
+                        }
+                        continue;
+                    }
+
+                    boolean call = security.getType() == SecurityType.CALL_OPTION;
+                    String key = ticker + "/" + security.getStrike().doubleValue() + "/"
+                            + security.getTimeToMaturity().doubleValue() + "/" + security.getSigma().doubleValue()
+                            + "/" + call;
+                    Integer contract = contractIndexes.get(key);
+                    if (contract == null) {
+                        contract = contracts.size();
+                        contracts.add(new Contract(security.getStrike().doubleValue(),
+                                security.getTimeToMaturity().doubleValue(), security.getSigma().doubleValue(), call));
+                        contractIndexes.put(key, contract);
+                        chainLists.get(underlying).add(contract);
+                    }
+                    book.contracts[p] = contract;
+                    book.multipliers[p] = quantity * security.getContractSize().doubleValue();
+                }
+                books.add(book);
+            });
+
+            spots = new double[tickers.size()];
+            for (int u = 0; u < tickers.size(); u++) {
+                String ticker = tickers.get(u);
+                BigDecimal spot = spotOverrides.getOrDefault(ticker, heldSpots.get(ticker));
+                if (spot == null || spot.signum() <= 0) {
+                    throw new IllegalArgumentException("No spot price for " + ticker);
+                }
+                spots[u] = spot.doubleValue();
+
+                // Grouped by expiry so the chain pricer shares sqrt(T) and exp(-rT)
+                List<Integer> chain = chainLists.get(u);
+                chain.sort(Comparator.comparingDouble(index -> contracts.get(index).maturity));
+                int[] indexes = new int[chain.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    Contract contract = contracts.get(chain.get(i));
+                    contract.basePrice = OptionPriceCalculator.calculateOptionPrice(spots[u], contract.strike,
+                            contract.maturity, contract.vol, contract.call);
+                    indexes[i] = chain.get(i);
+                }
+                chains.add(indexes);
+            }
+        }
+    }
+
+    private static final class Contract {
+        private final double strike;
+        private final double maturity;
+        private final double vol;
+        private final boolean call;
+        private double basePrice;
+
+        private Contract(double strike, double maturity, double vol, boolean call) {
+            this.strike = strike;
+            this.maturity = maturity;
+            this.vol = vol;
+            this.call = call;
+        }
+    }
+
+    // A book's positions as parallel arrays; contract is -1 for stock
+    private static final class Book {
+        private final String name;
+        private final int[] underlyings;
+        private final int[] contracts;
+        private final double[] multipliers;
+
+        private Book(String name, int size) {
+            this.name = name;
+            this.underlyings = new int[size];
+            this.contracts = new int[size];
+            this.multipliers = new double[size];
+        }
+    }
+
+    // Runs body for every index in [from, to), splitting down to single indexes
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        private RangeTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+            } else if (to > from) {
+                body.accept(from);
+            }
+        }
+    }
+}
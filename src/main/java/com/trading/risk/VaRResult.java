@@ -0,0 +1,80 @@
+package com.trading.risk;
+
+/**
+ * Simulated loss distribution of a {@link MonteCarloVaR} run. Losses are current value
+ * minus value at the horizon, so gains are negative, and are held sorted ascending.
+ */
+public class VaRResult {
+    private final double[] losses;
+    private final double baseValue;
+    private final long elapsedNanos;
+
+    VaRResult(double[] sortedLosses, double baseValue, long elapsedNanos) {
+        this.losses = sortedLosses;
+        this.baseValue = baseValue;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getScenarios() {
+        return losses.length;
+    }
+
+    // Model value of the positions today, which losses are measured from
+    public double getBaseValue() {
+        return baseValue;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Loss not exceeded in {@code confidence} (e.g. 0.99) of scenarios.
+     */
+    public double getValueAtRisk(double confidence) {
+        return losses[tailStart(confidence)];
+    }
+
+    /**
+     * Mean loss over the scenarios at or beyond {@link #getValueAtRisk(double)}.
+     */
+    public double getExpectedShortfall(double confidence) {
+        int start = tailStart(confidence);
+        double sum = 0.0;
+        for (int i = start; i < losses.length; i++) {
+            sum += losses[i];
+        }
+        return sum / (losses.length - start);
+    }
+
+    public double getMeanLoss() {
+        double sum = 0.0;
+        for (double loss : losses) {
+            sum += loss;
+        }
+        return sum / losses.length;
+    }
+
+    public double getWorstLoss() {
+        return losses[losses.length - 1];
+    }
+
+    public double[] getLosses() {
+        return losses.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VaR95=%.2f VaR99=%.2f ES97.5=%.2f ES99=%.2f over %d scenarios (base value %.2f, %d ms)",
+                getValueAtRisk(0.95), getValueAtRisk(0.99), getExpectedShortfall(0.975),
+                getExpectedShortfall(0.99), losses.length, baseValue, elapsedNanos / 1_000_000);
+    }
+
+    private int tailStart(double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        int index = (int) Math.ceil(confidence * losses.length) - 1;
+        return Math.max(0, Math.min(index, losses.length - 1));
+    }
+}
@@ -0,0 +1,65 @@
+package com.trading.risk;
+
+import lombok.Getter;
+
+/**
+ * Scenario count, horizon and seed of a {@link MonteCarloVaR} run. Paths are simulated
+ * in {@code steps} equal log-normal steps over the horizon; with one step the horizon
+ * distribution is sampled exactly.
+ * <p>
+ * The horizon is given in trading days, which drive the diffusion. Options age in
+ * calendar time, since their times to maturity are calendar days / 365, so the horizon
+ * also has a length in calendar days: by default the trading days scaled by 365 / 252,
+ * or set explicitly, e.g. 3 for a one-day horizon over a weekend.
+ */
+@Getter
+public class VaRSettings {
+    public static final int TRADING_DAYS_PER_YEAR = 252;
+    public static final int CALENDAR_DAYS_PER_YEAR = 365;
+    public static final int DEFAULT_SCENARIOS = 100_000;
+
+    private final int scenarios;
+    private final int horizonDays;
+    private final int calendarDays;
+    private final int steps;
+    private final long seed;
+
+    private VaRSettings(int scenarios, int horizonDays, int calendarDays, int steps, long seed) {
+        if (scenarios < 1 || horizonDays < 1 || calendarDays < 1 || steps < 1) {
+            throw new IllegalArgumentException("Scenarios, horizon and steps must be positive");
+        }
+        this.scenarios = scenarios;
+        this.horizonDays = horizonDays;
+        this.calendarDays = calendarDays;
+        this.steps = steps;
+        this.seed = seed;
+    }
+
+    public static VaRSettings daily(long seed) {
+        return of(DEFAULT_SCENARIOS, 1, 1, seed);
+    }
+
+    public static VaRSettings of(int scenarios, int horizonDays, long seed) {
+        return of(scenarios, horizonDays, 1, seed);
+    }
+
+    public static VaRSettings of(int scenarios, int horizonDays, int steps, long seed) {
+        long calendarDays = Math.round((double) horizonDays * CALENDAR_DAYS_PER_YEAR / TRADING_DAYS_PER_YEAR);
+        return new VaRSettings(scenarios, horizonDays, (int) Math.max(1, calendarDays), steps, seed);
+    }
+
+    // Same settings with the horizon spanning calendarDays of option time decay
+    public VaRSettings withCalendarDays(int calendarDays) {
+        return new VaRSettings(scenarios, horizonDays, calendarDays, steps, seed);
+    }
+
+    // Horizon in trading years, over which the underlyings diffuse
+    public double getHorizonYears() {
+        return (double) horizonDays / TRADING_DAYS_PER_YEAR;
+    }
+
+    // Horizon in the calendar years option maturities are measured in
+    public double getHorizonCalendarYears() {
+        return (double) calendarDays / CALENDAR_DAYS_PER_YEAR;
+    }
+}
@@ -0,0 +1,195 @@
+package com.trading.runtime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduling runtime shared by subscribers and market data providers, so that the
+ * number of threads does not grow with the number of accounts.
+ * <p>
+ * Periodic jobs with the same period are coalesced onto one timer. When the timer fires,
+ * each job is handed to the worker executor. A job that is still running from the
+ * previous period is skipped rather than queued twice. Workers run on virtual threads
+ * when that mode is requested, and otherwise on the bounded scheduler pool.
+ */
+public class ExecutionRuntime {
+    private static volatile ExecutionRuntime shared;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService virtualWorkers;
+    private final Map<Long, CoalescedTimer> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger threadIds = new AtomicInteger();
+    private final String name;
+
+    public ExecutionRuntime(String name, int schedulerThreads, boolean virtualThreads) {
+        if (schedulerThreads < 1) {
+            throw new IllegalArgumentException("At least one scheduler thread is required");
+        }
+        this.name = name;
+        this.scheduler = new ScheduledThreadPoolExecutor(schedulerThreads, daemonFactory(name + "-scheduler"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.virtualWorkers = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    /**
+     * Process-wide runtime sized to the available processors.
+     */
+    public static ExecutionRuntime shared() {
+        ExecutionRuntime runtime = shared;
+        if (runtime == null) {
+            synchronized (ExecutionRuntime.class) {
+                runtime = shared;
+                if (runtime == null) {
+                    runtime = new ExecutionRuntime("trading", Runtime.getRuntime().availableProcessors(),
+                            Boolean.getBoolean("trading.virtualThreads"));
+                    shared = runtime;
+                }
+            }
+        }
+        return runtime;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public Executor getWorkers() {
+        return virtualWorkers != null ? virtualWorkers : scheduler;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualWorkers != null;
+    }
+
+    public int getSchedulerThreads() {
+        return scheduler.getCorePoolSize();
+    }
+
+    public int getTimerCount() {
+        return timers.size();
+    }
+
+    /**
+     * Runs {@code task} every {@code period}, sharing one timer with every other job of
+     * the same period. Closing the returned handle removes the job.
+     */
+    public ScheduledJob schedulePeriodic(Runnable task, long period, TimeUnit unit) {
+        long periodNanos = unit.toNanos(period);
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        ScheduledJob job = new ScheduledJob(task, periodNanos);
+        timers.compute(periodNanos, (key, timer) -> {
+            CoalescedTimer target = timer != null ? timer : new CoalescedTimer(periodNanos);
+            target.jobs.add(job);
+            return target;
+        });
+        return job;
+    }
+
+    /**
+     * Starts a long-running loop (a feed generator or dispatch consumer) on its own
+     * platform thread. Such loops spin and park, so they never run on virtual threads.
+     */
+    public Thread startDedicated(Runnable loop, String threadName) {
+        Thread thread = new Thread(loop, name + "-" + threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public void shutdown() {
+        timers.values().forEach(timer -> timer.future.cancel(false));
+        timers.clear();
+        scheduler.shutdown();
+        if (virtualWorkers != null) {
+            virtualWorkers.shutdown();
+        }
+    }
+
+    private ThreadFactory daemonFactory(String prefix) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class CoalescedTimer implements Runnable {
+        private final List<ScheduledJob> jobs = new CopyOnWriteArrayList<>();
+        private final ScheduledFuture<?> future;
+
+        private CoalescedTimer(long periodNanos) {
+            this.future = scheduler.scheduleAtFixedRate(this, 0, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            Executor workers = getWorkers();
+            for (ScheduledJob job : jobs) {
+                if (job.running.compareAndSet(false, true)) {
+                    workers.execute(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle for a coalesced periodic job.
+     */
+    public final class ScheduledJob implements Runnable, AutoCloseable {
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private ScheduledJob(Runnable task, long periodNanos) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!cancelled) {
+                    task.run();
+                }
+            } catch (RuntimeException e) {
+                // The stack trace, since the message alone may be null
+                System.err.println("Scheduled job failed");
+                e.printStackTrace();
+            } finally {
+                running.set(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void close() {
+            cancelled = true;
+            timers.computeIfPresent(periodNanos, (key, timer) -> {
+                timer.jobs.remove(this);
+                if (timer.jobs.isEmpty()) {
+                    timer.future.cancel(false);
+                    return null;
+                }
+                return timer;
+            });
+        }
+    }
+}
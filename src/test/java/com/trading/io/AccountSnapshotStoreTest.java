@@ -0,0 +1,189 @@
+package com.trading.io;
+
+import com.trading.account.AccountManager;
+import com.trading.model.Account;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountSnapshotStoreTest {
+    private static final int MAGIC = 0x504D5353;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void currentFormatRoundTrips() throws IOException {
+        AccountManager source = new AccountManager();
+        Account first = source.createAccount("ACC001", "First");
+        first.setCashBalance(new BigDecimal("12345.67"));
+        first.setStatus(Account.AccountStatus.SUSPENDED);
+        Security call = new Security("AAPL", SecurityType.CALL_OPTION, new BigDecimal("150"), new BigDecimal("0.1234"),
+                new BigDecimal("0.08"), new BigDecimal("0.28"), Month.JANUARY, 2024);
+        call.setContractSize(new BigDecimal("10"));
+        first.getPortfolio().addPosition(new Position(new Security("AAPL"), new BigDecimal("100"), new BigDecimal("181.25")));
+        first.getPortfolio().addPosition(new Position(call, new BigDecimal("-3"), new BigDecimal("31.4159")));
+        Account second = source.createAccount("ACC002", "Second Account");
+        // Too wide for a long, so it takes the BigInteger path of the decimal encoding
+        second.setCashBalance(new BigDecimal("-123456789012345678901234.5"));
+        second.getPortfolio().addPosition(new Position(new Security("MSFT"), new BigDecimal("7"), new BigDecimal("400.00")));
+
+        AccountSnapshotStore store = new AccountSnapshotStore(dir, new SecurityRegistry(), 2);
+        store.write(source);
+        AccountManager restored = new AccountManager();
+        assertEquals(3, store.restoreLatest(restored));
+
+        Account copy = restored.getAccount("ACC001");
+        assertEquals(new BigDecimal("12345.67"), copy.getCashBalance());
+        assertEquals(Account.AccountStatus.SUSPENDED, copy.getStatus());
+        assertEquals(first.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(first.getTotalValue(), copy.getTotalValue());
+
+        Position option = copy.getPortfolio().getPosition(call);
+        Security restoredCall = option.getSecurity();
+        assertEquals(new BigDecimal("31.4159"), option.getMarketPrice());
+        assertEquals(new BigDecimal("-3"), option.getQuantity());
+        assertEquals(LocalDate.of(2024, 1, 19), restoredCall.getExpirationDate());
+        assertEquals(call.getTimeToMaturity(), restoredCall.getTimeToMaturity());
+        assertEquals(call.getSigma(), restoredCall.getSigma());
+        assertEquals(call.getMu(), restoredCall.getMu());
+        assertEquals(new BigDecimal("10"), restoredCall.getContractSize());
+
+        Account other = restored.getAccount("ACC002");
+        assertEquals("Second Account", other.getAccountName());
+        assertEquals(new BigDecimal("-123456789012345678901234.5"), other.getCashBalance());
+        assertEquals(new BigDecimal("7"), other.getPortfolio().getPositions().get(0).getQuantity());
+    }
+
+    @Test
+    void versionOneDerivesTheExpiryDate() throws IOException {
+        Path snapshot = dir.resolve("accounts-1.snapshot");
+        Files.write(snapshot, versionOneSnapshot(1));
+
+        AccountManager restored = new AccountManager();
+        assertEquals(2, new AccountSnapshotStore(dir, new SecurityRegistry(), 2).restore(snapshot, restored));
+
+        Account account = restored.getAccount("ACC001");
+        assertEquals(new BigDecimal("500.00"), account.getCashBalance());
+        Position stock = account.getPortfolio().getPositionsByTicker("TSLA").get(0);
+        Position put = account.getPortfolio().getPositionsByTicker("TSLA").get(1);
+        assertNull(stock.getSecurity().getExpirationDate());
+        assertEquals(SecurityType.PUT_OPTION, put.getSecurity().getType());
+        assertEquals(LocalDate.of(2024, 3, 15), put.getSecurity().getExpirationDate());
+        assertEquals(new BigDecimal("12.50"), put.getMarketPrice());
+    }
+
+    @Test
+    void unknownVersionIsRejected() throws IOException {
+        Path snapshot = dir.resolve("accounts-1.snapshot");
+        Files.write(snapshot, versionOneSnapshot(AccountSnapshotStore.FORMAT_VERSION + 1));
+
+        IOException error = assertThrows(IOException.class,
+                () -> new AccountSnapshotStore(dir).restore(snapshot, new AccountManager()));
+        assertTrue(error.getMessage().contains("Unsupported snapshot version"), error.getMessage());
+    }
+
+    @Test
+    void corruptNewestSnapshotFallsBackToTheOlderOne() throws IOException, InterruptedException {
+        AccountManager source = new AccountManager();
+        Account account = source.createAccount("ACC001", "First");
+        account.getPortfolio().addPosition(new Position(new Security("AAPL"), new BigDecimal("1"), new BigDecimal("100.00")));
+        AccountSnapshotStore store = new AccountSnapshotStore(dir, new SecurityRegistry(), 2);
+        store.write(source);
+        account.getPortfolio().addPosition(new Position(new Security("MSFT"), new BigDecimal("2"), new BigDecimal("50.00")));
+        Path newest = store.write(source);
+
+        // Flip one bit in the middle of the newest file
+        byte[] bytes = Files.readAllBytes(newest);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(newest, bytes);
+
+        IOException error = assertThrows(IOException.class, () -> store.restore(newest, new AccountManager()));
+        assertEquals("Checksum mismatch", error.getMessage());
+
+        AccountManager restored = new AccountManager();
+        assertEquals(1, store.restoreLatest(restored));
+        assertEquals(1, restored.getAccount("ACC001").getPortfolio().getPositions().size());
+    }
+
+    // One account holding TSLA and a TSLA March 2024 put, in the layout before expiry dates were stored
+    private static byte[] versionOneSnapshot(int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(version);
+        out.writeLong(0L);
+
+        out.writeInt(2);
+        writeSecurity(out, "TSLA", SecurityType.STOCK, "0", "0", 0, 0);
+        writeSecurity(out, "TSLA", SecurityType.PUT_OPTION, "200.0000", "0.2500", Month.MARCH.getValue(), 2024);
+
+        out.writeInt(1);
+        writeString(out, "ACC001");
+        writeString(out, "Legacy");
+        writeDecimal(out, new BigDecimal("500.00"));
+        out.writeLong(LocalDateTime.of(2023, 1, 2, 3, 4).toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(0);
+        out.writeByte(Account.AccountStatus.ACTIVE.ordinal());
+        out.writeInt(2);
+        out.writeInt(0);
+        writeDecimal(out, new BigDecimal("10"));
+        writeDecimal(out, new BigDecimal("250.00"));
+        out.writeInt(1);
+        writeDecimal(out, new BigDecimal("2"));
+        writeDecimal(out, new BigDecimal("12.50"));
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static void writeSecurity(DataOutputStream out, String ticker, SecurityType type, String strike,
+                                      String maturity, int month, int year) throws IOException {
+        writeString(out, ticker);
+        out.writeByte(type.ordinal());
+        writeDecimal(out, new BigDecimal(strike));
+        writeDecimal(out, new BigDecimal(maturity));
+        writeDecimal(out, new BigDecimal("0.05"));
+        writeDecimal(out, new BigDecimal("0.30"));
+        writeDecimal(out, new BigDecimal("100"));
+        out.writeByte(month);
+        out.writeInt(year);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+}
@@ -0,0 +1,147 @@
+package com.trading.io;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The memory-mapped reader must return exactly the rows the CSV reader parses, in file
+ * order, wherever the chunk boundaries fall.
+ */
+class PositionReaderTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 12, 1);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    private static final int MIN_CHUNK = 4096;
+    private static final String[] SYMBOLS = {
+            "AAPL", "MSFT", "TSLA", "AAPL-JAN-2024-150-C", "TSLA-MAR-2024-200-P", "MSFT-JUN-2025-412.5-C"
+    };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void csvReaderParsesStocksAndOptions() throws IOException {
+        CSVPositionReader reader = new CSVPositionReader(new SecurityRegistry(), null, CLOCK);
+        List<Position> positions = reader.readPositions("/test-positions.csv");
+
+        assertEquals(3, positions.size());
+        Security call = positions.get(1).getSecurity();
+        assertEquals("AAPL", call.getTicker());
+        assertEquals(SecurityType.CALL_OPTION, call.getType());
+        assertEquals(0, new BigDecimal("150").compareTo(call.getStrike()));
+        assertEquals(LocalDate.of(2024, 1, 19), call.getExpirationDate());
+        assertEquals(new BigDecimal("5"), positions.get(2).getQuantity());
+    }
+
+    @Test
+    void mappedReaderMatchesRowsAcrossChunkBoundaries() throws IOException {
+        List<String> rows = new ArrayList<>();
+        StringBuilder file = new StringBuilder("Symbol,Quantity\n");
+        Random random = new Random(13);
+        for (int i = 0; i < 5_000; i++) {
+            String row = SYMBOLS[random.nextInt(SYMBOLS.length)] + "," + (random.nextInt(20_000) - 10_000);
+            rows.add(row);
+            // Padding, CRLF and blank lines move the boundaries around inside rows
+            file.append(random.nextInt(4) == 0 ? "  " + row + " " : row);
+            file.append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+            if (random.nextInt(50) == 0) {
+                file.append('\n');
+            }
+        }
+        Path path = dir.resolve("positions.csv");
+        Files.write(path, file.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        CSVPositionReader csv = new CSVPositionReader(new SecurityRegistry(), null, CLOCK);
+        List<Position> expected = new ArrayList<>();
+        for (String row : rows) {
+            expected.add(csv.parsePosition(row.split(",")));
+        }
+
+        for (long chunk : new long[] {MIN_CHUNK, MIN_CHUNK + 1, MIN_CHUNK + 7, 5_003, 65_536}) {
+            assertSameRows(expected, read(path, chunk), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void linesEndingExactlyOnChunkBoundariesAreReadOnce() throws IOException {
+        // 16 bytes per line, so every chunk starts on a line after the header
+        StringBuilder file = new StringBuilder("Symbol,Quantity\n");
+        List<Position> expected = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String quantity = String.format("%010d", i);
+            file.append("ABCD,").append(quantity).append('\n');
+            expected.add(new Position(new Security("ABCD"), new BigDecimal(quantity)));
+        }
+        Path path = dir.resolve("aligned.csv");
+        Files.write(path, file.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        assertSameRows(expected, read(path, MIN_CHUNK), "aligned");
+    }
+
+    @Test
+    void overlongLineIsRejected() throws IOException {
+        StringBuilder file = new StringBuilder("Symbol,Quantity\nAAPL,1\n");
+        for (int i = 0; i < MIN_CHUNK * 3; i++) {
+            file.append('X');
+        }
+        file.append(",1\nAAPL,2\n");
+        Path path = dir.resolve("long.csv");
+        Files.write(path, file.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        IOException error = assertThrows(IOException.class, () -> read(path, MIN_CHUNK));
+        assertTrue(error.getMessage().contains("Line longer than"), error.getMessage());
+    }
+
+    private List<Position> read(Path path, long chunkBytes) throws IOException {
+        SecurityRegistry registry = new SecurityRegistry();
+        List<Position> positions = new ArrayList<>();
+        new MappedCSVPositionReader(executor, 4, chunkBytes, CLOCK, registry, null)
+                .readPositions(path, positions::add);
+        // Rows naming the same instrument share one interned security
+        for (Position position : positions) {
+            assertSame(registry.intern(position.getSecurity()), position.getSecurity());
+        }
+        return positions;
+    }
+
+    private static void assertSameRows(List<Position> expected, List<Position> actual, String label) {
+        assertEquals(expected.size(), actual.size(), label);
+        for (int i = 0; i < expected.size(); i++) {
+            Security security = expected.get(i).getSecurity();
+            assertEquals(security, actual.get(i).getSecurity(), label + " row " + i);
+            assertEquals(0, security.getTimeToMaturity().compareTo(actual.get(i).getSecurity().getTimeToMaturity()),
+                    label + " row " + i);
+            assertEquals(expected.get(i).getQuantity(), actual.get(i).getQuantity(), label + " row " + i);
+        }
+    }
+}
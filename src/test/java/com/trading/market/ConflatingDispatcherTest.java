@@ -0,0 +1,129 @@
+package com.trading.market;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflatingDispatcherTest {
+    private final ManualFeed feed = new ManualFeed();
+    private ConflatingDispatcher dispatcher;
+
+    @AfterEach
+    void stop() {
+        dispatcher.stop();
+    }
+
+    @Test
+    void quiescenceWaitsForListenersStillRunning() throws Exception {
+        dispatcher = new ConflatingDispatcher(feed, 1, 16);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, BigDecimal> seen = new ConcurrentHashMap<>();
+        dispatcher.subscribe("AAPL", (ticker, price) -> {
+            entered.countDown();
+            await(release);
+            seen.put(ticker, price);
+        });
+        dispatcher.start();
+
+        feed.tick("AAPL", new BigDecimal("100.00"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        // The ring is already empty while the listener is still inside the update
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertFalse(dispatcher.awaitQuiescence(50, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(dispatcher.awaitQuiescence(5, TimeUnit.SECONDS));
+        assertEquals(new BigDecimal("100.00"), seen.get("AAPL"));
+    }
+
+    @Test
+    void quiescentDispatcherHasDeliveredTheLastPriceOfEveryTicker() throws Exception {
+        dispatcher = new ConflatingDispatcher(feed, 3, 16);
+        String[] tickers = {"AAPL", "MSFT", "TSLA", "NVDA", "AMZN", "GOOG"};
+        Map<String, BigDecimal> seen = new ConcurrentHashMap<>();
+        for (String ticker : tickers) {
+            dispatcher.subscribe(ticker, (t, price) -> {
+                // Slow enough that updates conflate behind it
+                long until = System.nanoTime() + 20_000;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+                seen.put(t, price);
+            });
+        }
+        // One listener that always throws still counts as dispatched
+        dispatcher.subscribe("AAPL", (t, price) -> {
+            throw new IllegalStateException("listener failure");
+        });
+        dispatcher.start();
+
+        for (int i = 1; i <= 20_000; i++) {
+            feed.tick(tickers[i % tickers.length], BigDecimal.valueOf(i, 2));
+        }
+        assertTrue(dispatcher.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < tickers.length; i++) {
+            int last = 20_000 - (20_000 - i) % tickers.length;
+            assertEquals(BigDecimal.valueOf(last, 2), seen.get(tickers[i]), tickers[i]);
+        }
+        assertEquals(20_000, dispatcher.getPublishedCount());
+        assertEquals(dispatcher.getPublishedCount() - dispatcher.getConflatedCount(),
+                dispatcher.getDispatchedCount());
+        assertTrue(dispatcher.getListenerFailureCount() > 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ManualFeed implements MarketDataProvider {
+        private final Map<String, List<MarketDataListener>> listeners = new ConcurrentHashMap<>();
+
+        void tick(String ticker, BigDecimal price) {
+            for (MarketDataListener listener : listeners.getOrDefault(ticker, Collections.emptyList())) {
+                listener.onPriceUpdate(ticker, price);
+            }
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Subscription subscribe(String ticker, MarketDataListener listener) {
+            listeners.computeIfAbsent(ticker, k -> new CopyOnWriteArrayList<>()).add(listener);
+            return Subscription.of(this, ticker, listener);
+        }
+
+        @Override
+        public void unsubscribe(String ticker, MarketDataListener listener) {
+            listeners.getOrDefault(ticker, Collections.emptyList()).remove(listener);
+        }
+
+        @Override
+        public int getListenerCount() {
+            return listeners.values().stream().mapToInt(List::size).sum();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.trading.market;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickJournalTest {
+    private static final String[] TICKERS = {"AAPL", "MSFT", "TSLA"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayReturnsExactlyWhatWasAppended() throws IOException {
+        // Ten records per segment, so the ticks span many segment rolls
+        long segmentBytes = TickJournal.HEADER_BYTES + 10L * TickJournal.RECORD_BYTES;
+        List<String> tickers = new ArrayList<>();
+        List<BigDecimal> prices = new ArrayList<>();
+        Random random = new Random(17);
+
+        try (TickJournal journal = new TickJournal(dir, segmentBytes)) {
+            List<MarketDataListener> listeners = new ArrayList<>();
+            for (String ticker : TICKERS) {
+                listeners.add(journal.listener(ticker));
+            }
+            for (int i = 0; i < 1_005; i++) {
+                int t = random.nextInt(TICKERS.length);
+                // Scales 0 to 6, with trailing zeros that must survive the round trip
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(100_000_000), random.nextInt(7));
+                listeners.get(t).onPriceUpdate(TICKERS[t], price);
+                tickers.add(TICKERS[t]);
+                prices.add(price);
+            }
+            assertEquals(1_005, journal.getRecordCount());
+        }
+
+        // A reopened journal keeps the old ticker IDs and starts a new segment
+        try (TickJournal journal = new TickJournal(dir, segmentBytes)) {
+            assertEquals(1, journal.tickerId("MSFT"));
+            int nvda = journal.tickerId("NVDA");
+            assertEquals(3, nvda);
+            journal.append(nvda, new BigDecimal("0.0001"));
+            journal.append(journal.tickerId("AAPL"), new BigDecimal("123456.789000"));
+            tickers.add("NVDA");
+            prices.add(new BigDecimal("0.0001"));
+            tickers.add("AAPL");
+            prices.add(new BigDecimal("123456.789000"));
+        }
+        assertEquals(102, TickJournal.listSegments(dir).size());
+
+        TickJournalReader reader = new TickJournalReader(dir);
+        assertArrayEquals(new String[] {"AAPL", "MSFT", "TSLA", "NVDA"}, reader.getTickers());
+        List<String> replayedTickers = new ArrayList<>();
+        List<BigDecimal> replayedPrices = new ArrayList<>();
+        long count = reader.replay((ticker, price) -> {
+            replayedTickers.add(ticker);
+            replayedPrices.add(price);
+        });
+
+        assertEquals(prices.size(), count);
+        assertEquals(tickers, replayedTickers);
+        // equals, not compareTo: the scale has to come back too
+        assertEquals(prices, replayedPrices);
+    }
+
+    @Test
+    void pacedReplayKeepsTheOriginalSpacing() throws IOException, InterruptedException {
+        try (TickJournal journal = new TickJournal(dir)) {
+            int id = journal.tickerId("AAPL");
+            journal.append(id, new BigDecimal("100.00"));
+            Thread.sleep(200);
+            journal.append(id, new BigDecimal("100.01"));
+        }
+
+        long start = System.nanoTime();
+        assertEquals(2, new TickJournalReader(dir).replay((ticker, price) -> { }, 2));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // 200ms of recorded time at double speed
+        assertTrue(elapsedMillis >= 90, "replayed in " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void replayProviderCountsTicksAsTheyAreDelivered() throws IOException, InterruptedException {
+        try (TickJournal journal = new TickJournal(dir)) {
+            int id = journal.tickerId("AAPL");
+            for (int i = 0; i < 5; i++) {
+                journal.append(id, BigDecimal.valueOf(10_000 + i, 2));
+            }
+        }
+
+        ReplayMarketDataProvider provider = new ReplayMarketDataProvider(dir, ReplayMarketDataProvider.MAX_SPEED);
+        List<Long> countsSeen = new ArrayList<>();
+        provider.subscribe("AAPL", (ticker, price) -> countsSeen.add(provider.getTickCount()));
+        provider.start();
+        assertTrue(provider.awaitCompletion(10, TimeUnit.SECONDS));
+
+        // Each tick is counted before it reaches the listeners, not only once the replay ends
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), countsSeen);
+        assertEquals(5, provider.getTickCount());
+    }
+}
@@ -0,0 +1,145 @@
+package com.trading.master;
+
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecurityMasterTest {
+    private SecurityMaster master;
+
+    @BeforeEach
+    void open() throws SQLException {
+        // A private in-memory database per test
+        master = new SecurityMaster("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        master.close();
+    }
+
+    @Test
+    void batchLoadSpanningSeveralBatchesIsCached() throws SQLException {
+        List<SecurityDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            definitions.add(definition("T" + i, "0.25", 100));
+        }
+
+        assertEquals(2_500, master.load(definitions));
+        assertEquals(2_500, master.getCachedCount());
+        assertEquals(new BigDecimal("0.2500"), master.get("T2499").getSigma());
+        assertNull(master.get("UNKNOWN"));
+        // Nothing changed since the load's own refresh
+        assertEquals(0, master.refresh());
+    }
+
+    @Test
+    void refreshPassesOnlyChangedDefinitionsToListeners() throws SQLException {
+        master.load(List.of(definition("AAPL", "0.28", 100), definition("MSFT", "0.22", 100)));
+        List<List<SecurityDefinition>> seen = new ArrayList<>();
+        master.addListener(seen::add);
+
+        master.load(Collections.singletonList(definition("AAPL", "0.35", 10)));
+
+        assertEquals(1, seen.size());
+        assertEquals(1, seen.get(0).size());
+        assertEquals("AAPL", seen.get(0).get(0).getTicker());
+        assertEquals(new BigDecimal("0.3500"), master.get("AAPL").getSigma());
+        assertEquals(0, master.refresh());
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void changedDefinitionsReachInternedSecurities() throws SQLException {
+        master.load(List.of(definition("AAPL", "0.28", 100)));
+        SecurityRegistry registry = new SecurityRegistry();
+        Security stock = registry.intern(master.applyDefinition(new Security("AAPL")));
+        Security call = registry.intern(master.applyDefinition(new Security("AAPL", SecurityType.CALL_OPTION,
+                new BigDecimal("150"), new BigDecimal("0.25"))));
+        Security other = registry.intern(new Security("MSFT"));
+        List<Security> repriced = new ArrayList<>();
+        master.addListener(changed -> repriced.addAll(SecurityMaster.applyDefinitions(registry, changed)));
+
+        master.load(Collections.singletonList(definition("AAPL", "0.40", 10)));
+
+        assertEquals(List.of(call), repriced);
+        assertEquals(new BigDecimal("0.4000"), call.getSigma());
+        assertEquals(new BigDecimal("0.4000"), stock.getSigma());
+        assertEquals(new BigDecimal("10"), call.getContractSize());
+        assertEquals(new BigDecimal("0.30"), other.getSigma());
+
+        // Same sigma again, but the contract size moves, so the option still needs revaluing
+        repriced.clear();
+        master.load(Collections.singletonList(definition("AAPL", "0.40", 100)));
+        assertEquals(List.of(call), repriced);
+        assertEquals(new BigDecimal("100"), call.getContractSize());
+
+        // Nothing the option depends on changed
+        repriced.clear();
+        master.load(List.of(definition("AAPL", "0.40", 100), definition("MSFT", "0.20", 100)));
+        assertTrue(repriced.isEmpty());
+    }
+
+    @Test
+    void solvedSigmaIsKeptAcrossRefreshes() throws SQLException {
+        master.load(List.of(definition("AAPL", "0.28", 100)));
+        SecurityRegistry registry = new SecurityRegistry();
+        Security call = registry.intern(master.applyDefinition(new Security("AAPL", SecurityType.CALL_OPTION,
+                new BigDecimal("150"), new BigDecimal("0.25"))));
+        call.setSigma(new BigDecimal("0.412345"));
+        call.setImpliedSigma(true);
+        List<Security> repriced = new ArrayList<>();
+        master.addListener(changed -> repriced.addAll(SecurityMaster.applyDefinitions(registry, changed)));
+
+        master.load(Collections.singletonList(definition("AAPL", "0.35", 100)));
+        assertTrue(repriced.isEmpty());
+        assertEquals(new BigDecimal("0.412345"), call.getSigma());
+
+        master.load(Collections.singletonList(definition("AAPL", "0.35", 10)));
+        assertEquals(List.of(call), repriced);
+        assertEquals(new BigDecimal("0.412345"), call.getSigma());
+        assertEquals(new BigDecimal("10"), call.getContractSize());
+    }
+
+    @Test
+    void positionsAreRevaluedWhenTheContractSizeChanges() throws SQLException {
+        master.load(List.of(definition("AAPL", "0.28", 100)));
+        SecurityRegistry registry = new SecurityRegistry();
+        Security call = registry.intern(master.applyDefinition(new Security("AAPL", SecurityType.CALL_OPTION,
+                new BigDecimal("150"), new BigDecimal("0.25"))));
+        Portfolio portfolio = new Portfolio(registry);
+        Position position = new Position(call, new BigDecimal("3"), new BigDecimal("2.5000"));
+        portfolio.addPosition(position);
+        portfolio.addPosition(new Position(registry.intern(new Security("AAPL")), new BigDecimal("10"),
+                new BigDecimal("150.00")));
+        assertEquals(new BigDecimal("2250.00"), portfolio.getTotalValue());
+        master.addListener(changed -> portfolio.revalue(SecurityMaster.applyDefinitions(registry, changed)));
+
+        master.load(Collections.singletonList(definition("AAPL", "0.28", 10)));
+
+        assertEquals(new BigDecimal("75.00"), position.getMarketValue());
+        assertEquals(new BigDecimal("1575.00"), portfolio.getTotalValue());
+        assertEquals(0, portfolio.getTotalValue().compareTo(portfolio.recomputeTotalValue()));
+    }
+
+    private static SecurityDefinition definition(String ticker, String sigma, int contractSize) {
+        return new SecurityDefinition(ticker, new BigDecimal(sigma), new BigDecimal("0.05"),
+                new BigDecimal("100.00"), contractSize);
+    }
+}
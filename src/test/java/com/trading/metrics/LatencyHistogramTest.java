@@ -0,0 +1,97 @@
+package com.trading.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    private static final int BUCKETS = 960;
+
+    @Test
+    void bucketsTileTheWholeRangeOfALong() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(0, LatencyHistogram.upperBound(0));
+        for (int i = 1; i < BUCKETS; i++) {
+            long lower = LatencyHistogram.upperBound(i - 1) + 1;
+            long upper = LatencyHistogram.upperBound(i);
+            assertEquals(i, LatencyHistogram.bucket(lower), "lower bound of " + i);
+            assertEquals(i, LatencyHistogram.bucket(upper), "upper bound of " + i);
+            // Log-linear: a bucket is never wider than 1/16 of its lower bound
+            assertTrue(upper - lower < Math.max(1, lower / 16 + 1), "width of " + i);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(BUCKETS - 1));
+        assertEquals(BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void randomValuesFallWithinTheirBucket() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "value " + value);
+        }
+    }
+
+    @Test
+    void percentilesAreUpperBoundsWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_500.0, histogram.getMeanNanos(), 1e-6);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = Math.round(percentile * 100) * 1_000;
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact / 16, percentile + ": " + reported);
+        }
+        // Capped at the largest value actually seen
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(10_000_000, histogram.getMaxNanos());
+
+        // Negative durations, from a clock stepping back, count as zero
+        histogram.record(-5);
+        assertEquals(10_001, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(0.001));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("concurrent");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long offset = t;
+                tasks.add(pool.submit(() -> {
+                    for (long i = 0; i < 250_000; i++) {
+                        histogram.record(i * 4 + offset);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1_000_000, histogram.getCount());
+        assertEquals(999_999, histogram.getMaxNanos());
+        assertEquals(499_999.5, histogram.getMeanNanos(), 1e-6);
+    }
+}
@@ -0,0 +1,144 @@
+package com.trading.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomized version of the checks in {@code PortfolioConcurrencyBenchmark}: tick writers
+ * own disjoint tickers and price every position on a ticker alike, one thread adds,
+ * merges and removes positions, and readers check that every snapshot shows one price
+ * per ticker, values that match quantity and price, and a total that is the sum of its
+ * rows. Drift checks run alongside, and once the writers stop the running total must
+ * still equal a full recompute.
+ */
+class PortfolioConcurrencyTest {
+    private static final int WRITERS = 2;
+    private static final int READERS = 2;
+    private static final int TICKERS = 40;
+    private static final int SNAPSHOTS_PER_READER = 2_000;
+
+    @Test
+    void snapshotsAreConsistentUnderConcurrentTicksAndRestructuring() throws Exception {
+        long seed = System.nanoTime();
+        String label = "seed " + seed;
+        Random setup = new Random(seed);
+        Portfolio portfolio = new Portfolio();
+        String[] tickers = new String[TICKERS];
+        for (int i = 0; i < TICKERS; i++) {
+            tickers[i] = "T" + i;
+            portfolio.addPosition(new Position(new Security(tickers[i]), new BigDecimal(1 + setup.nextInt(500))));
+            portfolio.addPosition(new Position(new Security(tickers[i], SecurityType.CALL_OPTION,
+                    new BigDecimal(80 + setup.nextInt(40)), new BigDecimal("0.25")), new BigDecimal(setup.nextInt(20) - 10)));
+            portfolio.addPosition(new Position(new Security(tickers[i], SecurityType.PUT_OPTION,
+                    new BigDecimal(80 + setup.nextInt(40)), new BigDecimal("0.25")), new BigDecimal(setup.nextInt(20) - 10)));
+            portfolio.updatePrice(tickers[i], new BigDecimal("100.00"));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2 + READERS);
+        List<Future<?>> background = new ArrayList<>();
+        List<Future<Integer>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                Random random = new Random(seed + 1 + w);
+                background.add(pool.submit(() -> {
+                    // Writers own disjoint tickers, so every ticker has a single writer
+                    while (running.get()) {
+                        int t = writer + WRITERS * random.nextInt(TICKERS / WRITERS);
+                        BigDecimal price = BigDecimal.valueOf(5_000 + random.nextInt(10_000), 2 + random.nextInt(3));
+                        portfolio.updatePrice(tickers[t], price);
+                    }
+                }));
+            }
+            Random structure = new Random(seed + WRITERS + 1);
+            background.add(pool.submit(() -> {
+                while (running.get()) {
+                    Security untraded = new Security("N" + structure.nextInt(16));
+                    switch (structure.nextInt(3)) {
+                        case 0:
+                            portfolio.addPosition(new Position(untraded, BigDecimal.ONE, new BigDecimal("20.00")));
+                            break;
+                        case 1:
+                            // Merges into a traded position while its ticker keeps ticking
+                            portfolio.addPosition(new Position(new Security(tickers[structure.nextInt(TICKERS)]),
+                                    BigDecimal.ONE));
+                            break;
+                        default:
+                            portfolio.removePosition(untraded);
+                            break;
+                    }
+                }
+            }));
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> {
+                    int checked = 0;
+                    for (int i = 0; i < SNAPSHOTS_PER_READER; i++) {
+                        checked += check(portfolio.snapshot(), label);
+                    }
+                    return checked;
+                }));
+            }
+            background.add(pool.submit(() -> {
+                while (running.get()) {
+                    portfolio.getTotalValueDrift();
+                }
+            }));
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(60, TimeUnit.SECONDS) >= SNAPSHOTS_PER_READER * TICKERS * 3, label);
+            }
+        } finally {
+            running.set(false);
+            pool.shutdown();
+        }
+        for (Future<?> task : background) {
+            // Rethrows anything a writer threw
+            task.get(10, TimeUnit.SECONDS);
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, portfolio.getTotalValue().compareTo(portfolio.recomputeTotalValue()), label);
+    }
+
+    // Throws with a description of the first inconsistency; returns the rows checked
+    private static int check(PortfolioSnapshot snapshot, String label) {
+        Map<String, BigDecimal> tickerPrices = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (PositionState row : snapshot.getPositions()) {
+            Security security = row.getSecurity();
+            BigDecimal expected = row.getQuantity().multiply(row.getMarketPrice());
+            if (security.getType() != SecurityType.STOCK) {
+                expected = expected.multiply(security.getContractSize());
+            }
+            expected = expected.setScale(2, RoundingMode.HALF_UP);
+            if (expected.compareTo(row.getMarketValue()) != 0) {
+                throw new AssertionError(label + ": torn position " + security + ": " + row.getQuantity()
+                        + " x " + row.getMarketPrice() + " != " + row.getMarketValue());
+            }
+            BigDecimal seen = tickerPrices.putIfAbsent(security.getTicker(), row.getMarketPrice());
+            if (seen != null && seen.compareTo(row.getMarketPrice()) != 0) {
+                throw new AssertionError(label + ": ticker " + security.getTicker() + " at two ticks: "
+                        + seen + " and " + row.getMarketPrice());
+            }
+            total = total.add(row.getMarketValue());
+        }
+        if (total.compareTo(snapshot.getTotalValue()) != 0) {
+            throw new AssertionError(label + ": total " + snapshot.getTotalValue() + " != sum of rows " + total);
+        }
+        return snapshot.getPositions().size();
+    }
+}
@@ -0,0 +1,121 @@
+package com.trading.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The running total follows every add, merge, removal and tick, and checking it for drift
+ * while ticks flow leaves it equal to a full recompute.
+ */
+class PortfolioTotalValueTest {
+    private final Portfolio portfolio = new Portfolio(new SecurityRegistry());
+
+    @Test
+    void runningTotalFollowsStructureAndTicks() {
+        Position stock = new Position(new Security("AAA"), new BigDecimal("10"), new BigDecimal("20.00"));
+        Position call = new Position(new Security("AAA", SecurityType.CALL_OPTION, new BigDecimal("100"),
+                new BigDecimal("0.25")), new BigDecimal("2"), new BigDecimal("1.5000"));
+        Position other = new Position(new Security("BBB"), new BigDecimal("3"), new BigDecimal("7.25"));
+        portfolio.addPosition(stock);
+        portfolio.addPosition(call);
+        portfolio.addPosition(other);
+        // 200 + 2 x 1.5 x 100 + 21.75
+        assertTotal("521.75");
+
+        portfolio.addPosition(new Position(new Security("AAA"), new BigDecimal("5")));
+        assertTotal("621.75");
+
+        portfolio.updatePrice("BBB", new BigDecimal("8.00"));
+        assertTotal("624.00");
+
+        assertSame(other, portfolio.removePosition(new Security("BBB")));
+        assertTotal("600.00");
+        assertNull(portfolio.removePosition(new Security("BBB")));
+        assertTotal("600.00");
+    }
+
+    @Test
+    void tickerIndexHoldsEachTickersPositions() {
+        Position stock = new Position(new Security("AAA"), BigDecimal.ONE);
+        Position put = new Position(new Security("AAA", SecurityType.PUT_OPTION, new BigDecimal("90"),
+                new BigDecimal("0.5")), BigDecimal.ONE);
+        Position other = new Position(new Security("BBB"), BigDecimal.ONE);
+        portfolio.addPosition(stock);
+        portfolio.addPosition(other);
+        portfolio.addPosition(put);
+
+        assertEquals(List.of(stock, put), portfolio.getPositionsByTicker("AAA"));
+        assertEquals(List.of(other), portfolio.getPositionsByTicker("BBB"));
+        assertTrue(portfolio.getPositionsByTicker("CCC").isEmpty());
+        assertEquals("AAA", portfolio.getTickerBook("AAA").getTicker());
+        assertNull(portfolio.getTickerBook("CCC"));
+
+        // Removing a position renumbers the others without losing them from their tickers
+        portfolio.removePosition(stock.getSecurity());
+        assertEquals(List.of(put), portfolio.getPositionsByTicker("AAA"));
+        assertEquals(List.of(other), portfolio.getPositionsByTicker("BBB"));
+        portfolio.updatePrice("BBB", new BigDecimal("3.00"));
+        assertEquals(new BigDecimal("3.00"), other.getMarketPrice());
+    }
+
+    @Test
+    void driftChecksWhileTickingLeaveTheTotalIntact() throws Exception {
+        long seed = System.nanoTime();
+        String label = "seed " + seed;
+        String[] tickers = new String[8];
+        for (int i = 0; i < tickers.length; i++) {
+            tickers[i] = "T" + i;
+            portfolio.addPosition(new Position(new Security(tickers[i]), new BigDecimal(10 + i)));
+            portfolio.addPosition(new Position(new Security(tickers[i], SecurityType.CALL_OPTION,
+                    new BigDecimal("100"), new BigDecimal("0.25")), new BigDecimal(i - 4)));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int w = 0; w < 2; w++) {
+                int writer = w;
+                Random random = new Random(seed + w);
+                writers.add(pool.submit(() -> {
+                    while (running.get()) {
+                        int t = writer + 2 * random.nextInt(tickers.length / 2);
+                        portfolio.updatePrice(tickers[t], BigDecimal.valueOf(5_000 + random.nextInt(10_000), 2));
+                    }
+                }));
+            }
+            for (int i = 0; i < 500; i++) {
+                portfolio.getTotalValueDrift();
+            }
+        } finally {
+            running.set(false);
+            pool.shutdown();
+        }
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, portfolio.getTotalValue().compareTo(portfolio.recomputeTotalValue()), label);
+        assertEquals(0, portfolio.getTotalValueDrift().signum(), label);
+    }
+
+    private void assertTotal(String expected) {
+        assertEquals(new BigDecimal(expected), portfolio.getTotalValue());
+        assertEquals(0, portfolio.getTotalValue().compareTo(portfolio.recomputeTotalValue()));
+    }
+}
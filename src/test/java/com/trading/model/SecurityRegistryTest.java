@@ -0,0 +1,118 @@
+package com.trading.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecurityRegistryTest {
+    private final SecurityRegistry registry = new SecurityRegistry();
+
+    @Test
+    void equalSecuritiesShareOneDenseId() {
+        Security first = registry.intern(new Security("AAPL"));
+        Security call = registry.intern(call("150"));
+
+        assertEquals(0, first.getId());
+        assertEquals(1, call.getId());
+        assertSame(call, registry.intern(call("150")));
+        assertEquals(1, registry.idOf(call("150")));
+        assertEquals(-1, registry.find(call("155")));
+        assertSame(call, registry.get(1));
+    }
+
+    @Test
+    void portfolioFindsPositionsById() {
+        Portfolio portfolio = new Portfolio(registry);
+        Position position = new Position(call("150"), new BigDecimal("2"));
+        portfolio.addPosition(position);
+        // An equal security built separately merges into the same position
+        portfolio.addPosition(new Position(call("150"), new BigDecimal("3")));
+
+        assertEquals(1, portfolio.getPositions().size());
+        assertSame(position, portfolio.getPosition(call("150")));
+        assertEquals(new BigDecimal("5"), position.getQuantity());
+        assertNull(portfolio.getPosition(call("160")));
+
+        // The id survives a change to the security's identity fields
+        position.getSecurity().setTimeToMaturity(new BigDecimal("0.2"));
+        assertSame(position, portfolio.removePosition(position.getSecurity()));
+        assertNull(portfolio.getPosition(call("150")));
+        assertEquals(0, portfolio.getPositions().size());
+    }
+
+    @Test
+    void portfolioIndexIsSizedToItsOwnPositions() {
+        // Firm-wide ids run high while one account holds only a few of them
+        for (int i = 0; i < 50_000; i++) {
+            registry.intern(new Security("S" + i));
+        }
+        Portfolio portfolio = new Portfolio(registry);
+        Position[] held = new Position[40];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = new Position(new Security("S" + (49_999 - i * 1_237)), BigDecimal.ONE);
+            portfolio.addPosition(held[i]);
+        }
+        assertTrue(portfolio.positionTableCapacity() <= 128, "capacity " + portfolio.positionTableCapacity());
+        for (Position position : held) {
+            assertSame(position, portfolio.getPosition(new Security(position.getSecurity().getTicker())));
+        }
+        assertNull(portfolio.getPosition(new Security("S1")));
+        assertNull(portfolio.getPosition(new Security("UNKNOWN")));
+
+        // Removed ids stay out of the way of the ones probed past them, and can come back
+        for (int i = 0; i < held.length; i += 2) {
+            assertSame(held[i], portfolio.removePosition(held[i].getSecurity()));
+        }
+        for (int i = 0; i < held.length; i++) {
+            Position found = portfolio.getPosition(held[i].getSecurity());
+            if (i % 2 == 0) {
+                assertNull(found);
+            } else {
+                assertSame(held[i], found);
+            }
+        }
+        Position back = new Position(held[0].getSecurity(), new BigDecimal("2"));
+        portfolio.addPosition(back);
+        assertSame(back, portfolio.getPosition(held[0].getSecurity()));
+        assertEquals(held.length / 2 + 1, portfolio.getPositions().size());
+
+        // Churn through removed slots without the table growing with every id ever held
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 30; i++) {
+                Security security = new Security("S" + (round * 30 + i));
+                portfolio.addPosition(new Position(security, BigDecimal.ONE));
+                portfolio.removePosition(security);
+            }
+        }
+        assertTrue(portfolio.positionTableCapacity() <= 128, "capacity " + portfolio.positionTableCapacity());
+        assertSame(back, portfolio.getPosition(held[0].getSecurity()));
+        assertSame(held[1], portfolio.getPosition(held[1].getSecurity()));
+    }
+
+    @Test
+    void securityOfAnotherRegistryKeepsItsId() {
+        SecurityRegistry other = new SecurityRegistry();
+        other.intern(new Security("MSFT"));
+        Security theirs = other.intern(call("150"));
+
+        registry.intern(new Security("AAPL"));
+        registry.intern(new Security("TSLA"));
+        Security ours = registry.intern(theirs);
+
+        assertNotSame(theirs, ours);
+        assertEquals(1, theirs.getId());
+        assertEquals(2, ours.getId());
+        assertEquals(1, other.idOf(theirs));
+        assertEquals(2, registry.idOf(theirs));
+    }
+
+    private static Security call(String strike) {
+        return new Security("AAPL", SecurityType.CALL_OPTION, new BigDecimal(strike), new BigDecimal("0.25"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.trading.portfolio;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Random walk of spot ticks through a delta-gamma group, measuring every option's
+ * approximated price against a full Black-Scholes reprice at the same spot.
+ */
+class DeltaGammaRevaluationTest {
+    private static final int TICKS = 20_000;
+
+    @Test
+    void approximationErrorStaysWithinTolerance() {
+        List<Position> positions = chain();
+        UnderlyingGroup group = new UnderlyingGroup("XYZ", positions, RevaluationSettings.deltaGamma());
+        Random random = new Random(7);
+
+        double spot = 100.0;
+        double maxError = 0.0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            // About 0.1% per tick, so the 0.5% band is crossed every few dozen ticks
+            spot *= Math.exp(0.001 * random.nextGaussian());
+            BigDecimal price = BigDecimal.valueOf(spot).setScale(2, RoundingMode.HALF_UP);
+            group.onPriceUpdate("XYZ", price);
+
+            for (Position position : positions) {
+                Security security = position.getSecurity();
+                double exact = OptionPriceCalculator.calculateOptionPrice(price.doubleValue(),
+                        security.getStrike().doubleValue(), security.getTimeToMaturity().doubleValue(),
+                        security.getSigma().doubleValue(), security.getType() == SecurityType.CALL_OPTION);
+                maxError = Math.max(maxError, Math.abs(position.getMarketPrice().doubleValue() - exact));
+            }
+        }
+
+        assertTrue(group.getApproximations() > group.getFullReprices(),
+                "most ticks should be approximated: " + group.getApproximations() + " vs " + group.getFullReprices());
+        assertTrue(maxError < RevaluationSettings.DEFAULT_TOLERANCE, "max error " + maxError);
+        assertTrue(group.getMaxApproximationError() < RevaluationSettings.DEFAULT_TOLERANCE,
+                "tracked error " + group.getMaxApproximationError());
+    }
+
+    @Test
+    void greeksMatchFiniteDifferences() {
+        List<Position> positions = chain();
+        UnderlyingGroup group = new UnderlyingGroup("XYZ", positions, RevaluationSettings.full());
+        double spot = 101.0;
+        group.onPriceUpdate("XYZ", BigDecimal.valueOf(spot));
+
+        double h = 0.01;
+        for (Position position : positions) {
+            Security security = position.getSecurity();
+            double strike = security.getStrike().doubleValue();
+            double maturity = security.getTimeToMaturity().doubleValue();
+            double vol = security.getSigma().doubleValue();
+            boolean call = security.getType() == SecurityType.CALL_OPTION;
+            double up = OptionPriceCalculator.calculateOptionPrice(spot + h, strike, maturity, vol, call);
+            double mid = OptionPriceCalculator.calculateOptionPrice(spot, strike, maturity, vol, call);
+            double down = OptionPriceCalculator.calculateOptionPrice(spot - h, strike, maturity, vol, call);
+
+            assertEquals((up - down) / (2 * h), position.getDelta(), 1e-6, security.toString());
+            assertEquals((up - 2 * mid + down) / (h * h), position.getGamma(), 1e-4, security.toString());
+        }
+    }
+
+    // Calls and puts from 80 to 120 strike, two weeks to a year, across a vol range
+    private static List<Position> chain() {
+        List<Position> positions = new ArrayList<>();
+        String[] maturities = {"0.04", "0.25", "1.0"};
+        String[] vols = {"0.20", "0.45"};
+        for (int strike = 80; strike <= 120; strike += 10) {
+            for (String maturity : maturities) {
+                for (String vol : vols) {
+                    for (SecurityType type : new SecurityType[]{SecurityType.CALL_OPTION, SecurityType.PUT_OPTION}) {
+                        Security security = new Security("XYZ", type, new BigDecimal(strike), new BigDecimal(maturity),
+                                new BigDecimal("0.05"), new BigDecimal(vol));
+                        positions.add(new Position(security, BigDecimal.ONE));
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+}
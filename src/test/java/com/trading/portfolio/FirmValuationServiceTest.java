@@ -0,0 +1,152 @@
+package com.trading.portfolio;
+
+import com.trading.account.AccountManager;
+import com.trading.market.MarketDataListener;
+import com.trading.market.MarketDataProvider;
+import com.trading.market.Subscription;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two accounts holding the same option through one firm service: contract changes and
+ * expiry must reach every holder on the next tick.
+ */
+class FirmValuationServiceTest {
+    private final AccountManager accounts = new AccountManager();
+    private final ManualFeed feed = new ManualFeed();
+    private final Security option = new Security("XYZ", SecurityType.CALL_OPTION,
+            new BigDecimal("100"), new BigDecimal("0.25"));
+    private Position first;
+    private Position second;
+
+    private FirmValuationService start() {
+        first = new Position(option, new BigDecimal("2"));
+        second = new Position(option, new BigDecimal("-1"));
+        accounts.createAccount("A", "First").getPortfolio().addPosition(first);
+        accounts.createAccount("B", "Second").getPortfolio().addPosition(second);
+        FirmValuationService service = new FirmValuationService(accounts, feed);
+        service.start();
+        return service;
+    }
+
+    @Test
+    void refreshedSigmaReachesEveryHolder() {
+        FirmValuationService service = start();
+        feed.tick("XYZ", "105.00");
+        BigDecimal before = expected(105.0);
+        assertEquals(before, first.getMarketPrice());
+
+        option.setSigma(new BigDecimal("0.60"));
+        feed.tick("XYZ", "105.00");
+        // Unchanged until the contracts are refreshed
+        assertEquals(before, first.getMarketPrice());
+
+        service.refreshContracts();
+        feed.tick("XYZ", "105.00");
+        assertEquals(expected(105.0), first.getMarketPrice());
+        assertEquals(expected(105.0), second.getMarketPrice());
+        assertEquals(2, service.refreshDirtyAccounts());
+    }
+
+    @Test
+    void expiredOptionSettlesAtIntrinsicAndUnsubscribes() {
+        FirmValuationService service = start();
+        feed.tick("XYZ", "100.00");
+
+        option.setTimeToMaturity(BigDecimal.ZERO);
+        service.refreshContracts();
+        feed.tick("XYZ", "112.50");
+
+        assertEquals(new BigDecimal("12.5000"), first.getMarketPrice());
+        assertEquals(new BigDecimal("12.5000"), second.getMarketPrice());
+        assertEquals(1, service.getSettledOptions());
+        assertEquals(0, feed.getListenerCount());
+    }
+
+    @Test
+    void rebuildKeepsPricesAndCountsEachAccountOnce() {
+        FirmValuationService service = start();
+        Position stock = new Position(new Security("XYZ"), new BigDecimal("10"));
+        accounts.getAccount("A").getPortfolio().addPosition(stock);
+        feed.tick("XYZ", "105.00");
+        service.refreshDirtyAccounts();
+
+        service.rebuildIndex();
+
+        // The old books let go only after the new ones subscribed, so the feed kept the price
+        assertEquals(1, feed.getListenerCount());
+        assertEquals(new BigDecimal("105.00"), stock.getMarketPrice());
+        assertEquals(expected(105.0), first.getMarketPrice());
+
+        feed.tick("XYZ", "110.00");
+        service.refreshDirtyAccounts();
+        BigDecimal total = accounts.getAccount("A").getTotalValue().add(accounts.getAccount("B").getTotalValue());
+        assertEquals(0, total.compareTo(service.getFirmTotalValue()));
+    }
+
+    private BigDecimal expected(double spot) {
+        double price = OptionPriceCalculator.calculateOptionPrice(spot, option.getStrike().doubleValue(),
+                option.getTimeToMaturity().doubleValue(), option.getSigma().doubleValue(), true);
+        return BigDecimal.valueOf(price).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    // Delivers ticks on the calling thread and, like the mock provider, the current price on
+    // subscribe; a ticker's price is forgotten once its last listener leaves
+    private static final class ManualFeed implements MarketDataProvider {
+        private final Map<String, List<MarketDataListener>> listeners = new ConcurrentHashMap<>();
+        private final Map<String, BigDecimal> prices = new ConcurrentHashMap<>();
+
+        void tick(String ticker, String price) {
+            BigDecimal value = new BigDecimal(price);
+            prices.put(ticker, value);
+            for (MarketDataListener listener : listeners.getOrDefault(ticker, Collections.emptyList())) {
+                listener.onPriceUpdate(ticker, value);
+            }
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Subscription subscribe(String ticker, MarketDataListener listener) {
+            listeners.computeIfAbsent(ticker, k -> new CopyOnWriteArrayList<>()).add(listener);
+            BigDecimal price = prices.get(ticker);
+            if (price != null) {
+                listener.onPriceUpdate(ticker, price);
+            }
+            return Subscription.of(this, ticker, listener);
+        }
+
+        @Override
+        public void unsubscribe(String ticker, MarketDataListener listener) {
+            List<MarketDataListener> tickerListeners = listeners.getOrDefault(ticker, Collections.emptyList());
+            tickerListeners.remove(listener);
+            if (tickerListeners.isEmpty()) {
+                prices.remove(ticker);
+            }
+        }
+
+        @Override
+        public int getListenerCount() {
+            return listeners.values().stream().mapToInt(List::size).sum();
+        }
+    }
+}
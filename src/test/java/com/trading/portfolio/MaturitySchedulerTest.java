@@ -0,0 +1,205 @@
+package com.trading.portfolio;
+
+import com.trading.market.Subscription;
+import com.trading.model.OptionExpiry;
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCache;
+import com.trading.pricing.OptionPriceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Options are re-timed from the clock, and an option reaching its expiry close settles at
+ * intrinsic value on the next tick and is no longer repriced.
+ */
+class MaturitySchedulerTest {
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private final MutableClock clock = new MutableClock(LocalDateTime.of(2024, 1, 10, 10, 0));
+    private final Security january = option(SecurityType.CALL_OPTION, "100", Month.JANUARY);
+    private final Security march = option(SecurityType.PUT_OPTION, "95", Month.MARCH);
+
+    @Test
+    void optionsAreRetimedOnceFromTheClock() {
+        Security undated = new Security("XYZ", SecurityType.CALL_OPTION, new BigDecimal("110"), new BigDecimal("0.5"));
+        Portfolio first = portfolio(new Position(january, BigDecimal.ONE), new Position(undated, BigDecimal.ONE));
+        // The same security held in a second portfolio is re-timed once
+        Portfolio second = portfolio(new Position(january, BigDecimal.ONE), new Position(march, BigDecimal.ONE));
+        OptionPriceCache cache = new OptionPriceCache(64, 0.01, 0.0001, new SecurityRegistry());
+        cache.price(january, 100.0);
+
+        MaturityScheduler scheduler = new MaturityScheduler(clock);
+        scheduler.addPortfolio(first);
+        scheduler.addPortfolio(second);
+        scheduler.setPriceCache(cache);
+        AtomicInteger notified = new AtomicInteger();
+        scheduler.addListener(notified::incrementAndGet);
+
+        assertEquals(2, scheduler.recompute());
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        assertEquals(OptionExpiry.yearsToExpiry(now, LocalDate.of(2024, 1, 19)), january.getTimeToMaturity());
+        assertEquals(OptionExpiry.yearsToExpiry(now, LocalDate.of(2024, 3, 15)), march.getTimeToMaturity());
+        assertEquals(new BigDecimal("0.5"), undated.getTimeToMaturity());
+        assertEquals(1, notified.get());
+        assertEquals(0, cache.size());
+
+        // Same instant: nothing changes and nobody is told
+        assertEquals(0, scheduler.recompute());
+        assertEquals(1, notified.get());
+
+        // Past the close on expiry day T stops at zero
+        clock.set(LocalDateTime.of(2024, 1, 22, 9, 30));
+        assertEquals(2, scheduler.recompute());
+        assertEquals(0, january.getTimeToMaturity().signum());
+        assertEquals(1, scheduler.getExpiredOptions());
+        assertEquals(2, notified.get());
+    }
+
+    @Test
+    void dayRollRecomputesOncePerDate() {
+        MaturityScheduler scheduler = new MaturityScheduler(clock);
+        scheduler.addPortfolio(portfolio(new Position(march, BigDecimal.ONE)));
+
+        assertTrue(scheduler.recomputeOnDayRoll());
+        assertEquals(1, scheduler.getLastChanged());
+        clock.set(LocalDateTime.of(2024, 1, 10, 15, 59));
+        assertFalse(scheduler.recomputeOnDayRoll());
+        clock.set(LocalDateTime.of(2024, 1, 11, 0, 1));
+        assertTrue(scheduler.recomputeOnDayRoll());
+        assertEquals(1, scheduler.getLastChanged());
+        assertEquals(0, scheduler.getExpiredOptions());
+        assertEquals(2, scheduler.getRecomputes());
+    }
+
+    @Test
+    void expiredOptionSettlesAtIntrinsicOnTheNextTick() {
+        Position stock = new Position(new Security("XYZ"), new BigDecimal("10"));
+        Position call = new Position(january, new BigDecimal("2"));
+        Position put = new Position(march, new BigDecimal("-1"));
+        Portfolio portfolio = portfolio(stock, call, put);
+        MaturityScheduler scheduler = new MaturityScheduler(clock);
+        scheduler.addPortfolio(portfolio);
+        scheduler.recompute();
+
+        UnderlyingGroup group = new UnderlyingGroup("XYZ", portfolio.getPositions());
+        scheduler.addListener(group::refreshContracts);
+        group.onPriceUpdate("XYZ", new BigDecimal("105.00"));
+        BigDecimal beforeExpiry = price(january, 105.0);
+        assertEquals(beforeExpiry, call.getMarketPrice());
+
+        // The call expires at the close on the 19th
+        clock.set(LocalDateTime.of(2024, 1, 19, 16, 0));
+        scheduler.recompute();
+        // Priced as before until the next tick
+        assertEquals(beforeExpiry, call.getMarketPrice());
+
+        group.onPriceUpdate("XYZ", new BigDecimal("112.50"));
+        assertEquals(new BigDecimal("12.5000"), call.getMarketPrice());
+        assertEquals(0.0, call.getDelta());
+        assertEquals(1, group.getSettledOptions());
+        assertEquals(price(march, 112.5), put.getMarketPrice());
+
+        // Settled once, then left alone while the put keeps repricing
+        group.onPriceUpdate("XYZ", new BigDecimal("120.00"));
+        assertEquals(new BigDecimal("12.5000"), call.getMarketPrice());
+        assertEquals(price(march, 120.0), put.getMarketPrice());
+        assertEquals(new BigDecimal("120.00"), stock.getMarketPrice());
+        assertEquals(1, group.getSettledOptions());
+    }
+
+    @Test
+    void groupWithOnlyExpiredOptionsClosesItsSubscription() {
+        Position call = new Position(january, BigDecimal.ONE);
+        MaturityScheduler scheduler = new MaturityScheduler(clock);
+        scheduler.addPortfolio(portfolio(call));
+        clock.set(LocalDateTime.of(2024, 2, 1, 12, 0));
+        scheduler.recompute();
+
+        // Already expired when loaded, so it settles on the first tick
+        UnderlyingGroup group = new UnderlyingGroup("XYZ", List.of(call));
+        AtomicBoolean closed = new AtomicBoolean();
+        group.setSubscription(new Subscription() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+
+            @Override
+            public boolean isClosed() {
+                return closed.get();
+            }
+        });
+        group.onPriceUpdate("XYZ", new BigDecimal("97.00"));
+
+        assertEquals(new BigDecimal("0.0000"), call.getMarketPrice());
+        assertTrue(closed.get());
+    }
+
+    private static BigDecimal price(Security option, double spot) {
+        double price = OptionPriceCalculator.calculateOptionPrice(spot, option.getStrike().doubleValue(),
+                option.getTimeToMaturity().doubleValue(), option.getSigma().doubleValue(),
+                option.getType() == SecurityType.CALL_OPTION);
+        return BigDecimal.valueOf(price).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static Portfolio portfolio(Position... positions) {
+        Portfolio portfolio = new Portfolio();
+        for (Position position : positions) {
+            portfolio.addPosition(position);
+        }
+        return portfolio;
+    }
+
+    private static Security option(SecurityType type, String strike, Month month) {
+        return new Security("XYZ", type, new BigDecimal(strike), new BigDecimal("0.25"),
+                new BigDecimal("0.05"), new BigDecimal("0.30"), month, 2024);
+    }
+
+    // Clock the test moves by hand
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(LocalDateTime time) {
+            set(time);
+        }
+
+        void set(LocalDateTime time) {
+            instant = time.atZone(NEW_YORK).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return NEW_YORK;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
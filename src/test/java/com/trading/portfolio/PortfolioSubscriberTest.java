@@ -0,0 +1,232 @@
+package com.trading.portfolio;
+
+import com.trading.market.MarketDataListener;
+import com.trading.market.MarketDataProvider;
+import com.trading.market.Subscription;
+import com.trading.model.Portfolio;
+import com.trading.model.PortfolioSnapshot;
+import com.trading.model.Position;
+import com.trading.model.PositionState;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCalculator;
+import com.trading.report.ValuationPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ticks reaching a subscriber's groups are bracketed by the portfolio's ticker books, so
+ * a snapshot sees a ticker's stock and options at the same tick, including the price a
+ * provider delivers from inside {@code subscribe}.
+ */
+class PortfolioSubscriberTest {
+    private final Portfolio portfolio = new Portfolio();
+    private final ManualFeed feed = new ManualFeed();
+    private final ValuationPublisher publisher = new ValuationPublisher(report -> { }, 1,
+            ValuationPublisher.OverflowPolicy.DROP);
+    private PortfolioSubscriber subscriber;
+
+    @AfterEach
+    void stop() {
+        if (subscriber != null) {
+            subscriber.stop();
+        }
+        publisher.close();
+    }
+
+    @Test
+    void priceDeliveredFromSubscribeIsBracketed() throws Exception {
+        List<Boolean> snapshotBlocked = new ArrayList<>();
+        // Tries a snapshot from another thread while the first price is being applied
+        Position probe = new Position(new Security("XYZ"), BigDecimal.ONE) {
+            @Override
+            public void updatePrice(BigDecimal newPrice) {
+                super.updatePrice(newPrice);
+                if (snapshotBlocked.isEmpty()) {
+                    CompletableFuture<PortfolioSnapshot> snapshot = CompletableFuture.supplyAsync(portfolio::snapshot);
+                    try {
+                        snapshot.get(100, TimeUnit.MILLISECONDS);
+                        snapshotBlocked.add(false);
+                    } catch (TimeoutException e) {
+                        snapshotBlocked.add(true);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+        portfolio.addPosition(probe);
+        feed.setPrice("XYZ", new BigDecimal("100.00"));
+
+        start();
+
+        assertEquals(List.of(true), snapshotBlocked);
+        assertEquals(new BigDecimal("100.00"), probe.getMarketPrice());
+    }
+
+    @Test
+    void snapshotsSeeEachTickerAtOneTick() throws Exception {
+        long seed = System.nanoTime();
+        String label = "seed " + seed;
+        Random setup = new Random(seed);
+        String[] tickers = new String[12];
+        for (int i = 0; i < tickers.length; i++) {
+            tickers[i] = "T" + i;
+            portfolio.addPosition(new Position(new Security(tickers[i]), new BigDecimal(1 + setup.nextInt(100))));
+            for (SecurityType type : new SecurityType[] {SecurityType.CALL_OPTION, SecurityType.PUT_OPTION}) {
+                Security option = new Security(tickers[i], type, new BigDecimal(90 + setup.nextInt(20)),
+                        new BigDecimal("0.25"));
+                portfolio.addPosition(new Position(option, new BigDecimal(setup.nextInt(10) - 5)));
+            }
+            feed.setPrice(tickers[i], new BigDecimal("100.00"));
+        }
+        start();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < 2; w++) {
+                int writer = w;
+                Random random = new Random(seed + 1 + w);
+                // One thread per ticker, as the groups require
+                writers.add(pool.submit(() -> {
+                    while (running.get()) {
+                        int t = writer + 2 * random.nextInt(tickers.length / 2);
+                        feed.tick(tickers[t], BigDecimal.valueOf(8_000 + random.nextInt(4_000), 2));
+                    }
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        check(portfolio.snapshot(), label);
+                    }
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            pool.shutdown();
+        }
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void checkRejectsAnOptionPricedOffAnotherTick() {
+        Position stock = new Position(new Security("ZZZ"), BigDecimal.ONE, new BigDecimal("100.00"));
+        Position call = new Position(new Security("ZZZ", SecurityType.CALL_OPTION, new BigDecimal("100"),
+                new BigDecimal("0.25")), BigDecimal.ONE, new BigDecimal("4.0000"));
+        Portfolio torn = new Portfolio(List.of(stock, call));
+
+        assertThrows(AssertionError.class, () -> check(torn.snapshot(), "torn"));
+    }
+
+    private void start() {
+        subscriber = new PortfolioSubscriber(portfolio, feed);
+        subscriber.setValuationPublisher(publisher);
+        subscriber.start();
+    }
+
+    // Every option must be priced off its ticker's stock price in the same snapshot
+    private static void check(PortfolioSnapshot snapshot, String label) {
+        Map<String, Double> spots = new HashMap<>();
+        for (PositionState row : snapshot.getPositions()) {
+            if (row.getSecurity().getType() == SecurityType.STOCK) {
+                spots.put(row.getSecurity().getTicker(), row.getMarketPrice().doubleValue());
+            }
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (PositionState row : snapshot.getPositions()) {
+            Security security = row.getSecurity();
+            total = total.add(row.getMarketValue());
+            if (security.getType() == SecurityType.STOCK) {
+                continue;
+            }
+            double spot = spots.get(security.getTicker());
+            double expected = OptionPriceCalculator.calculateOptionPrice(spot, security.getStrike().doubleValue(),
+                    security.getTimeToMaturity().doubleValue(), security.getSigma().doubleValue(),
+                    security.getType() == SecurityType.CALL_OPTION);
+            // Prices are kept to four places
+            if (Math.abs(row.getMarketPrice().doubleValue() - expected) > 1e-4) {
+                throw new AssertionError(label + ": " + security + " at " + row.getMarketPrice()
+                        + " but its stock is at " + spot);
+            }
+        }
+        if (total.compareTo(snapshot.getTotalValue()) != 0) {
+            throw new AssertionError(label + ": total " + snapshot.getTotalValue() + " != sum of rows " + total);
+        }
+    }
+
+    // Delivers the current price from subscribe(), as the mock and replay providers do
+    private static final class ManualFeed implements MarketDataProvider {
+        private final Map<String, List<MarketDataListener>> listeners = new ConcurrentHashMap<>();
+        private final Map<String, BigDecimal> prices = new ConcurrentHashMap<>();
+
+        void setPrice(String ticker, BigDecimal price) {
+            prices.put(ticker, price);
+        }
+
+        void tick(String ticker, BigDecimal price) {
+            prices.put(ticker, price);
+            for (MarketDataListener listener : listeners.getOrDefault(ticker, Collections.emptyList())) {
+                listener.onPriceUpdate(ticker, price);
+            }
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Subscription subscribe(String ticker, MarketDataListener listener) {
+            listeners.computeIfAbsent(ticker, k -> new CopyOnWriteArrayList<>()).add(listener);
+            BigDecimal price = prices.get(ticker);
+            if (price != null) {
+                listener.onPriceUpdate(ticker, price);
+            }
+            return Subscription.of(this, ticker, listener);
+        }
+
+        @Override
+        public void unsubscribe(String ticker, MarketDataListener listener) {
+            listeners.getOrDefault(ticker, Collections.emptyList()).remove(listener);
+        }
+
+        @Override
+        public int getListenerCount() {
+            return listeners.values().stream().mapToInt(List::size).sum();
+        }
+    }
+}
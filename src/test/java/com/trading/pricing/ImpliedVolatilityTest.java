@@ -0,0 +1,138 @@
+package com.trading.pricing;
+
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImpliedVolatilityTest {
+    private static final double SPOT = 100.0;
+
+    @Test
+    void solvedVolatilityReproducesThePrice() {
+        int checked = 0;
+        for (double strike : new double[] {50, 80, 95, 100, 105, 125, 200}) {
+            for (double maturity : new double[] {0.02, 0.25, 1.0, 3.0}) {
+                for (double vol : new double[] {0.05, 0.2, 0.45, 1.0, 2.5}) {
+                    for (boolean call : new boolean[] {true, false}) {
+                        double price = OptionPriceCalculator.calculateOptionPrice(SPOT, strike, maturity, vol, call);
+                        double solved = ImpliedVolatility.solve(price, SPOT, strike, maturity, call);
+                        if (Double.isNaN(solved)) {
+                            // Only when the price carries no time value to invert
+                            double intrinsic = OptionPriceCalculator.calculateOptionPrice(SPOT, strike, maturity,
+                                    ImpliedVolatility.MIN_VOLATILITY, call);
+                            assertEquals(intrinsic, price, 1e-9, label(strike, maturity, vol, call));
+                            continue;
+                        }
+                        String label = label(strike, maturity, vol, call);
+                        double repriced = OptionPriceCalculator.calculateOptionPrice(SPOT, strike, maturity, solved, call);
+                        assertEquals(price, repriced, 1e-8 * Math.max(1, price), label);
+                        // Where the price responds to volatility, the volatility itself comes back
+                        double vega = SPOT * OptionPriceCalculator.normalDensity(d1(strike, maturity, vol))
+                                * Math.sqrt(maturity);
+                        if (vega > 1e-2) {
+                            assertEquals(vol, solved, 1e-6, label);
+                        }
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 200, "checked " + checked);
+    }
+
+    @Test
+    void pricesOutsideTheNoArbitrageBoundsHaveNoSolution() {
+        // Below intrinsic, at or above the spot for a call, or expired
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(15.0, SPOT, 80, 0.5, true)));
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(SPOT, SPOT, 80, 0.5, true)));
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(0.0, SPOT, 120, 0.5, true)));
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(5.0, SPOT, 100, 0.0, false)));
+    }
+
+    @Test
+    void batchSolveMatchesSingleSolves() {
+        double[] strikes = {90, 100, 110, 100};
+        double[] maturities = {0.5, 0.25, 1.0, 0.5};
+        boolean[] calls = {true, false, true, true};
+        double[] spots = {SPOT, SPOT, SPOT, SPOT};
+        double[] prices = new double[4];
+        for (int i = 0; i < 3; i++) {
+            prices[i] = OptionPriceCalculator.calculateOptionPrice(SPOT, strikes[i], maturities[i], 0.3, calls[i]);
+        }
+        prices[3] = -1.0;
+        double[] vols = new double[4];
+
+        assertEquals(3, ImpliedVolatility.solve(prices, spots, strikes, maturities, calls, vols));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ImpliedVolatility.solve(prices[i], SPOT, strikes[i], maturities[i], calls[i]), vols[i]);
+        }
+        assertTrue(Double.isNaN(vols[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> ImpliedVolatility.solve(prices, spots, strikes, new double[3], calls, vols));
+    }
+
+    @Test
+    void updateSigmasWritesSolvedVolsAndEvictsThem() {
+        SecurityRegistry registry = new SecurityRegistry();
+        OptionPriceCache cache = new OptionPriceCache(256, 0.01, 0.0001, registry);
+        Security call = option(SecurityType.CALL_OPTION, "105");
+        Security put = option(SecurityType.PUT_OPTION, "95");
+        Security unchanged = option(SecurityType.CALL_OPTION, "100");
+        Security stock = new Security("XYZ");
+        for (Security option : new Security[] {call, put, unchanged}) {
+            cache.price(option, SPOT);
+        }
+        assertEquals(3, cache.size());
+
+        List<Security> options = new ArrayList<>();
+        options.add(call);
+        options.add(put);
+        options.add(unchanged);
+        options.add(stock);
+        double[] prices = {
+                OptionPriceCalculator.calculateOptionPrice(SPOT, 105, 0.5, 0.42, true),
+                OptionPriceCalculator.calculateOptionPrice(SPOT, 95, 0.5, 0.18, false),
+                OptionPriceCalculator.calculateOptionPrice(SPOT, 100, 0.5, 0.30, true),
+                SPOT
+        };
+        double[] spots = {SPOT, SPOT, SPOT, SPOT};
+
+        List<Security> updated = ImpliedVolatility.updateSigmas(options, prices, spots, cache);
+
+        assertEquals(List.of(call, put), updated);
+        assertEquals(new BigDecimal("0.420000"), call.getSigma());
+        assertEquals(new BigDecimal("0.180000"), put.getSigma());
+        assertEquals(new BigDecimal("0.30"), unchanged.getSigma());
+        // Solved even where the value did not move, so the master's sigma no longer applies
+        assertTrue(call.isImpliedSigma() && put.isImpliedSigma() && unchanged.isImpliedSigma());
+        assertFalse(stock.isImpliedSigma());
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> ImpliedVolatility.updateSigmas(options, new double[1], spots, cache));
+    }
+
+    private static double d1(double strike, double maturity, double vol) {
+        double volSqrtT = vol * Math.sqrt(maturity);
+        return (Math.log(SPOT / strike) + OptionPriceCalculator.RISK_FREE_RATE * maturity) / volSqrtT + volSqrtT / 2;
+    }
+
+    private static String label(double strike, double maturity, double vol, boolean call) {
+        return (call ? "call " : "put ") + strike + " T=" + maturity + " vol=" + vol;
+    }
+
+    private static Security option(SecurityType type, String strike) {
+        Security security = new Security("XYZ", type, new BigDecimal(strike), new BigDecimal("0.5"));
+        security.setSigma(new BigDecimal("0.30"));
+        return security;
+    }
+}
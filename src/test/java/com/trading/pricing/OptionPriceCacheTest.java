@@ -0,0 +1,121 @@
+package com.trading.pricing;
+
+import com.trading.model.Security;
+import com.trading.model.SecurityRegistry;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptionPriceCacheTest {
+    private final SecurityRegistry registry = new SecurityRegistry();
+
+    @Test
+    void hitReturnsWhatTheMissComputed() {
+        OptionPriceCache cache = new OptionPriceCache(1024, 0.01, 0.0001, registry);
+        Security call = option(SecurityType.CALL_OPTION, "100", "0.5");
+        double[] missGreeks = new double[OptionPriceCache.GREEKS];
+        double[] hitGreeks = new double[OptionPriceCache.GREEKS];
+
+        double miss = cache.price(call, 101.234, missGreeks);
+        double hit = cache.price(call, 101.2349, hitGreeks);
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(miss, hit);
+        assertArrayEquals(missGreeks, hitGreeks);
+
+        // Priced at the tick-rounded spot, greeks from the same model
+        double[] price = new double[1];
+        double[] delta = new double[1];
+        double[] gamma = new double[1];
+        double[] vega = new double[1];
+        double[] theta = new double[1];
+        new OptionChainPricer(new double[] {100}, new double[] {0.5}, new double[] {0.3}, new boolean[] {true})
+                .price(101.23, price, delta, gamma, vega, theta);
+        assertEquals(price[0], miss, 1e-12);
+        assertArrayEquals(new double[] {delta[0], gamma[0], vega[0], theta[0]}, missGreeks, 1e-12);
+    }
+
+    @Test
+    void equalSecuritiesShareEntriesAndContractChangesMiss() {
+        OptionPriceCache cache = new OptionPriceCache(1024, 0.01, 0.0001, registry);
+        Security put = option(SecurityType.PUT_OPTION, "95", "0.25");
+        cache.price(put, 100.0);
+        // A separately built but equal security maps to the same id
+        cache.price(option(SecurityType.PUT_OPTION, "95", "0.25"), 100.0);
+        assertEquals(1, cache.getHits());
+
+        put.setSigma(new BigDecimal("0.45"));
+        cache.price(put, 100.0);
+        assertEquals(2, cache.getMisses());
+
+        cache.invalidate(put);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void sizeStaysWithinCapacity() {
+        OptionPriceCache cache = new OptionPriceCache(64, 0.01, 0.0001, registry);
+        Security call = option(SecurityType.CALL_OPTION, "100", "1.0");
+        for (int tick = 0; tick < 10_000; tick++) {
+            cache.price(call, 90.0 + tick * 0.01);
+        }
+        assertTrue(cache.size() <= cache.getCapacity(), "size " + cache.size());
+        assertTrue(cache.getCapacity() >= 64 && cache.getCapacity() < 128, "capacity " + cache.getCapacity());
+        assertEquals(10_000 - cache.size(), cache.getEvictions());
+    }
+
+    @Test
+    void concurrentLookupsMatchUncachedPrices() throws Exception {
+        OptionPriceCache cache = new OptionPriceCache(512, 0.01, 0.0001, registry);
+        List<Security> chain = new ArrayList<>();
+        for (int strike = 80; strike <= 120; strike += 5) {
+            chain.add(option(SecurityType.CALL_OPTION, String.valueOf(strike), "0.25"));
+            chain.add(option(SecurityType.PUT_OPTION, String.valueOf(strike), "0.75"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                results.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    double maxError = 0.0;
+                    for (int i = 0; i < 50_000; i++) {
+                        Security security = chain.get(random.nextInt(chain.size()));
+                        double spot = 95.0 + random.nextInt(1000) * 0.01;
+                        double expected = OptionPriceCalculator.calculateOptionPrice(spot,
+                                security.getStrike().doubleValue(), security.getTimeToMaturity().doubleValue(),
+                                security.getSigma().doubleValue(), security.getType() == SecurityType.CALL_OPTION);
+                        maxError = Math.max(maxError, Math.abs(cache.price(security, spot) - expected));
+                    }
+                    return maxError;
+                }));
+            }
+            for (Future<Double> result : results) {
+                assertTrue(result.get() < 1e-9, "max error " + result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(200_000, cache.getHits() + cache.getMisses());
+    }
+
+    private Security option(SecurityType type, String strike, String maturity) {
+        Security security = new Security("XYZ", type, new BigDecimal(strike), new BigDecimal(maturity));
+        security.setSigma(new BigDecimal("0.30"));
+        return security;
+    }
+}
@@ -0,0 +1,68 @@
+package com.trading.pricing;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the Hart CDF and the primitive Black-Scholes price against the commons-math
+ * {@link NormalDistribution} implementation they replaced.
+ */
+class OptionPriceCalculatorTest {
+    // Hart's approximation is good to about 1e-14; commons-math uses erf with its own error
+    private static final double CDF_TOLERANCE = 1e-13;
+    // Per unit of spot, so the bound scales with the option's notional
+    private static final double PRICE_TOLERANCE = 1e-10;
+
+    private static final NormalDistribution NORMAL = new NormalDistribution();
+
+    @Test
+    void cumulativeNormalMatchesCommonsMath() {
+        for (double x = -40.0; x <= 40.0; x += 0.01) {
+            assertEquals(NORMAL.cumulativeProbability(x), OptionPriceCalculator.cumulativeNormal(x), CDF_TOLERANCE,
+                    "N(" + x + ")");
+        }
+    }
+
+    @Test
+    void primitivePriceMatchesCommonsMathReference() {
+        double[] spots = {50, 80, 95, 100, 105, 120, 200};
+        double[] strikes = {60, 90, 100, 110, 150};
+        double[] vols = {0.05, 0.15, 0.30, 0.60, 1.20};
+        double[] maturities = {1.0 / 365, 7.0 / 365, 0.25, 1.0, 3.0};
+
+        for (double spot : spots) {
+            for (double strike : strikes) {
+                for (double vol : vols) {
+                    for (double maturity : maturities) {
+                        for (boolean call : new boolean[]{true, false}) {
+                            double expected = referencePrice(spot, strike, maturity, vol, call);
+                            double actual = OptionPriceCalculator.calculateOptionPrice(spot, strike, maturity, vol, call);
+                            assertEquals(expected, actual, PRICE_TOLERANCE * spot, () -> String.format(
+                                    "S=%s K=%s vol=%s T=%s call=%s", spot, strike, vol, maturity, call));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void expiredOptionIsIntrinsic() {
+        assertEquals(12.0, OptionPriceCalculator.calculateOptionPrice(112, 100, 0.0, 0.3, true), 0.0);
+        assertEquals(0.0, OptionPriceCalculator.calculateOptionPrice(112, 100, 0.0, 0.3, false), 0.0);
+    }
+
+    // The formula as it was computed before the primitive fast path
+    private static double referencePrice(double spot, double strike, double maturity, double vol, boolean call) {
+        double d1 = (Math.log(spot / strike) + (OptionPriceCalculator.RISK_FREE_RATE + vol * vol / 2) * maturity)
+                / (vol * Math.sqrt(maturity));
+        double d2 = d1 - vol * Math.sqrt(maturity);
+        double discountedStrike = strike * Math.exp(-OptionPriceCalculator.RISK_FREE_RATE * maturity);
+        if (call) {
+            return spot * NORMAL.cumulativeProbability(d1) - discountedStrike * NORMAL.cumulativeProbability(d2);
+        }
+        return discountedStrike * NORMAL.cumulativeProbability(-d2) - spot * NORMAL.cumulativeProbability(-d1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.trading.report;
+
+import com.trading.model.Portfolio;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * In changed-rows mode the baseline only moves when a report reaches the writer, so
+ * nothing a dropped or coalesced report carried is lost.
+ */
+class PortfolioReportTest {
+    private final Portfolio portfolio = new Portfolio();
+    private final Position aapl = new Position(new Security("AAPL"), new BigDecimal("10"), new BigDecimal("180.00"));
+    private final Position msft = new Position(new Security("MSFT"), new BigDecimal("5"), new BigDecimal("400.00"));
+    private final Position call = new Position(new Security("AAPL", SecurityType.CALL_OPTION,
+            new BigDecimal("150"), new BigDecimal("0.25")), new BigDecimal("2"), new BigDecimal("31.00"));
+
+    PortfolioReportTest() {
+        portfolio.addPosition(aapl);
+        portfolio.addPosition(msft);
+        portfolio.addPosition(call);
+    }
+
+    @Test
+    void onlyRowsChangedSinceTheLastSubmittedReportAreFilled() {
+        PortfolioReport report = new PortfolioReport(null, portfolio, true);
+        assertArrayEquals(new int[] {0, 1, 2}, submit(report));
+        assertArrayEquals(new int[0], submit(report));
+
+        msft.updatePrice(new BigDecimal("401.00"));
+        assertArrayEquals(new int[] {1}, submit(report));
+
+        // Moved and moved back: same as the baseline, so not reported
+        msft.updatePrice(new BigDecimal("402.00"));
+        msft.updatePrice(new BigDecimal("401.00"));
+        call.setQuantity(new BigDecimal("3"));
+        assertArrayEquals(new int[] {2}, submit(report));
+    }
+
+    @Test
+    void reportsNotSubmittedKeepTheBaseline() {
+        PortfolioReport report = new PortfolioReport(null, portfolio, true);
+        submit(report);
+
+        aapl.updatePrice(new BigDecimal("181.00"));
+        ValuationSnapshot dropped = new ValuationSnapshot();
+        assertTrue(report.fill(dropped));
+        assertEquals(1, dropped.size);
+
+        // The dropped report's change is carried into the next one
+        call.updatePrice(new BigDecimal("32.00"));
+        assertArrayEquals(new int[] {0, 2}, submit(report));
+    }
+
+    @Test
+    void fullReportsFillEveryRow() {
+        PortfolioReport report = new PortfolioReport(null, portfolio, false);
+        assertArrayEquals(new int[] {0, 1, 2}, submit(report));
+        assertArrayEquals(new int[] {0, 1, 2}, submit(report));
+    }
+
+    @Test
+    void coalescedChangesReachTheNextWrittenReport() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        ValuationSink sink = text -> {
+            firstWriteStarted.countDown();
+            try {
+                releaseWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(text.toString());
+        };
+
+        PortfolioReport report = new PortfolioReport(null, portfolio, true);
+        try (ValuationPublisher publisher = new ValuationPublisher(sink, 2,
+                ValuationPublisher.OverflowPolicy.COALESCE)) {
+            assertTrue(publisher.publish(report));
+            assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+            // Still being written, so this one is coalesced
+            aapl.updatePrice(new BigDecimal("190.00"));
+            assertFalse(publisher.publish(report));
+            assertEquals(1, publisher.getCoalescedCount());
+
+            releaseWriter.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (report.pending.get() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            msft.updatePrice(new BigDecimal("390.00"));
+            assertTrue(publisher.publish(report));
+        }
+
+        assertEquals(2, written.size());
+        assertTrue(written.get(0).contains("3 of 3 positions changed"), written.get(0));
+        String second = written.get(1);
+        assertTrue(second.contains("2 of 3 positions changed"), second);
+        assertTrue(second.contains("190.00") && second.contains("390.00"), second);
+        assertFalse(second.contains("31.00"), second);
+    }
+
+    // Fills a snapshot, hands it over as the publisher would and returns its row indexes
+    private static int[] submit(PortfolioReport report) {
+        ValuationSnapshot snapshot = new ValuationSnapshot();
+        report.fill(snapshot);
+        report.submitted(snapshot);
+        int[] rows = new int[snapshot.size];
+        System.arraycopy(snapshot.rowIndex, 0, rows, 0, snapshot.size);
+        return rows;
+    }
+}
@@ -0,0 +1,97 @@
+package com.trading.risk;
+
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonteCarloVaRTest {
+    private static final double SPOT = 100.0;
+
+    @Test
+    void seedGivesTheSameLossesAtAnyParallelism() {
+        List<Position> positions = new ArrayList<>();
+        positions.add(new Position(new Security("AAA"), new BigDecimal("100")));
+        positions.add(new Position(option("AAA", SecurityType.CALL_OPTION, "105", "0.25"), new BigDecimal("3")));
+        positions.add(new Position(option("AAA", SecurityType.PUT_OPTION, "95", "0.50"), new BigDecimal("-2")));
+        positions.add(new Position(option("BBB", SecurityType.PUT_OPTION, "90", "0.10"), new BigDecimal("5")));
+        MarketModel model = new MarketModel(List.of("AAA", "BBB"), new double[] {SPOT, 80.0},
+                new double[] {0.05, 0.02}, new double[] {0.3, 0.4}, new double[][] {{1, 0.6}, {0.6, 1}});
+        // Not a whole number of blocks, several steps per path
+        VaRSettings settings = VaRSettings.of(5_000, 5, 3, 7L);
+
+        double[] expected = null;
+        for (int parallelism : new int[] {1, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                double[] losses = new MonteCarloVaR(pool).calculate(positions, model, settings).getLosses();
+                if (expected == null) {
+                    expected = losses;
+                } else {
+                    assertArrayEquals(expected, losses, "parallelism " + parallelism);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        double[] otherSeed = new MonteCarloVaR().calculate(positions, model, VaRSettings.of(5_000, 5, 3, 8L))
+                .getLosses();
+        assertFalse(Arrays.equals(expected, otherSeed));
+    }
+
+    @Test
+    void optionsRollDownByTheHorizonInCalendarDays() {
+        Security put = option("AAA", SecurityType.PUT_OPTION, "100", "0.10");
+        Security call = option("AAA", SecurityType.CALL_OPTION, "110", "0.10");
+        List<Position> positions = List.of(new Position(put, new BigDecimal("1")),
+                new Position(call, new BigDecimal("1")));
+        // No drift or volatility: the spot stays put and only time passes
+        MarketModel model = new MarketModel(Collections.singletonList("AAA"), new double[] {SPOT},
+                new double[] {0.0}, new double[] {0.0}, new double[][] {{1}});
+
+        VaRSettings oneDay = VaRSettings.of(1_000, 1, 1L);
+        assertEquals(1, oneDay.getCalendarDays());
+        assertEquals(14, VaRSettings.of(1_000, 10, 1L).getCalendarDays());
+        assertEquals(decay(put, 1) + decay(call, 1),
+                new MonteCarloVaR().calculate(positions, model, oneDay).getMeanLoss(), 1e-9);
+
+        // Friday to Monday: one trading day of moves, three calendar days of decay
+        VaRSettings weekend = oneDay.withCalendarDays(3);
+        assertEquals(oneDay.getHorizonYears(), weekend.getHorizonYears());
+        double weekendLoss = new MonteCarloVaR().calculate(positions, model, weekend).getMeanLoss();
+        assertEquals(decay(put, 3) + decay(call, 3), weekendLoss, 1e-9);
+        assertTrue(weekendLoss > decay(put, 1) + decay(call, 1));
+    }
+
+    // Value lost by one contract as calendarDays pass at a constant spot
+    private static double decay(Security option, int calendarDays) {
+        double strike = option.getStrike().doubleValue();
+        double maturity = option.getTimeToMaturity().doubleValue();
+        double vol = option.getSigma().doubleValue();
+        boolean call = option.getType() == SecurityType.CALL_OPTION;
+        double today = OptionPriceCalculator.calculateOptionPrice(SPOT, strike, maturity, vol, call);
+        double later = OptionPriceCalculator.calculateOptionPrice(SPOT, strike, maturity - calendarDays / 365.0,
+                vol, call);
+        return (today - later) * option.getContractSize().doubleValue();
+    }
+
+    private static Security option(String ticker, SecurityType type, String strike, String maturity) {
+        Security security = new Security(ticker, type, new BigDecimal(strike), new BigDecimal(maturity));
+        security.setSigma(new BigDecimal("0.35"));
+        return security;
+    }
+}
@@ -0,0 +1,153 @@
+package com.trading.risk;
+
+import com.trading.account.AccountManager;
+import com.trading.model.Account;
+import com.trading.model.Position;
+import com.trading.model.Security;
+import com.trading.model.SecurityType;
+import com.trading.pricing.OptionPriceCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every cell of the engine's shared price tables must match repricing each position on
+ * its own.
+ */
+class StressTestEngineTest {
+    private static final String[] TICKERS = {"AAA", "BBB", "CCC"};
+    private static final double[] SPOTS = {100.0, 42.5, 310.0};
+
+    @Test
+    void everyCellMatchesABruteForceReprice() {
+        AccountManager accounts = randomAccounts(new Random(5));
+        Map<String, BigDecimal> spots = new HashMap<>();
+        for (int u = 0; u < TICKERS.length; u++) {
+            spots.put(TICKERS[u], BigDecimal.valueOf(SPOTS[u]));
+        }
+        // Includes shocks deep enough to hit the volatility floor
+        StressGrid grid = StressGrid.of(new double[] {-0.5, -0.2, -0.05, 0, 0.1, 0.35},
+                new double[] {-0.6, -0.1, 0, 0.05, 0.25});
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        StressResult result;
+        try {
+            result = new StressTestEngine(pool).run(accounts, spots, grid);
+        } finally {
+            pool.shutdown();
+        }
+
+        double[][] total = new double[grid.getSpotCount()][grid.getVolCount()];
+        for (Account account : accounts.getAllAccounts()) {
+            List<Position> positions = account.getPortfolio().getPositions();
+            double[][] actual = result.getPnl(account.getAccountId());
+            for (int s = 0; s < grid.getSpotCount(); s++) {
+                for (int v = 0; v < grid.getVolCount(); v++) {
+                    double expected = 0.0;
+                    for (Position position : positions) {
+                        expected += reprice(position, grid.getSpotShock(s), grid.getVolShock(v));
+                    }
+                    total[s][v] += expected;
+                    assertEquals(expected, actual[s][v], 1e-6 * Math.max(1, Math.abs(expected)),
+                            account.getAccountId() + " cell " + s + "," + v);
+                }
+            }
+        }
+
+        double[][] resultTotal = result.getTotalPnl();
+        double[][] byUnderlying = new double[grid.getSpotCount()][grid.getVolCount()];
+        for (String ticker : TICKERS) {
+            double[][] pnl = result.getUnderlyingPnl(ticker);
+            for (int s = 0; s < grid.getSpotCount(); s++) {
+                for (int v = 0; v < grid.getVolCount(); v++) {
+                    byUnderlying[s][v] += pnl[s][v];
+                }
+            }
+        }
+        for (int s = 0; s < grid.getSpotCount(); s++) {
+            for (int v = 0; v < grid.getVolCount(); v++) {
+                double tolerance = 1e-6 * Math.max(1, Math.abs(total[s][v]));
+                assertEquals(total[s][v], resultTotal[s][v], tolerance);
+                assertEquals(total[s][v], byUnderlying[s][v], tolerance);
+            }
+        }
+        // The unshocked cell is flat
+        assertEquals(0.0, resultTotal[3][2], 1e-9);
+    }
+
+    @Test
+    void missingSpotIsRejected() {
+        AccountManager accounts = new AccountManager();
+        accounts.createAccount("A", "First").getPortfolio()
+                .addPosition(new Position(option("AAA", SecurityType.CALL_OPTION, 100, 0.5, 0.3), BigDecimal.ONE));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new StressTestEngine().run(accounts, new HashMap<>(), StressGrid.standard()));
+    }
+
+    // P&L of one position repriced on its own in one cell
+    private static double reprice(Position position, double spotShock, double volShock) {
+        Security security = position.getSecurity();
+        double spot = spot(security.getTicker());
+        double quantity = position.getQuantity().doubleValue();
+        if (security.getType() == SecurityType.STOCK) {
+            return quantity * spot * spotShock;
+        }
+        double strike = security.getStrike().doubleValue();
+        double maturity = security.getTimeToMaturity().doubleValue();
+        double vol = security.getSigma().doubleValue();
+        boolean call = security.getType() == SecurityType.CALL_OPTION;
+        double base = OptionPriceCalculator.calculateOptionPrice(spot, strike, maturity, vol, call);
+        double shocked = OptionPriceCalculator.calculateOptionPrice(spot * (1 + spotShock), strike, maturity,
+                Math.max(vol + volShock, StressGrid.MIN_VOLATILITY), call);
+        return quantity * security.getContractSize().doubleValue() * (shocked - base);
+    }
+
+    private static AccountManager randomAccounts(Random random) {
+        AccountManager accounts = new AccountManager();
+        for (int a = 0; a < 6; a++) {
+            Account account = accounts.createAccount("ACC" + a, "Account " + a);
+            for (int p = 0; p < 25; p++) {
+                int u = random.nextInt(TICKERS.length);
+                BigDecimal quantity = BigDecimal.valueOf(random.nextInt(200) - 100);
+                int kind = random.nextInt(3);
+                Security security;
+                if (kind == 0) {
+                    security = new Security(TICKERS[u]);
+                } else {
+                    // Few strikes and expiries, so books share contracts
+                    double strike = SPOTS[u] * (0.8 + 0.1 * random.nextInt(5));
+                    double maturity = 0.1 + 0.25 * random.nextInt(4);
+                    double vol = 0.2 + 0.1 * random.nextInt(3);
+                    security = option(TICKERS[u], kind == 1 ? SecurityType.CALL_OPTION : SecurityType.PUT_OPTION,
+                            strike, maturity, vol);
+                }
+                account.getPortfolio().addPosition(new Position(security, quantity));
+            }
+        }
+        return accounts;
+    }
+
+    private static Security option(String ticker, SecurityType type, double strike, double maturity, double vol) {
+        Security security = new Security(ticker, type, BigDecimal.valueOf(strike), BigDecimal.valueOf(maturity));
+        security.setSigma(BigDecimal.valueOf(vol));
+        return security;
+    }
+
+    private static double spot(String ticker) {
+        for (int u = 0; u < TICKERS.length; u++) {
+            if (TICKERS[u].equals(ticker)) {
+                return SPOTS[u];
+            }
+        }
+        throw new IllegalArgumentException(ticker);
+    }
+}